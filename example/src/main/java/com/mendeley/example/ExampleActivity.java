@@ -68,7 +68,7 @@ public class ExampleActivity extends Activity implements View.OnClickListener, M
 
             final String clientId = propertyResourceBundle.getString(KEY_PROJECT_ID);
             final String clientSecret = propertyResourceBundle.getString(KEY_CLIENT_SECRET);
-            Mendeley.getInstance().init(this, clientId, clientSecret);
+            Mendeley.getInstance().init(this, clientId, clientSecret, true);
         } catch (IOException ioe) {
             throw new IllegalStateException("Could not read property files with client configuration. Should be located in assets/" + CONFIG_FILE, ioe);
         } catch (MissingResourceException mr) {
@@ -0,0 +1,144 @@
+package com.mendeley.sdk.cache;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class FileCacheTest extends AndroidTestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("filecache", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(directory);
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_publish_storesTheFileOnce_whenPublishedTwice() throws Exception {
+        // GIVEN a cache
+        final FileCache cache = new FileCache(directory, 1000);
+
+        // WHEN publishing the same content twice
+        final File first = cache.publish("0a1b", write(cache.newTempFile("0a1b"), 100));
+        final File second = cache.publish("0a1b", write(cache.newTempFile("0a1b"), 100));
+
+        // THEN it is stored once
+        assertEquals("Same file", first, second);
+        assertEquals("Cached file", first, cache.get("0a1b"));
+        assertEquals("Size", 100, cache.getSize());
+        assertEquals("Files in directory", 1, first.getParentFile().listFiles().length);
+    }
+
+    @SmallTest
+    public void test_publish_evictsTheLeastRecentlyUsedFiles_exceptPinnedOnes() throws Exception {
+        // GIVEN a full cache, with one file pinned and another one recently used
+        final FileCache cache = new FileCache(directory, 300);
+        cache.publish("4e5f", write(cache.newTempFile("4e5f"), 100));
+        cache.publish("6a7b", write(cache.newTempFile("6a7b"), 100));
+        cache.publish("8c9d", write(cache.newTempFile("8c9d"), 100));
+        cache.pin("4e5f");
+        cache.get("8c9d");
+
+        // WHEN publishing one more file
+        cache.publish("0e1f", write(cache.newTempFile("0e1f"), 100));
+
+        // THEN the least recently used file not pinned is evicted
+        assertTrue("Pinned", cache.contains("4e5f"));
+        assertFalse("Old", cache.contains("6a7b"));
+        assertTrue("Used", cache.contains("8c9d"));
+        assertTrue("New", cache.contains("0e1f"));
+        assertEquals("Size", 300, cache.getSize());
+    }
+
+    @SmallTest
+    public void test_constructor_restoresTheFiles_andDeletesTemporaryOnes() throws Exception {
+        // GIVEN a cache with one file and one unpublished temporary file
+        final FileCache cache = new FileCache(directory, 1000);
+        cache.publish("0a1b", write(cache.newTempFile("0a1b"), 100));
+        final File tempFile = write(cache.newTempFile("2c3d"), 100);
+
+        // WHEN creating a new cache on the same directory
+        final FileCache restored = new FileCache(directory, 1000);
+
+        // THEN it has the file, and the temporary one is deleted
+        assertTrue("Restored file", restored.contains("0a1b"));
+        assertEquals("Size", 100, restored.getSize());
+        assertFalse("Temporary file", tempFile.exists());
+    }
+
+    @SmallTest
+    public void test_constructor_doesNotDeleteOtherFiles_ofThePassedDirectory() throws Exception {
+        // GIVEN a directory with files not belonging to the cache
+        final File other = write(new File(directory, "other.tmp"), 100);
+
+        // WHEN creating a cache on the directory
+        final FileCache cache = new FileCache(directory, 1000);
+
+        // THEN the files are neither deleted nor added to the cache
+        assertTrue("Other file", other.exists());
+        assertEquals("Size", 0, cache.getSize());
+    }
+
+    @SmallTest
+    public void test_constructor_deletesPartialDownloads() throws Exception {
+        // GIVEN a cache with a temporary file left half written by a download request
+        final FileCache cache = new FileCache(directory, 1000);
+        final File tempFile = cache.newTempFile("0a1b");
+        final File partialFile = write(new File(tempFile.getPath() + ".part"), 100);
+
+        // WHEN creating a new cache on the same directory
+        final FileCache restored = new FileCache(directory, 1000);
+
+        // THEN the partial file is deleted, and not added to the cache
+        assertFalse("Partial file", partialFile.exists());
+        assertEquals("Size", 0, restored.getSize());
+    }
+
+    @SmallTest
+    public void test_newTempFile_rejectsHashesThatAreNotHexadecimal() {
+        // GIVEN a cache
+        final FileCache cache = new FileCache(directory, 1000);
+
+        // WHEN asking for a temp file with a hash reaching out of the cache directory
+        try {
+            cache.newTempFile("../0a1b");
+
+            // THEN it is rejected
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static File write(File file, int length) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
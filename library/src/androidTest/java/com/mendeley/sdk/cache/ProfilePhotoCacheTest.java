@@ -0,0 +1,63 @@
+package com.mendeley.sdk.cache;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.Photo;
+
+import java.io.File;
+
+public class ProfilePhotoCacheTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_getSampleSize_keepsTheImageAtLeastAsBigAsTheView() {
+        // GIVEN a 1024x768 image
+
+        // WHEN getting the sample size for a 100x100 view
+        final int sampleSize = ProfilePhotoCache.getSampleSize(1024, 768, 100, 100);
+
+        // THEN the image is downsampled by the largest power of two keeping both sides big enough
+        assertEquals("Sample size", 4, sampleSize);
+    }
+
+    @SmallTest
+    public void test_getSampleSize_doesNotDownsample_imagesSmallerThanTheView() {
+        // GIVEN a 64x64 image
+
+        // WHEN getting the sample size for a 100x100 view
+        final int sampleSize = ProfilePhotoCache.getSampleSize(64, 64, 100, 100);
+
+        // THEN the image is not downsampled
+        assertEquals("Sample size", 1, sampleSize);
+    }
+
+    @SmallTest
+    public void test_getUrl_returnsTheSquarePhoto_forSquareViews() {
+        // GIVEN a photo with all its sizes
+        final Photo photo = new Photo("original", "standard", "square");
+
+        // WHEN getting the urls for square and non square views
+        // THEN the square one is used only for square views
+        assertEquals("Square view url", "square", ProfilePhotoCache.getUrl(photo, 48, 48));
+        assertEquals("Other view url", "standard", ProfilePhotoCache.getUrl(photo, 200, 100));
+    }
+
+    @SmallTest
+    public void test_load_fails_whenTheUrlIsMalformed() throws Exception {
+        // GIVEN a cache
+        final File directory = File.createTempFile("photos", "");
+        directory.delete();
+        final ProfilePhotoCache cache = new ProfilePhotoCache(new FileCache(directory, 1000), 1000);
+
+        // WHEN loading an image with a malformed url
+        try {
+            cache.load("not a url", 48, 48).getResult();
+
+            // THEN the load fails, rather than never completing
+            fail("Load of a malformed url");
+        } catch (MendeleyException expected) {
+        }
+    }
+}
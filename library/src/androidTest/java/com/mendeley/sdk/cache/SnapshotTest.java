@@ -0,0 +1,144 @@
+package com.mendeley.sdk.cache;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.Folder;
+import com.mendeley.sdk.model.Person;
+import com.mendeley.sdk.model.Point;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class SnapshotTest extends AndroidTestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("snapshot", ".bin");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_documents_areReadBackAsWritten() throws IOException {
+        // GIVEN some documents, with null and empty collections
+        final List<Document> documents = new ArrayList<Document>();
+        for (int i = 0; i < 100; i++) {
+            documents.add(new Document.Builder()
+                    .setId("id-" + i)
+                    .setTitle("title " + i)
+                    .setYear(1990 + i % 20)
+                    .setStarred(i % 2 == 0)
+                    .setLastModified(new Date(1000L * i))
+                    .setAuthors(Arrays.asList(new Person("Jane", "Doe"), new Person(null, "Smith")))
+                    .setTags(i % 2 == 0 ? Collections.<String>emptyList() : null)
+                    .build());
+        }
+
+        // WHEN writing them to a snapshot and reading it
+        SnapshotWriter.write(file, documents, SnapshotCodecs.DOCUMENTS);
+        final SnapshotReader<Document> reader = SnapshotReader.open(file, SnapshotCodecs.DOCUMENTS);
+
+        // THEN the documents are the same
+        assertEquals("Number of documents", documents.size(), reader.size());
+        for (int i = documents.size() - 1; i >= 0; i--) {
+            final Document expected = documents.get(i);
+            final Document actual = reader.get(i);
+            assertEquals("id", expected.id, actual.id);
+            assertEquals("title", expected.title, actual.title);
+            assertEquals("year", expected.year, actual.year);
+            assertEquals("starred", expected.starred, actual.starred);
+            assertEquals("last modified", expected.lastModified, actual.lastModified);
+            assertEquals("authors", 2, actual.authors.size());
+            assertNull("author first name", actual.authors.get(1).firstName);
+            assertEquals("author last name", "Smith", actual.authors.get(1).lastName);
+            assertEquals("tags null", expected.tags.isNull(), actual.tags.isNull());
+            assertNull("abstract", actual.abstractString);
+            assertTrue("websites", actual.websites.isNull());
+        }
+    }
+
+    @SmallTest
+    public void test_annotations_keepTheirPositions() throws IOException {
+        // GIVEN an annotation with positions
+        final Annotation annotation = new Annotation.Builder()
+                .setId("annotation")
+                .setType(Annotation.Type.HIGHLIGHT)
+                .setColor(0xFFFF0000)
+                .setPrivacyLevel(Annotation.PrivacyLevel.PRIVATE)
+                .setPositions(Arrays.asList(new Annotation.Position(new Point(1.5, 2.5), new Point(3, 4), 7)))
+                .build();
+
+        // WHEN writing it to a snapshot and reading it
+        SnapshotWriter.write(file, Collections.singletonList(annotation), SnapshotCodecs.ANNOTATIONS);
+        final Annotation actual = SnapshotReader.open(file, SnapshotCodecs.ANNOTATIONS).get(0);
+
+        // THEN it is the same
+        assertEquals("Annotation", annotation, actual);
+        assertEquals("Color", annotation.color, actual.color);
+    }
+
+    @SmallTest
+    public void test_open_fails_whenTheSnapshotIsOfAnotherKind() throws IOException {
+        // GIVEN a snapshot of folders
+        SnapshotWriter.write(file, Collections.singletonList(new Folder.Builder().setId("folder").build()), SnapshotCodecs.FOLDERS);
+
+        // WHEN opening it as a snapshot of documents
+        try {
+            SnapshotReader.open(file, SnapshotCodecs.DOCUMENTS);
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+    }
+
+    @SmallTest
+    public void test_open_fails_whenTheFileIsNotASnapshot() throws IOException {
+        // GIVEN a file which is not a snapshot
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write("{\"documents\": []}".getBytes("UTF-8"));
+        out.close();
+
+        // WHEN opening it
+        try {
+            SnapshotReader.open(file, SnapshotCodecs.DOCUMENTS);
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+    }
+
+    @SmallTest
+    public void test_open_fails_whenTheStringTableIsCorrupt() throws IOException {
+        // GIVEN a snapshot whose count of strings has been overwritten with a huge value
+        SnapshotWriter.write(file, Collections.singletonList(new Folder.Builder().setId("folder").build()), SnapshotCodecs.FOLDERS);
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(11);
+        final int stringTableOffset = randomAccessFile.readInt();
+        randomAccessFile.seek(stringTableOffset);
+        randomAccessFile.writeInt(Integer.MAX_VALUE);
+        randomAccessFile.close();
+
+        // WHEN opening it
+        try {
+            SnapshotReader.open(file, SnapshotCodecs.FOLDERS);
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mendeley.sdk.index;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.model.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AnnotationPageIndexTest extends AndroidTestCase {
+
+    private static final String FILE_HASH = "hash";
+
+    private AnnotationPageIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new AnnotationPageIndex();
+        index.put(createAnnotation("top", FILE_HASH,
+                new Annotation.Position(new Point(10, 10), new Point(100, 20), 1),
+                new Annotation.Position(new Point(10, 20), new Point(100, 30), 1)));
+        index.put(createAnnotation("bottom", FILE_HASH,
+                new Annotation.Position(new Point(10, 700), new Point(100, 710), 1),
+                new Annotation.Position(new Point(10, 10), new Point(100, 20), 2)));
+        index.put(createAnnotation("otherFile", "otherHash",
+                new Annotation.Position(new Point(10, 10), new Point(100, 20), 1)));
+    }
+
+    @SmallTest
+    public void test_getAnnotations_returnsTheAnnotationsOfThePage() {
+        // WHEN getting the annotations of one page
+        // THEN the ones with positions in it are returned, once each
+        assertEquals("Page 1", Arrays.asList("top", "bottom"), idsOf(index.getAnnotations(FILE_HASH, 1)));
+        assertEquals("Page 2", Arrays.asList("bottom"), idsOf(index.getAnnotations(FILE_HASH, 2)));
+        assertTrue("Page 3", index.getAnnotations(FILE_HASH, 3).isEmpty());
+    }
+
+    @SmallTest
+    public void test_getAnnotations_returnsTheAnnotationsIntersectingTheArea() {
+        // WHEN getting the annotations of part of one page
+        // THEN only the ones with positions in that part are returned
+        assertEquals("Top area", Arrays.asList("top"), idsOf(index.getAnnotations(FILE_HASH, 1, 0, 0, 600, 400)));
+        assertEquals("Bottom area", Arrays.asList("bottom"), idsOf(index.getAnnotations(FILE_HASH, 1, 0, 400, 600, 800)));
+        assertTrue("Empty area", index.getAnnotations(FILE_HASH, 1, 200, 0, 600, 800).isEmpty());
+    }
+
+    @SmallTest
+    public void test_put_replacesThePreviousVersionOfTheAnnotation() {
+        // WHEN an annotation is moved to another page
+        index.put(createAnnotation("top", FILE_HASH,
+                new Annotation.Position(new Point(10, 10), new Point(100, 20), 3)));
+
+        // THEN it is only found in the new page
+        assertEquals("Page 1", Arrays.asList("bottom"), idsOf(index.getAnnotations(FILE_HASH, 1)));
+        assertEquals("Page 3", Arrays.asList("top"), idsOf(index.getAnnotations(FILE_HASH, 3)));
+    }
+
+    @SmallTest
+    public void test_remove_removesTheAnnotation() {
+        // WHEN removing an annotation
+        index.remove("bottom");
+
+        // THEN it is not found anymore
+        assertEquals("Page 1", Arrays.asList("top"), idsOf(index.getAnnotations(FILE_HASH, 1)));
+        assertTrue("Page 2", index.getAnnotations(FILE_HASH, 2).isEmpty());
+        assertEquals("Size", 2, index.size());
+    }
+
+    private static Annotation createAnnotation(String id, String fileHash, Annotation.Position... positions) {
+        return new Annotation.Builder()
+                .setId(id)
+                .setType(Annotation.Type.HIGHLIGHT)
+                .setFileHash(fileHash)
+                .setPositions(Arrays.asList(positions))
+                .build();
+    }
+
+    private static List<String> idsOf(List<Annotation> annotations) {
+        final List<String> ids = new ArrayList<String>();
+        for (Annotation annotation : annotations) {
+            ids.add(annotation.id);
+        }
+        return ids;
+    }
+}
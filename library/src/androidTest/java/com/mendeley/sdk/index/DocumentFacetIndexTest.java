@@ -0,0 +1,87 @@
+package com.mendeley.sdk.index;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.Person;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class DocumentFacetIndexTest extends AndroidTestCase {
+
+    private DocumentFacetIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new DocumentFacetIndex();
+        index.put(createDocument("1", "journal", 2010, "Smith", "biology", "review"));
+        index.put(createDocument("2", "journal", 2012, "Doe", "biology"));
+        index.put(createDocument("3", "book", 2010, "Smith", "maths"));
+    }
+
+    @SmallTest
+    public void test_getCounts_countsTheDocumentsPerValue() {
+        // WHEN getting the counts of a facet
+        final Map<String, Integer> counts = index.getCounts(DocumentFacetIndex.Facet.TAG);
+
+        // THEN each value has the number of documents with it
+        assertEquals("Tags", 3, counts.size());
+        assertEquals("biology", Integer.valueOf(2), counts.get("biology"));
+        assertEquals("maths", Integer.valueOf(1), counts.get("maths"));
+        assertEquals("2010", Integer.valueOf(2), index.getCounts(DocumentFacetIndex.Facet.YEAR).get("2010"));
+    }
+
+    @SmallTest
+    public void test_getCounts_countsOnlyTheFilteredDocuments() {
+        // GIVEN a filter
+        final Map<DocumentFacetIndex.Facet, String> filters = new EnumMap<DocumentFacetIndex.Facet, String>(DocumentFacetIndex.Facet.class);
+        filters.put(DocumentFacetIndex.Facet.TYPE, "journal");
+
+        // WHEN getting the counts of a facet
+        final Map<String, Integer> counts = index.getCounts(DocumentFacetIndex.Facet.YEAR, filters);
+
+        // THEN only documents matching the filter are counted
+        assertEquals("Years", 2, counts.size());
+        assertEquals("2010", Integer.valueOf(1), counts.get("2010"));
+        assertEquals("2012", Integer.valueOf(1), counts.get("2012"));
+    }
+
+    @SmallTest
+    public void test_getDocumentIds_returnsTheDocumentsMatchingAllTheFilters() {
+        // GIVEN two filters
+        final Map<DocumentFacetIndex.Facet, String> filters = new EnumMap<DocumentFacetIndex.Facet, String>(DocumentFacetIndex.Facet.class);
+        filters.put(DocumentFacetIndex.Facet.AUTHOR, "Smith, John");
+        filters.put(DocumentFacetIndex.Facet.YEAR, "2010");
+
+        // WHEN getting the matching documents
+        // THEN the ones matching all of them are returned
+        assertEquals("Documents", Arrays.asList("1", "3"), index.getDocumentIds(filters));
+    }
+
+    @SmallTest
+    public void test_put_updatesTheCounts_whenADocumentChanges() {
+        // WHEN a document changes its tags, and another one is removed
+        index.put(createDocument("1", "journal", 2010, "Smith", "maths"));
+        index.remove("2");
+
+        // THEN the counts are updated
+        final Map<String, Integer> counts = index.getCounts(DocumentFacetIndex.Facet.TAG);
+        assertEquals("Tags", Collections.singletonMap("maths", 2), counts);
+    }
+
+    private static Document createDocument(String id, String type, int year, String authorLastName, String... tags) {
+        return new Document.Builder()
+                .setId(id)
+                .setType(type)
+                .setYear(year)
+                .setAuthors(Arrays.asList(new Person("John", authorLastName)))
+                .setTags(Arrays.asList(tags))
+                .build();
+    }
+}
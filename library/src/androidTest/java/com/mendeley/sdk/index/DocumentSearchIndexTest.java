@@ -0,0 +1,96 @@
+package com.mendeley.sdk.index;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DocumentSearchIndexTest extends AndroidTestCase {
+
+    private DocumentSearchIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new DocumentSearchIndex();
+        index.put(createDocument("1", "Neural networks for protein folding", "Garc\u00eda", "biology"));
+        index.put(createDocument("2", "Deep neural models", "Smith", "ml"));
+        index.put(createDocument("3", "Protein structure", "Smithson", "biology"));
+    }
+
+    @SmallTest
+    public void test_search_matchesAllTheWordsByPrefix() {
+        // WHEN searching by the start of several words
+        // THEN the documents containing all of them are found
+        assertEquals("Results", Arrays.asList("1"), index.search("neur prot", 10));
+        assertEquals("Results", Arrays.asList("2", "3"), index.search("smith", 10));
+    }
+
+    @SmallTest
+    public void test_search_ignoresCaseAndAccents() {
+        // WHEN searching without accents and in upper case
+        // THEN the document is found
+        assertEquals("Results", Arrays.asList("1"), index.search("GARCIA", 10));
+    }
+
+    @SmallTest
+    public void test_put_replacesThePreviousVersionOfTheDocument() {
+        // WHEN a document changes
+        index.put(createDocument("2", "Graph theory", "Smith", "maths"));
+
+        // THEN it is only found by its new contents
+        assertEquals("Old title", Arrays.asList("1"), index.search("neural", 10));
+        assertEquals("New title", Arrays.asList("2"), index.search("graph", 10));
+    }
+
+    @SmallTest
+    public void test_remove_removesTheDocument() {
+        // WHEN a document is removed
+        index.remove("3");
+
+        // THEN it is not found any more
+        assertEquals("Results", Collections.singletonList("1"), index.search("protein", 10));
+        assertEquals("Size", 2, index.size());
+    }
+
+    @SmallTest
+    public void test_suggest_returnsTheMostFrequentWordsFirst() {
+        // WHEN asking for suggestions
+        // THEN words in more documents come first
+        assertEquals("Suggestions", Arrays.asList("neural", "networks"), index.suggest("ne", 10));
+    }
+
+    @SmallTest
+    public void test_readFrom_restoresTheSavedIndex() throws IOException {
+        // GIVEN a saved index, with removed documents
+        index.remove("2");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+
+        // WHEN restoring it
+        final DocumentSearchIndex restored = DocumentSearchIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        // THEN it finds the same documents, and can still be updated
+        assertEquals("Size", 2, restored.size());
+        assertEquals("Results", Arrays.asList("1", "3"), restored.search("biology", 10));
+        restored.remove("1");
+        assertEquals("Results after removing", Arrays.asList("3"), restored.search("biology", 10));
+    }
+
+    private static Document createDocument(String id, String title, String authorLastName, String tag) {
+        return new Document.Builder()
+                .setId(id)
+                .setTitle(title)
+                .setAuthors(Arrays.asList(new Person(null, authorLastName)))
+                .setTags(Arrays.asList(tag))
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.mendeley.sdk.index;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FolderMembershipIndexTest extends AndroidTestCase {
+
+    private FolderMembershipIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new FolderMembershipIndex();
+        index.setDocuments("folder1", Arrays.asList("doc1", "doc2"));
+        index.setDocuments("folder2", Arrays.asList("doc2", "doc3"));
+    }
+
+    @SmallTest
+    public void test_getFolderIds_returnsTheFoldersOfTheDocument() {
+        // WHEN getting the folders of the documents
+        // THEN the ones containing them are returned
+        assertEquals("Folders of doc1", Arrays.asList("folder1"), index.getFolderIds("doc1"));
+        assertEquals("Folders of doc2", Arrays.asList("folder1", "folder2"), index.getFolderIds("doc2"));
+        assertTrue("Folders of unknown doc", index.getFolderIds("doc4").isEmpty());
+    }
+
+    @SmallTest
+    public void test_setDocuments_replacesTheDocumentsOfTheFolder() {
+        // WHEN setting the documents of one folder again
+        index.setDocuments("folder1", Arrays.asList("doc3"));
+
+        // THEN both sides of the index are updated
+        assertEquals("Documents", Arrays.asList("doc3"), index.getDocumentIds("folder1"));
+        assertTrue("Folders of doc1", index.getFolderIds("doc1").isEmpty());
+        assertEquals("Folders of doc3", Arrays.asList("folder2", "folder1"), index.getFolderIds("doc3"));
+        assertEquals("Document count", 2, index.getDocumentCount());
+    }
+
+    @SmallTest
+    public void test_addAndRemove_updateBothSidesOfTheIndex() {
+        // WHEN adding one document to a folder and removing another one
+        index.add("folder1", "doc3");
+        index.remove("folder2", "doc2");
+
+        // THEN both sides of the index are updated
+        assertTrue("Added", index.contains("folder1", "doc3"));
+        assertFalse("Removed", index.contains("folder2", "doc2"));
+        assertEquals("Folders of doc2", Arrays.asList("folder1"), index.getFolderIds("doc2"));
+        assertEquals("Documents of folder2", Arrays.asList("doc3"), index.getDocumentIds("folder2"));
+    }
+
+    @SmallTest
+    public void test_removeDocument_keepsTheIndexConsistent_whenCompacting() {
+        // GIVEN many documents in one folder
+        final List<String> documentIds = new ArrayList<String>();
+        for (int i = 0; i < 3000; i++) {
+            documentIds.add("many" + i);
+        }
+        index.setDocuments("folder3", documentIds);
+
+        // WHEN removing most of them
+        for (int i = 0; i < 2990; i++) {
+            index.removeDocument("many" + i);
+        }
+
+        // THEN the remaining memberships are intact
+        assertEquals("Documents of folder3", documentIds.subList(2990, 3000), index.getDocumentIds("folder3"));
+        assertEquals("Folders of doc2", Arrays.asList("folder1", "folder2"), index.getFolderIds("doc2"));
+        assertEquals("Folders of last doc", Arrays.asList("folder3"), index.getFolderIds("many2999"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.mendeley.sdk.index;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.model.Folder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class FolderTreeTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_constructor_buildsTheHierarchy_whenFoldersComeInAnyOrder() {
+        // GIVEN folders where the subfolders come before their parents
+        final List<Folder> folders = Arrays.asList(
+                createFolder("c", "b", null),
+                createFolder("b", "a", null),
+                createFolder("a", null, null),
+                createFolder("g", null, "group"));
+
+        // WHEN building the tree
+        final FolderTree tree = new FolderTree(folders);
+
+        // THEN the hierarchy is restored
+        assertEquals("Roots", Arrays.asList("a"), idsOf(tree.getRootFolders(null)));
+        assertEquals("Group roots", Arrays.asList("g"), idsOf(tree.getRootFolders("group")));
+        assertEquals("Children", Arrays.asList("b"), idsOf(tree.getChildren("a")));
+        assertEquals("Parent", "b", tree.getParent("c").id);
+        assertEquals("Ancestors", Arrays.asList("a", "b"), idsOf(tree.getAncestors("c")));
+        assertEquals("Depth", 2, tree.getDepth("c"));
+        assertTrue("Ancestor", tree.isAncestor("a", "c"));
+        assertFalse("Not ancestor", tree.isAncestor("c", "a"));
+    }
+
+    @SmallTest
+    public void test_put_movesTheFolderWithItsSubfolders() {
+        // GIVEN a tree
+        final FolderTree tree = new FolderTree(Arrays.asList(
+                createFolder("a", null, null),
+                createFolder("b", null, null),
+                createFolder("c", "a", null),
+                createFolder("d", "c", null)));
+
+        // WHEN moving one folder
+        tree.put(createFolder("c", "b", null));
+
+        // THEN it is moved with its subfolders
+        assertTrue("Old parent", tree.getChildren("a").isEmpty());
+        assertEquals("New parent", Arrays.asList("c"), idsOf(tree.getChildren("b")));
+        assertEquals("Ancestors", Arrays.asList("b", "c"), idsOf(tree.getAncestors("d")));
+    }
+
+    @SmallTest
+    public void test_put_throwsException_whenTheFolderIsMovedIntoItsSubfolder() {
+        // GIVEN a tree
+        final FolderTree tree = new FolderTree(Arrays.asList(
+                createFolder("a", null, null),
+                createFolder("b", "a", null)));
+
+        // WHEN moving one folder into its subfolder
+        try {
+            tree.put(createFolder("a", "b", null));
+            fail("Cycle not detected");
+        } catch (IllegalArgumentException e) {
+            // THEN the exception is thrown and the tree is unchanged
+            assertEquals("Parent", "a", tree.getParent("b").id);
+        }
+    }
+
+    @SmallTest
+    public void test_put_doesNotAdoptTheParent_whenTwoFoldersAreTheParentOfEachOther() {
+        // GIVEN a tree with a folder whose parent is not known yet
+        final FolderTree tree = new FolderTree();
+        tree.put(createFolder("a", "b", null));
+
+        // WHEN putting its parent, whose parent is the first folder
+        tree.put(createFolder("b", "a", null));
+
+        // THEN the second folder goes under the first one, which stays as a root
+        assertEquals("Roots", Arrays.asList("a"), idsOf(tree.getRootFolders(null)));
+        assertEquals("Parent", "a", tree.getParent("b").id);
+        assertNull("Parent of root", tree.getParent("a"));
+        assertEquals("Depth", 1, tree.getDepth("b"));
+        assertEquals("Descendants", Arrays.asList("b"), tree.getDescendantIds("a"));
+    }
+
+    @SmallTest
+    public void test_remove_removesTheFolderWithItsSubfolders() {
+        // GIVEN a tree
+        final FolderTree tree = new FolderTree(Arrays.asList(
+                createFolder("a", null, null),
+                createFolder("b", "a", null),
+                createFolder("c", "b", null),
+                createFolder("d", null, null)));
+
+        // WHEN removing one folder
+        final List<String> removedIds = tree.remove("a");
+
+        // THEN it is removed with its subfolders
+        assertEquals("Removed", new HashSet<String>(Arrays.asList("a", "b", "c")), new HashSet<String>(removedIds));
+        assertEquals("Size", 1, tree.size());
+        assertNull("Subfolder", tree.getFolder("c"));
+        assertEquals("Roots", Arrays.asList("d"), idsOf(tree.getRootFolders(null)));
+    }
+
+    private static Folder createFolder(String id, String parentId, String groupId) {
+        return new Folder.Builder()
+                .setId(id)
+                .setName("Folder " + id)
+                .setParentId(parentId)
+                .setGroupId(groupId)
+                .build();
+    }
+
+    private static List<String> idsOf(List<Folder> folders) {
+        final List<String> ids = new ArrayList<String>();
+        for (Folder folder : folders) {
+            ids.add(folder.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,212 @@
+package com.mendeley.sdk.request;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.HttpResponseException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+public class BulkRequestTest extends AndroidTestCase {
+
+    // runs the item requests in the calling thread
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @SmallTest
+    public void test_run_reportsTheOutcomeOfEachItem() throws MendeleyException {
+        // GIVEN a bulk request where one item fails with a client error
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a", "b", "c"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                if (id.equals("b")) {
+                    throw new HttpResponseException(404, "Not Found", id);
+                }
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the other items succeed, and the failed one is reported without retrying it
+        assertEquals("Succeeded ids", new HashSet<String>(Arrays.asList("a", "c")), new HashSet<String>(result.succeededIds));
+        assertEquals("Failed ids", Collections.singleton("b"), result.failures.keySet());
+        assertEquals("Attempts of the failed item", 1, (int) attempts.get("b"));
+        assertFalse("Complete", result.isComplete());
+    }
+
+    @SmallTest
+    public void test_run_retriesItems_failingWithServerErrors() throws MendeleyException {
+        // GIVEN a bulk request where one item fails once with a server error
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a", "b"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                if (id.equals("b") && attempt == 1) {
+                    throw new HttpResponseException(503, "Service Unavailable", id);
+                }
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the item is retried and all of them succeed
+        assertTrue("Complete", result.isComplete());
+        assertEquals("Succeeded ids", new HashSet<String>(Arrays.asList("a", "b")), new HashSet<String>(result.succeededIds));
+        assertEquals("Attempts of the retried item", 2, (int) attempts.get("b"));
+    }
+
+    @SmallTest
+    public void test_run_retriesItems_failingWithNetworkErrors() throws MendeleyException {
+        // GIVEN a bulk request where one item fails once with a network error
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                if (attempt == 1) {
+                    throw new MendeleyException("IO error", new IOException("Connection reset"));
+                }
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the item is retried and succeeds
+        assertTrue("Complete", result.isComplete());
+        assertEquals("Attempts", 2, (int) attempts.get("a"));
+    }
+
+    @SmallTest
+    public void test_run_doesNotRetryItems_failingWithUnexpectedErrors() throws MendeleyException {
+        // GIVEN a bulk request where one item fails with an error not caused by the network
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                throw new MendeleyException("Cannot parse the response");
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the item fails without being retried
+        assertEquals("Failed ids", Collections.singleton("a"), result.failures.keySet());
+        assertEquals("Attempts", 1, (int) attempts.get("a"));
+    }
+
+    @SmallTest
+    public void test_run_reportsTheItemAsSucceeded_whenTheRetryOfARemovalIsNotFound() throws MendeleyException {
+        // GIVEN a bulk request removing an item, whose first attempt is applied but its response lost
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                if (attempt == 1) {
+                    throw new HttpResponseException(503, "Service Unavailable", id);
+                }
+                throw new HttpResponseException(404, "Not Found", id);
+            }
+
+            @Override
+            protected boolean removesItems() {
+                return true;
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the item succeeds
+        assertTrue("Complete", result.isComplete());
+        assertEquals("Succeeded ids", Arrays.asList("a"), result.succeededIds);
+    }
+
+    @SmallTest
+    public void test_run_reportsTheItemAsFailed_whenTheRetryOfAnotherOperationIsNotFound() throws MendeleyException {
+        // GIVEN a bulk request not removing its items, whose item is not found when retried
+        final Map<String, Integer> attempts = new HashMap<String, Integer>();
+        final BulkRequest request = new FakeBulkRequest(Arrays.asList("a"), attempts) {
+            @Override
+            protected void runItem(String id, int attempt) throws MendeleyException {
+                if (attempt == 1) {
+                    throw new HttpResponseException(503, "Service Unavailable", id);
+                }
+                throw new HttpResponseException(404, "Not Found", id);
+            }
+        };
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN the item fails
+        assertEquals("Failed ids", Collections.singleton("a"), result.failures.keySet());
+    }
+
+    @SmallTest
+    public void test_run_succeeds_withNoItems() throws MendeleyException {
+        // GIVEN a bulk request with no items
+        final BulkRequest request = new FakeBulkRequest(Collections.<String>emptyList(), new HashMap<String, Integer>());
+
+        // WHEN it runs
+        final BulkRequest.Result result = request.run().resource;
+
+        // THEN it completes with no outcomes
+        assertTrue("Complete", result.isComplete());
+        assertTrue("Succeeded ids", result.succeededIds.isEmpty());
+    }
+
+    /**
+     * Bulk request whose items run in the calling thread, counting the attempts of each one.
+     */
+    private static class FakeBulkRequest extends BulkRequest {
+        private final Map<String, Integer> attempts;
+
+        FakeBulkRequest(List<String> ids, Map<String, Integer> attempts) {
+            super(null, ids);
+            this.attempts = attempts;
+        }
+
+        protected void runItem(String id, int attempt) throws MendeleyException {
+        }
+
+        @Override
+        protected Request<?> newItemRequest(final String id) {
+            return new Request<Void>(null) {
+                @Override
+                protected Response doRun() throws MendeleyException {
+                    final int attempt;
+                    synchronized (attempts) {
+                        attempt = attempts.containsKey(id) ? attempts.get(id) + 1 : 1;
+                        attempts.put(id, attempt);
+                    }
+                    runItem(id, attempt);
+                    return new Response(null, (Date) null, null);
+                }
+
+                @Override
+                protected Executor getDefaultFutureExecutor() {
+                    return DIRECT_EXECUTOR;
+                }
+            };
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 
@@ -333,6 +334,29 @@ public class JsonParserTest extends InstrumentationTestCase {
 
     }
 
+    @SmallTest
+    public void test_parseDocument_withFields_readsOnlyThoseFields() throws IOException, JSONException, ParseException {
+
+        // GIVEN the JSON representation of a document
+        Document expectedDocument = getTestDocumentWithNonNotNullCollections();
+        JsonReader reader = getJsonReaderFromAssetsFile(documentWithNotNullCollectionsFile);
+
+        // WHEN we parse the JSON reading only some fields
+        Document actualDocument = JsonParser.documentFromJson(reader, EnumSet.of(Document.Field.ID, Document.Field.TITLE, Document.Field.AUTHORS));
+
+        // THEN the requested fields are read
+        assertEquals("id", expectedDocument.id, actualDocument.id);
+        assertEquals("title", expectedDocument.title, actualDocument.title);
+        assertEquals("authors", expectedDocument.authors.size(), actualDocument.authors.size());
+        assertEquals("author last name", expectedDocument.authors.get(0).lastName, actualDocument.authors.get(0).lastName);
+
+        // ...AND the rest are skipped
+        assertNull("abstract", actualDocument.abstractString);
+        assertNull("year", actualDocument.year);
+        assertTrue("websites", actualDocument.websites.isNull());
+        assertTrue("identifiers", actualDocument.identifiers.isNull());
+    }
+
     @SmallTest
     public void test_parseFolder()
             throws IOException, NoSuchMethodException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, JSONException, ParseException {
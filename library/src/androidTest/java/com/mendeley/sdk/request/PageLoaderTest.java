@@ -0,0 +1,137 @@
+package com.mendeley.sdk.request;
+
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.testUtils.FakeRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class PageLoaderTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_loadAll_loadsManyPagesCompletingStraightAway_withoutOverflowingTheStack() throws Exception {
+        // GIVEN many pages, each one completing straight away
+        final int pageCount = 20000;
+        final PageLoader.NextPageFactory<Integer> nextPages = new PageLoader.NextPageFactory<Integer>() {
+            @Override
+            public Request<List<Integer>> newNextPageRequest(Uri next) {
+                return createPage(Integer.parseInt(next.getQueryParameter("page")), pageCount);
+            }
+        };
+
+        // WHEN loading all of them
+        final List<Integer> items = PageLoader.loadAll(createPage(0, pageCount), nextPages).getResult();
+
+        // THEN the items of all the pages are returned in order
+        assertEquals("Items", pageCount, items.size());
+        assertEquals("First item", 0, items.get(0).intValue());
+        assertEquals("Last item", pageCount - 1, items.get(pageCount - 1).intValue());
+    }
+
+    @SmallTest
+    public void test_loadAll_notifiesEachPage_andLoadsTheNext_whenAPageCompletesLater() throws Exception {
+        // GIVEN a first page completing later, followed by a page completing straight away
+        final PendingPageRequest firstPage = new PendingPageRequest();
+        final List<List<Integer>> pagesNotified = new ArrayList<List<Integer>>();
+        final RequestFuture<List<Integer>> future = PageLoader.loadAll(firstPage, new PageLoader.NextPageFactory<Integer>() {
+            @Override
+            public Request<List<Integer>> newNextPageRequest(Uri next) {
+                return FakeRequest.succeeding(Arrays.asList(3, 4), null, null);
+            }
+        }, new PageLoader.PageListener<Integer>() {
+            @Override
+            public void onPage(Request<List<Integer>>.Response page) {
+                pagesNotified.add(page.resource);
+            }
+        });
+
+        // WHEN the first page completes
+        assertFalse("Done before the first page", future.isDone());
+        firstPage.complete(Arrays.asList(1, 2), Uri.parse("https://api.mendeley.com/items?page=1"));
+
+        // THEN both pages are notified, and the items of both are returned
+        assertEquals("Pages notified", Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)), pagesNotified);
+        assertEquals("Items", Arrays.asList(1, 2, 3, 4), future.getResult());
+    }
+
+    @SmallTest
+    public void test_loadAll_fails_whenAPageFails() {
+        // GIVEN a first page followed by a failing page
+        final Request<List<Integer>> firstPage = FakeRequest.succeeding(Arrays.asList(1, 2), null, Uri.parse("https://api.mendeley.com/items?page=1"));
+        final PageLoader.NextPageFactory<Integer> nextPages = new PageLoader.NextPageFactory<Integer>() {
+            @Override
+            public Request<List<Integer>> newNextPageRequest(Uri next) {
+                return FakeRequest.failing(new MendeleyException("Page failed"));
+            }
+        };
+
+        // WHEN loading all of them
+        try {
+            PageLoader.loadAll(firstPage, nextPages).getResult();
+
+            // THEN the load fails
+            fail("Load expected to fail");
+        } catch (MendeleyException expected) {
+        }
+    }
+
+    @SmallTest
+    public void test_cancel_cancelsThePageBeingLoaded() {
+        // GIVEN a load waiting for its first page
+        final PendingPageRequest firstPage = new PendingPageRequest();
+        final RequestFuture<List<Integer>> future = PageLoader.loadAll(firstPage, new PageLoader.NextPageFactory<Integer>() {
+            @Override
+            public Request<List<Integer>> newNextPageRequest(Uri next) {
+                throw new UnsupportedOperationException("Only one page expected");
+            }
+        });
+
+        // WHEN cancelling it
+        future.cancel(false);
+
+        // THEN the request of the page is cancelled too
+        assertTrue("Page cancelled", firstPage.future.isCancelled());
+    }
+
+    private static Request<List<Integer>> createPage(int page, int pageCount) {
+        final Uri next = page + 1 < pageCount ? Uri.parse("https://api.mendeley.com/items?page=" + (page + 1)) : null;
+        return FakeRequest.succeeding(Collections.singletonList(page), null, next);
+    }
+
+    /**
+     * Page whose request completes only when the test says so.
+     */
+    private static class PendingPageRequest extends Request<List<Integer>> {
+        private RequestFuture<Response> future;
+
+        PendingPageRequest() {
+            super(null);
+        }
+
+        @Override
+        protected Response doRun() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void doRunAsync(RequestFuture<Response> future, Executor executor) {
+            this.future = future;
+        }
+
+        void complete(List<Integer> items, Uri next) {
+            future.complete(new Response(items, (Date) null, next));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mendeley.sdk.request;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+public class RequestBodyCompressorTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_onBodyCompressed_raisesTheThreshold_whenBodiesCompressBadly() {
+        // GIVEN a compressor
+        final RequestBodyCompressor compressor = new RequestBodyCompressor();
+        final int thresholdBefore = compressor.getThreshold();
+
+        // WHEN a body barely compresses
+        compressor.onBodyCompressed(1000, 950);
+
+        // THEN the threshold grows and the saved bytes are accounted
+        assertEquals("Threshold", Math.min(RequestBodyCompressor.MAX_THRESHOLD, thresholdBefore * 2), compressor.getThreshold());
+        assertEquals("Bytes saved", 50, compressor.getBytesSaved());
+    }
+
+    @SmallTest
+    public void test_onBodyCompressed_lowersTheThreshold_whenBodiesCompressWell() {
+        // GIVEN a compressor
+        final RequestBodyCompressor compressor = new RequestBodyCompressor();
+        final int thresholdBefore = compressor.getThreshold();
+
+        // WHEN a body compresses well
+        compressor.onBodyCompressed(1000, 200);
+
+        // THEN the threshold shrinks, but never under the minimum
+        assertEquals("Threshold", Math.max(RequestBodyCompressor.MIN_THRESHOLD, thresholdBefore / 2), compressor.getThreshold());
+    }
+
+    @SmallTest
+    public void test_compress_writesTheGzipOfTheBody_accountingItOnce() throws IOException {
+        // GIVEN a body big enough to be compressed
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"title\":\"Document ").append(i).append("\",\"type\":\"journal\"},");
+        }
+        json.append("{}]");
+        final byte[] original = json.toString().getBytes("UTF-8");
+        final RequestBodyCompressor compressor = new RequestBodyCompressor();
+        final RequestBody body = RequestBody.create(MediaType.parse("application/json"), original);
+        assertTrue("Should compress", compressor.shouldCompress(body));
+
+        // WHEN writing the compressed body twice, as a retried call does
+        final RequestBody compressed = compressor.compress(body);
+        compressed.writeTo(new Buffer());
+        final Buffer written = new Buffer();
+        compressed.writeTo(written);
+
+        // THEN it's accounted once, and the written bytes decompress to the original body
+        assertEquals("Compressed bodies", 1, compressor.getCompressedBodiesCount());
+        assertEquals("Bytes saved", original.length - written.size(), compressor.getBytesSaved());
+        assertTrue("Decompressed body", Arrays.equals(original, gunzip(written.inputStream())));
+    }
+
+    private static byte[] gunzip(InputStream compressed) throws IOException {
+        final InputStream inputStream = new GZIPInputStream(compressed);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+
+}
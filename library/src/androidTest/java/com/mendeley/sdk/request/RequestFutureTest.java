@@ -0,0 +1,160 @@
+package com.mendeley.sdk.request;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.exceptions.RequestTimeoutException;
+import com.mendeley.sdk.exceptions.UserCancelledException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class RequestFutureTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_map_transformsTheResult() throws MendeleyException {
+        // GIVEN a pending future
+        final RequestFuture<Integer> future = new RequestFuture<Integer>();
+
+        // WHEN mapping it and completing it
+        final RequestFuture<String> mapped = future.map(new RequestFuture.Function<Integer, String>() {
+            @Override
+            public String apply(Integer input) {
+                return "value-" + input;
+            }
+        });
+        future.complete(3);
+
+        // THEN the mapped future has the transformed value
+        assertEquals("Mapped result", "value-3", mapped.getResult());
+    }
+
+    @SmallTest
+    public void test_then_chainsDependentFutures() throws MendeleyException {
+        // GIVEN a future whose result is needed to launch a second operation
+        final RequestFuture<Integer> first = new RequestFuture<Integer>();
+        final RequestFuture<Integer> second = new RequestFuture<Integer>();
+
+        final RequestFuture<Integer> chained = first.then(new RequestFuture.AsyncFunction<Integer, Integer>() {
+            @Override
+            public RequestFuture<Integer> apply(Integer input) {
+                return second;
+            }
+        });
+
+        // WHEN both complete
+        first.complete(1);
+        assertFalse("Chained future waits for the second operation", chained.isDone());
+        second.complete(2);
+
+        // THEN the chained future has the result of the second one
+        assertEquals("Chained result", Integer.valueOf(2), chained.getResult());
+    }
+
+    @SmallTest
+    public void test_allOf_keepsTheOrderOfTheResults() throws MendeleyException {
+        // GIVEN some futures
+        final RequestFuture<String> a = new RequestFuture<String>();
+        final RequestFuture<String> b = new RequestFuture<String>();
+        final RequestFuture<List<String>> all = RequestFuture.allOf(Arrays.asList(a, b));
+
+        // WHEN they complete in reverse order
+        b.complete("b");
+        a.complete("a");
+
+        // THEN the aggregate has the results in the original order
+        assertEquals("Aggregated results", Arrays.asList("a", "b"), all.getResult());
+    }
+
+    @SmallTest
+    public void test_allOf_failsAndCancelsTheRest_whenOneFails() {
+        // GIVEN some futures
+        final RequestFuture<String> a = new RequestFuture<String>();
+        final RequestFuture<String> b = new RequestFuture<String>();
+        final RequestFuture<List<String>> all = RequestFuture.allOf(Arrays.asList(a, b));
+
+        // WHEN one fails
+        a.fail(new MendeleyException("failed"));
+
+        // THEN the aggregate fails and the other one is cancelled
+        try {
+            all.getResult();
+            fail("Aggregate expected to fail");
+        } catch (MendeleyException expected) {
+        }
+        assertTrue("Remaining future cancelled", b.isCancelled());
+    }
+
+    @SmallTest
+    public void test_zip_combinesTheResults() throws MendeleyException {
+        // GIVEN two futures of different types
+        final RequestFuture<String> a = RequestFuture.succeeded("a");
+        final RequestFuture<Integer> b = RequestFuture.succeeded(1);
+
+        // WHEN zipping them
+        final RequestFuture<String> zipped = RequestFuture.zip(a, b, new RequestFuture.Combiner<String, Integer, String>() {
+            @Override
+            public String combine(String first, Integer second) {
+                return first + second;
+            }
+        });
+
+        // THEN the results are combined
+        assertEquals("Zipped result", "a1", zipped.getResult());
+    }
+
+    @SmallTest
+    public void test_cancel_propagatesToTheFuturesItDependsOn() {
+        // GIVEN a future derived from another one
+        final RequestFuture<Integer> source = new RequestFuture<Integer>();
+        final RequestFuture<Integer> derived = source.map(new RequestFuture.Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input;
+            }
+        });
+
+        // WHEN the derived one is cancelled
+        derived.cancel(true);
+
+        // THEN the source is cancelled too
+        assertTrue("Source future cancelled", source.isCancelled());
+    }
+
+    @SmallTest
+    public void test_getResult_throwsUserCancelledException_whenCancelled() throws MendeleyException {
+        // GIVEN a cancelled future
+        final RequestFuture<Integer> future = new RequestFuture<Integer>();
+        future.cancel(true);
+
+        // WHEN getting its result
+        try {
+            future.getResult();
+            fail("UserCancelledException expected");
+        } catch (UserCancelledException expected) {
+        }
+    }
+
+    @SmallTest
+    public void test_withTimeout_failsAndCancelsTheSource_whenItTakesTooLong() throws InterruptedException {
+        // GIVEN a future that never completes
+        final RequestFuture<Integer> source = new RequestFuture<Integer>();
+
+        // WHEN waiting for it with a timeout
+        final RequestFuture<Integer> timed = source.withTimeout(50, TimeUnit.MILLISECONDS);
+
+        // THEN it fails with a timeout and the source is cancelled
+        try {
+            timed.getResult();
+            fail("RequestTimeoutException expected");
+        } catch (RequestTimeoutException expected) {
+        } catch (MendeleyException e) {
+            fail("Unexpected exception " + e);
+        }
+        assertTrue("Source future cancelled", source.isCancelled());
+    }
+}
@@ -7,6 +7,7 @@ import android.test.suitebuilder.annotation.LargeTest;
 import android.test.suitebuilder.annotation.SmallTest;
 
 import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
 import com.mendeley.sdk.exceptions.MendeleyException;
 import com.mendeley.sdk.testUtils.MutableReference;
 
@@ -14,6 +15,7 @@ import java.util.Date;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RequestTest extends AndroidTestCase {
 
@@ -246,4 +248,71 @@ public class RequestTest extends AndroidTestCase {
         assertTrue("Cancelled callback invoked", callbackCalled.value);
     }
 
+    @SmallTest
+    public void test_runFuture_completesWithTheResponse() throws MendeleyException {
+        // GIVEN a request that returns the thread it run in
+        final Request<Thread> request = new Request<Thread>(null) {
+            @Override
+            public Response doRun() throws MendeleyException {
+                return new Response(Thread.currentThread(), new Date(), null);
+            }
+        };
+
+        // WHEN it runs as a future
+        final Thread actualThread = request.runFuture().getResult().resource;
+
+        // THEN it has not run in the current thread
+        assertNotSame("Running thread of the request", Thread.currentThread(), actualThread);
+    }
+
+    @SmallTest
+    public void test_runFuture_cancellingTheFuture_cancelsTheRequest() throws InterruptedException {
+        // GIVEN a request that runs until cancelled
+        final Request<Void> request = new Request<Void>(null) {
+            @Override
+            public Response doRun() throws MendeleyException {
+                try {
+                    while (!isCancelled()) {
+                        Thread.sleep(100);
+                    }
+                } catch (Exception ignored) {
+                }
+                return null;
+            }
+        };
+
+        // WHEN its future is cancelled
+        final RequestFuture<Request<Void>.Response> future = request.runFuture();
+        future.cancel(true);
+
+        // THEN the request is cancelled too
+        assertTrue("Request cancelled", request.isCancelled());
+    }
+
+    @SmallTest
+    public void test_cancel_abortsTheBlockingOperationOnce() {
+        final AtomicInteger abortCount = new AtomicInteger();
+
+        // GIVEN a request able to abort its blocking operation
+        final Request<Void> request = new Request<Void>(null) {
+            @Override
+            public Response doRun() throws MendeleyException {
+                return null;
+            }
+
+            @Override
+            protected void onCancelled() {
+                abortCount.incrementAndGet();
+            }
+        };
+
+        // WHEN it is cancelled several times
+        request.cancel();
+        request.cancel();
+
+        // THEN the operation is aborted only once
+        assertTrue("Request cancelled", request.isCancelled());
+        assertEquals("Times the operation has been aborted", 1, abortCount.get());
+    }
+
 }
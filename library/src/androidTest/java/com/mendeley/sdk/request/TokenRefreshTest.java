@@ -0,0 +1,61 @@
+package com.mendeley.sdk.request;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.testUtils.InMemoryAuthTokenManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenRefreshTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_refreshExpiredToken_refreshesOnce_whenSeveralRequestsFindTheSameTokenExpired() throws Exception {
+        // GIVEN several requests that found the same access token expired
+        final InMemoryAuthTokenManager authTokenManager = new InMemoryAuthTokenManager();
+        authTokenManager.saveTokens("expired", "refresh", "Bearer", 0);
+        final AtomicInteger refreshes = new AtomicInteger();
+        final Request<Void> refreshRequest = new Request<Void>(null) {
+            @Override
+            protected Response doRun() throws MendeleyException {
+                refreshes.incrementAndGet();
+                authTokenManager.saveTokens("refreshed", "new refresh", "Bearer", 3600);
+                return new Response(null, (Date) null, null);
+            }
+        };
+
+        // WHEN all of them refresh it at the same time
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        AuthorizedRequest.refreshExpiredToken(authTokenManager, "expired", refreshRequest);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // THEN the token is refreshed only once
+        assertEquals("Refreshes", 1, refreshes.get());
+        assertEquals("Access token", "refreshed", authTokenManager.getAccessToken());
+    }
+}
@@ -5,6 +5,7 @@ import android.os.Environment;
 import android.test.suitebuilder.annotation.SmallTest;
 
 import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.FileDownloadException;
 import com.mendeley.sdk.model.Document;
 import com.mendeley.sdk.model.File;
 import com.mendeley.sdk.request.SignedInTest;
@@ -222,6 +223,66 @@ public class FileRequestTest extends SignedInTest {
         }
     }
 
+    public void test_getFileBinary_withExpectedHash_receivesTheCorrectFile() throws Exception {
+        java.io.File downloadedBinaryFile = null;
+        try {
+            // GIVEN a file
+            final Document document = getTestAccountSetupUtils().setupDocument(createDocument("doc title"));
+            String fileName = "android.pdf";
+            File postingFile = createFile(document.id);
+
+            // ...that has been posted
+            final File returnedFile = getRequestFactory().newPostFileWithBinaryRequest(postingFile.mimeType, document.id, getContext().getAssets().open(fileName), fileName).run().resource;
+
+            downloadedBinaryFile = new java.io.File(Environment.getExternalStorageDirectory(), "downloadedFile.pdf");
+
+            // WHEN we download it verifying its hash
+            final FilesEndpoint.GetFileBinaryRequest request = getRequestFactory().newGetFileBinaryRequest(returnedFile.id, downloadedBinaryFile);
+            request.setExpectedFileHash(returnedFile.fileHash);
+            long downloaded = request.run().resource;
+
+            // THEN we receive correct file
+            assertEquals("file length matches", 34355, downloadedBinaryFile.length());
+            assertEquals("file length matches", 34355, downloaded);
+        } finally {
+            if (downloadedBinaryFile != null && downloadedBinaryFile.exists()) {
+                downloadedBinaryFile.delete();
+            }
+        }
+    }
+
+    public void test_getFileBinary_withWrongHash_failsWithoutCreatingTheFile() throws Exception {
+        java.io.File downloadedBinaryFile = null;
+        try {
+            // GIVEN a file
+            final Document document = getTestAccountSetupUtils().setupDocument(createDocument("doc title"));
+            String fileName = "android.pdf";
+            File postingFile = createFile(document.id);
+
+            // ...that has been posted
+            final File returnedFile = getRequestFactory().newPostFileWithBinaryRequest(postingFile.mimeType, document.id, getContext().getAssets().open(fileName), fileName).run().resource;
+
+            downloadedBinaryFile = new java.io.File(Environment.getExternalStorageDirectory(), "downloadedFile.pdf");
+
+            // WHEN we download it expecting a different hash
+            final FilesEndpoint.GetFileBinaryRequest request = getRequestFactory().newGetFileBinaryRequest(returnedFile.id, downloadedBinaryFile);
+            request.setExpectedFileHash("0000000000000000000000000000000000000000");
+            try {
+                request.run();
+                fail("download with wrong hash succeeded");
+            } catch (FileDownloadException e) {
+                // expected
+            }
+
+            // THEN the file is not created
+            assertFalse("file not created", downloadedBinaryFile.exists());
+        } finally {
+            if (downloadedBinaryFile != null && downloadedBinaryFile.exists()) {
+                downloadedBinaryFile.delete();
+            }
+        }
+    }
+
     public void test_deleteFile_removesTheFileFromServer() throws Exception {
         // GIVEN some files
         final Document document = getTestAccountSetupUtils().setupDocument(createDocument("doc title"));
@@ -0,0 +1,149 @@
+package com.mendeley.sdk.sync;
+
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.request.endpoint.AnnotationsEndpoint;
+import com.mendeley.sdk.testUtils.FakeRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class AnnotationSyncTest extends AndroidTestCase {
+
+    private static final Date FIRST_SYNC_DATE = new Date(1000000000000L);
+    private static final Date SECOND_SYNC_DATE = new Date(1000000060000L);
+    private static final Uri NEXT_PAGE = Uri.parse("https://api.mendeley.com/annotations?page=2");
+
+    private final InMemoryAnnotationStore store = new InMemoryAnnotationStore();
+    private final List<AnnotationsEndpoint.AnnotationRequestParameters> queries = new ArrayList<AnnotationsEndpoint.AnnotationRequestParameters>();
+
+    // what the server returns: all the annotations split in two pages, or the changes
+    private List<Annotation> firstPage = Collections.emptyList();
+    private List<Annotation> secondPage;
+    private boolean secondPageFails;
+    private List<Annotation> modified = Collections.emptyList();
+    private List<Annotation> deleted = Collections.emptyList();
+    private Date serverDate = FIRST_SYNC_DATE;
+
+    private final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(null, null) {
+        @Override
+        public Request<List<Annotation>> newGetAnnotationsRequest(AnnotationsEndpoint.AnnotationRequestParameters parameters) {
+            queries.add(parameters);
+            if (parameters.modifiedSince != null) {
+                return FakeRequest.succeeding(modified, serverDate, secondPageFails ? NEXT_PAGE : null);
+            }
+            if (parameters.deletedSince != null) {
+                return FakeRequest.succeeding(deleted, serverDate, null);
+            }
+            return FakeRequest.succeeding(firstPage, serverDate, secondPage != null ? NEXT_PAGE : null);
+        }
+
+        @Override
+        public Request<List<Annotation>> newGetAnnotationsRequest(Uri url) {
+            assertEquals("Next page", NEXT_PAGE, url);
+            if (secondPageFails) {
+                return FakeRequest.failing(new MendeleyException("Page failed"));
+            }
+            return FakeRequest.succeeding(secondPage, serverDate, null);
+        }
+    };
+
+    @SmallTest
+    public void test_syncDocument_fetchesAllThePages_inTheFirstSync() throws MendeleyException {
+        // GIVEN a document never synced, whose annotations are in two pages
+        firstPage = Arrays.asList(createAnnotation("a1"), createAnnotation("a2"));
+        secondPage = Arrays.asList(createAnnotation("a3"));
+
+        // WHEN syncing it
+        final AnnotationSync.Changes changes = new AnnotationSync(requestsFactory, store).syncDocument("doc1").getResult();
+
+        // THEN all the annotations are stored, with the server date as watermark
+        final String scope = AnnotationSync.getDocumentScope("doc1");
+        assertTrue("Full sync", changes.full);
+        assertEquals("Annotations", Arrays.asList("a1", "a2", "a3"), getIds(store.getAnnotations(scope)));
+        assertEquals("Watermark", FIRST_SYNC_DATE, store.getWatermark(scope));
+        assertEquals("Page size", Integer.valueOf(500), queries.get(0).limit);
+    }
+
+    @SmallTest
+    public void test_syncDocument_fetchesTheChangesSinceTheWatermark_afterTheFirstSync() throws MendeleyException {
+        // GIVEN a document already synced, with an annotation modified since then
+        final String scope = AnnotationSync.getDocumentScope("doc1");
+        store.replace(scope, Arrays.asList(createAnnotation("a1"), createAnnotation("a2")), FIRST_SYNC_DATE);
+        modified = Arrays.asList(createAnnotation("a2"), createAnnotation("a3"));
+        serverDate = SECOND_SYNC_DATE;
+
+        // WHEN syncing it again
+        final AnnotationSync.Changes changes = new AnnotationSync(requestsFactory, store).syncDocument("doc1").getResult();
+
+        // THEN only the changes since a second before the watermark are queried and merged
+        final Date since = new Date(FIRST_SYNC_DATE.getTime() - 1000);
+        assertFalse("Full sync", changes.full);
+        assertEquals("Queries", 2, queries.size());
+        assertEquals("Modified since", since, queries.get(0).modifiedSince);
+        assertEquals("Deleted since", since, queries.get(1).deletedSince);
+        assertEquals("Annotations", Arrays.asList("a1", "a2", "a3"), getIds(store.getAnnotations(scope)));
+        assertEquals("Watermark", SECOND_SYNC_DATE, store.getWatermark(scope));
+    }
+
+    @SmallTest
+    public void test_syncDocument_removesTheDeletedAnnotations_fromTheStore() throws MendeleyException {
+        // GIVEN a document already synced, with an annotation deleted since then
+        final String scope = AnnotationSync.getDocumentScope("doc1");
+        store.replace(scope, Arrays.asList(createAnnotation("a1"), createAnnotation("a2")), FIRST_SYNC_DATE);
+        deleted = Arrays.asList(createAnnotation("a1"));
+        serverDate = SECOND_SYNC_DATE;
+
+        // WHEN syncing it again
+        final AnnotationSync.Changes changes = new AnnotationSync(requestsFactory, store).syncDocument("doc1").getResult();
+
+        // THEN the deleted annotation is removed from the store
+        assertEquals("Deleted ids", Arrays.asList("a1"), changes.deletedIds);
+        assertEquals("Annotations", Arrays.asList("a2"), getIds(store.getAnnotations(scope)));
+    }
+
+    @SmallTest
+    public void test_syncDocument_leavesTheWatermarkUnchanged_whenAPageFails() {
+        // GIVEN a document already synced, whose changes fail to load after the first page
+        final String scope = AnnotationSync.getDocumentScope("doc1");
+        store.replace(scope, Arrays.asList(createAnnotation("a1")), FIRST_SYNC_DATE);
+        modified = Arrays.asList(createAnnotation("a2"));
+        secondPageFails = true;
+        serverDate = SECOND_SYNC_DATE;
+
+        // WHEN syncing it again
+        try {
+            new AnnotationSync(requestsFactory, store).syncDocument("doc1").getResult();
+
+            // THEN the sync fails, without moving the watermark past the missing changes
+            fail("Sync expected to fail");
+        } catch (MendeleyException expected) {
+        }
+        assertEquals("Watermark", FIRST_SYNC_DATE, store.getWatermark(scope));
+        assertEquals("Annotations", Arrays.asList("a1"), getIds(store.getAnnotations(scope)));
+    }
+
+    private static Annotation createAnnotation(String id) {
+        return new Annotation.Builder()
+                .setId(id)
+                .build();
+    }
+
+    private static List<String> getIds(List<Annotation> annotations) {
+        final List<String> ids = new ArrayList<String>(annotations.size());
+        for (Annotation annotation : annotations) {
+            ids.add(annotation.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,167 @@
+package com.mendeley.sdk.sync;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.HttpResponseException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.testUtils.FakeRequest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class DocumentImporterTest extends AndroidTestCase {
+
+    private File checkpointFile;
+    private ImportCheckpoint checkpoint;
+
+    private final List<String> documentsPosted = new ArrayList<String>();
+    private final List<String> foldersLinked = new ArrayList<String>();
+
+    private final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(null, null) {
+        @Override
+        public Request<Document> newPostDocumentRequest(Document document) {
+            documentsPosted.add(document.title);
+            if (document.title.startsWith("failing")) {
+                return FakeRequest.failing(new HttpResponseException(400, "Bad Request", "documents"));
+            }
+            return FakeRequest.succeeding(new Document.Builder(document).setId("doc-" + document.title).build());
+        }
+
+        @Override
+        public Request<Void> newPostDocumentToFolderRequest(String folderId, String documentId) {
+            foldersLinked.add(folderId + "/" + documentId);
+            return FakeRequest.succeeding(null);
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        checkpointFile = File.createTempFile("import", ".log");
+        checkpointFile.delete();
+        checkpoint = new ImportCheckpoint(checkpointFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        checkpoint.clear();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_importAll_createsTheDocuments_andAddsThemToTheirFolders() throws MendeleyException {
+        // GIVEN items, one of them in a folder
+        final List<DocumentImporter.Item> items = Arrays.asList(
+                createItem("record-1", "title1", Arrays.asList("folder1")),
+                createItem("record-2", "title2", null));
+
+        // WHEN importing them
+        final DocumentImporter.Result result = new DocumentImporter(requestsFactory, checkpoint).importAll(items.iterator()).getResult();
+
+        // THEN the documents are created, and added to their folders
+        assertTrue("Complete", result.isComplete());
+        assertEquals("Document of record 1", "doc-title1", result.imported.get("record-1"));
+        assertEquals("Document of record 2", "doc-title2", result.imported.get("record-2"));
+        assertEquals("Folders linked", Arrays.asList("folder1/doc-title1"), foldersLinked);
+        assertEquals("Saved document of record 1", "doc-title1", checkpoint.getDocumentId("record-1"));
+    }
+
+    @SmallTest
+    public void test_importAll_skipsTheSteps_doneByAPreviousRun() throws MendeleyException {
+        // GIVEN an item whose document was created by a previous run, but not added to its folder
+        checkpoint.setDocumentCreated("record-1", "doc-previous");
+
+        // WHEN importing it again
+        final DocumentImporter.Result result = new DocumentImporter(requestsFactory, checkpoint)
+                .importAll(Collections.singletonList(createItem("record-1", "title1", Arrays.asList("folder1"))).iterator())
+                .getResult();
+
+        // THEN the document is not created again, and only the missing step is done
+        assertEquals("Documents posted", 0, documentsPosted.size());
+        assertEquals("Folders linked", Arrays.asList("folder1/doc-previous"), foldersLinked);
+        assertEquals("Document of record 1", "doc-previous", result.imported.get("record-1"));
+    }
+
+    @SmallTest
+    public void test_importAll_recordsTheFailingItems_andImportsTheOthers() throws MendeleyException {
+        // GIVEN items, one of them failing
+        final List<DocumentImporter.Item> items = Arrays.asList(
+                createItem("record-1", "failing", null),
+                createItem("record-2", "title2", null));
+
+        // WHEN importing them
+        final DocumentImporter.Result result = new DocumentImporter(requestsFactory, checkpoint, 1).importAll(items.iterator()).getResult();
+
+        // THEN the failure is recorded, and the other item is imported
+        assertFalse("Complete", result.isComplete());
+        assertEquals("Failed items", Collections.singleton("record-1"), result.failures.keySet());
+        assertEquals("Imported items", Collections.singleton("record-2"), result.imported.keySet());
+    }
+
+    @SmallTest
+    public void test_importAll_fails_whenTheIteratorThrows() {
+        // GIVEN items whose iterator throws after the first one
+        final Iterator<DocumentImporter.Item> items = new Iterator<DocumentImporter.Item>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public DocumentImporter.Item next() {
+                if (count++ > 0) {
+                    throw new IllegalStateException("Cannot read the record");
+                }
+                return createItem("record-1", "title1", null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        // WHEN importing them
+        try {
+            new DocumentImporter(requestsFactory, checkpoint).importAll(items).getResult();
+
+            // THEN the import fails rather than never completing, after importing the first item
+            fail("Import expected to fail");
+        } catch (MendeleyException expected) {
+        }
+        assertEquals("Saved document of record 1", "doc-title1", checkpoint.getDocumentId("record-1"));
+    }
+
+    @SmallTest
+    public void test_newItem_rejectsKeysWithLineBreaks() {
+        // GIVEN a key with a carriage return
+
+        // WHEN creating an item with it
+        try {
+            createItem("record\r1", "title1", null);
+
+            // THEN it is rejected, as it couldn't be saved in the checkpoint
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static DocumentImporter.Item createItem(String key, String title, List<String> folderIds) {
+        final Document document = new Document.Builder()
+                .setType("journal")
+                .setTitle(title)
+                .build();
+        return new DocumentImporter.Item(key, document, null, null, null, folderIds);
+    }
+}
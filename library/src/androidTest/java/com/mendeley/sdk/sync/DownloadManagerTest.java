@@ -0,0 +1,106 @@
+package com.mendeley.sdk.sync;
+
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.cache.FileCache;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.request.JsonParser;
+import com.mendeley.sdk.testUtils.InMemoryAuthTokenManager;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DownloadManagerTest extends AndroidTestCase {
+
+    private java.io.File directory;
+    private SharedPreferences preferences;
+
+    // without an access token, the requests of the downloads fail straight away
+    private final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(new InMemoryAuthTokenManager(), null);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = java.io.File.createTempFile("downloads", "");
+        directory.delete();
+        preferences = getContext().getSharedPreferences("test_downloads", Context.MODE_PRIVATE);
+        preferences.edit().clear().commit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        preferences.edit().clear().commit();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_new_finishesManyRestoredDownloads_whoseRequestsFailStraightAway() throws Exception {
+        // GIVEN many downloads saved by a previous manager
+        final SharedPreferences.Editor editor = preferences.edit();
+        for (int i = 0; i < 20000; i++) {
+            final File file = createFile("file" + i);
+            final JSONObject json = JsonParser.fileToJson(file);
+            json.put(DownloadManager.KEY_PRIORITY, DownloadManager.Priority.BULK.name());
+            editor.putString(file.fileHash, json.toString());
+        }
+        editor.commit();
+
+        // WHEN creating a new manager, which runs them all
+        final DownloadManager manager = new DownloadManager(requestsFactory, new FileCache(directory, 1000), preferences, DownloadManager.DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+
+        // THEN all of them finish, without overflowing the stack
+        assertEquals("Pending downloads", 0, manager.getPendingCount());
+    }
+
+    @SmallTest
+    public void test_enqueue_completesTheFuture_andNotifiesTheProgress_withoutHoldingTheLock() throws Exception {
+        // GIVEN a manager with a progress listener
+        final DownloadManager manager = new DownloadManager(requestsFactory, new FileCache(directory, 1000), preferences, DownloadManager.DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+        final List<Boolean> callsUnderLock = new ArrayList<Boolean>();
+        manager.setProgressListener(new DownloadManager.ProgressListener() {
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                callsUnderLock.add(Thread.holdsLock(manager));
+            }
+        });
+
+        // WHEN enqueuing a download whose request fails straight away
+        final RequestFuture<java.io.File> future = manager.enqueue(createFile("file"), DownloadManager.Priority.INTERACTIVE);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                callsUnderLock.add(Thread.holdsLock(manager));
+            }
+        });
+
+        // THEN the download fails, and neither the listener nor the future are called under the lock
+        assertTrue("Download done", future.isDone());
+        assertFalse("Download cancelled", future.isCancelled());
+        assertFalse("Calls", callsUnderLock.isEmpty());
+        assertFalse("Called under the lock", callsUnderLock.contains(true));
+    }
+
+    private static File createFile(String id) {
+        return new File.Builder()
+                .setId(id)
+                .setFileHash(hashOf(id))
+                .setFileSize(100)
+                .build();
+    }
+
+    private static String hashOf(String id) {
+        final StringBuilder hash = new StringBuilder();
+        for (char c : id.toCharArray()) {
+            hash.append(Integer.toHexString(c));
+        }
+        return hash.toString();
+    }
+}
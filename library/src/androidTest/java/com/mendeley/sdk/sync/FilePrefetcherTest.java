@@ -0,0 +1,117 @@
+package com.mendeley.sdk.sync;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.cache.FileCache;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.index.FolderMembershipIndex;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.model.ReadPosition;
+import com.mendeley.sdk.testUtils.FakeRequest;
+import com.mendeley.sdk.testUtils.InMemoryAuthTokenManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+public class FilePrefetcherTest extends AndroidTestCase {
+
+    private final List<File> files = Arrays.asList(
+            createFile("file1", "doc1"),
+            createFile("file2", "doc2"),
+            createFile("file3", "doc3"),
+            createFile("file4", "doc4"));
+
+    @SmallTest
+    public void test_rank_ranksTheMostRecentlyReadFilesFirst() {
+        // GIVEN files read at different times
+        final List<ReadPosition> recentlyRead = Arrays.asList(
+                createReadPosition("file1", 1000),
+                createReadPosition("file3", 3000),
+                createReadPosition("file2", 2000));
+
+        // WHEN ranking the files
+        final List<File> ranked = FilePrefetcher.rank(recentlyRead, files, null);
+
+        // THEN the most recently read come first, and the unrelated ones are left out
+        assertEquals("Ranking", Arrays.asList("file3", "file2", "file1"), idsOf(ranked));
+    }
+
+    @SmallTest
+    public void test_rank_includesTheFilesOfDocumentsInTheSameFolders() {
+        // GIVEN one read file, whose document shares a folder with another one
+        final List<ReadPosition> recentlyRead = Arrays.asList(createReadPosition("file1", 1000));
+        final FolderMembershipIndex membershipIndex = new FolderMembershipIndex();
+        membershipIndex.setDocuments("folder", Arrays.asList("doc1", "doc4"));
+
+        // WHEN ranking the files
+        final List<File> ranked = FilePrefetcher.rank(recentlyRead, files, membershipIndex);
+
+        // THEN the file of the other document is ranked after the read one
+        assertEquals("Ranking", Arrays.asList("file1", "file4"), idsOf(ranked));
+    }
+
+    @SmallTest
+    public void test_prefetch_recordsTheFailedDownloads_andGoesOnWithTheOthers() throws MendeleyException {
+        // GIVEN two recently read files, whose downloads fail as there is no access token
+        final List<ReadPosition> recentlyRead = Arrays.asList(
+                createReadPosition("file1", 1000),
+                createReadPosition("file2", 2000));
+        final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(new InMemoryAuthTokenManager(), null) {
+            @Override
+            public Request<List<ReadPosition>> newGetRecentlyReadRequest(String groupId, String fileId, int limit) {
+                return FakeRequest.succeeding(recentlyRead);
+            }
+        };
+        final java.io.File directory = new java.io.File(System.getProperty("java.io.tmpdir"), "prefetch" + System.nanoTime());
+        final FilePrefetcher prefetcher = new FilePrefetcher(requestsFactory, new FileCache(directory, 100000), null);
+
+        // WHEN prefetching them
+        final FilePrefetcher.Result result = prefetcher.prefetch(files, 10, 100000).getResult();
+
+        // THEN both failures are recorded, and no temp file is left behind
+        assertEquals("Downloaded", 0, result.downloaded.size());
+        assertEquals("Failed", new HashSet<String>(Arrays.asList("file1", "file2")), result.failures.keySet());
+        final String[] leftFiles = new java.io.File(directory, "mendeley_file_cache").list();
+        assertTrue("Files left", leftFiles == null || leftFiles.length == 0);
+    }
+
+    private static File createFile(String id, String documentId) {
+        return new File.Builder()
+                .setId(id)
+                .setDocumentId(documentId)
+                .setFileHash(hashOf(id))
+                .setFileSize(1000)
+                .build();
+    }
+
+    private static String hashOf(String id) {
+        final StringBuilder hash = new StringBuilder();
+        for (char c : id.toCharArray()) {
+            hash.append(Integer.toHexString(c));
+        }
+        return hash.toString();
+    }
+
+    private static ReadPosition createReadPosition(String fileId, long time) {
+        return new ReadPosition.Builder()
+                .setFileId(fileId)
+                .setPage(1)
+                .setDate(new Date(time))
+                .build();
+    }
+
+    private static List<String> idsOf(List<File> files) {
+        final List<String> ids = new ArrayList<String>();
+        for (File file : files) {
+            ids.add(file.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mendeley.sdk.sync;
+
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.request.endpoint.FilesEndpoint;
+import com.mendeley.sdk.testUtils.FakeRequest;
+import com.mendeley.sdk.util.HashUtils;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class FileUploaderTest extends AndroidTestCase {
+
+    private java.io.File localFile;
+    private String localFileHash;
+
+    private final List<String> documentsQueried = new ArrayList<String>();
+    private final List<String> documentsPosted = new ArrayList<String>();
+    private PendingFilesRequest pendingQuery;
+
+    private final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(null, null) {
+        @Override
+        public Request<List<File>> newGetFilesRequest(FilesEndpoint.FileRequestParameters parameters) {
+            documentsQueried.add(parameters.documentId);
+            if (pendingQuery != null) {
+                return pendingQuery;
+            }
+            return FakeRequest.succeeding(Collections.<File>emptyList());
+        }
+
+        @Override
+        public Request<List<File>> newGetFilesRequest(Uri uri) {
+            throw new UnsupportedOperationException("Only one page of files expected");
+        }
+
+        @Override
+        public Request<File> newPostFileWithBinaryRequest(String contentType, String documentId, InputStream inputStream, String fileName) {
+            documentsPosted.add(documentId);
+            return FakeRequest.succeeding(createFile("posted-" + documentId, documentId, localFileHash));
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        localFile = java.io.File.createTempFile("upload", ".pdf");
+        final FileOutputStream out = new FileOutputStream(localFile);
+        try {
+            out.write("content of the file".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        final FileInputStream in = new FileInputStream(localFile);
+        try {
+            localFileHash = HashUtils.sha1(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        localFile.delete();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_upload_doesNotPost_whenTheDocumentHasAFileWithTheSameContent() throws Exception {
+        // GIVEN a document known to have a file with the content of the local file
+        final FileUploader uploader = new FileUploader(requestsFactory);
+        final File attached = createFile("file1", "doc1", localFileHash);
+        uploader.addKnownFiles(Arrays.asList(attached));
+
+        // WHEN uploading the local file to the document
+        final FileUploader.Result result = uploader.upload(localFile, "application/pdf", "doc1", "file.pdf").getResult();
+
+        // THEN the attached file is returned, without querying the server nor posting anything
+        assertSame("File", attached, result.file);
+        assertFalse("Uploaded", result.uploaded);
+        assertEquals("Documents queried", 0, documentsQueried.size());
+        assertEquals("Documents posted", 0, documentsPosted.size());
+    }
+
+    @SmallTest
+    public void test_upload_posts_whenOnlyAnotherDocumentHasAFileWithTheSameContent() throws Exception {
+        // GIVEN another document known to have a file with the content of the local file
+        final FileUploader uploader = new FileUploader(requestsFactory);
+        uploader.addKnownFiles(Arrays.asList(createFile("file1", "doc1", localFileHash)));
+
+        // WHEN uploading the local file to a document without files
+        final FileUploader.Result result = uploader.upload(localFile, "application/pdf", "doc2", "file.pdf").getResult();
+
+        // THEN the files of the document are queried, and the local file is posted to it
+        assertTrue("Uploaded", result.uploaded);
+        assertEquals("Document of the file", "doc2", result.file.documentId);
+        assertEquals("Documents queried", Arrays.asList("doc2"), documentsQueried);
+        assertEquals("Documents posted", Arrays.asList("doc2"), documentsPosted);
+    }
+
+    @SmallTest
+    public void test_upload_sharesTheUploadInProgress_ofTheSameContentToTheSameDocument() throws Exception {
+        // GIVEN an upload in progress, waiting for the files of its document
+        final FileUploader uploader = new FileUploader(requestsFactory);
+        pendingQuery = new PendingFilesRequest();
+        final RequestFuture<FileUploader.Result> first = uploader.upload(localFile, localFileHash, "application/pdf", "doc1", "file.pdf");
+
+        // WHEN uploading the same content to the same document
+        final RequestFuture<FileUploader.Result> second = uploader.upload(localFile, localFileHash, "application/pdf", "doc1", "file.pdf");
+
+        // THEN both share the same upload, which queries and posts once
+        assertSame("Shared upload", first, second);
+        pendingQuery.complete(Collections.<File>emptyList());
+        assertTrue("Uploaded", first.getResult().uploaded);
+        assertEquals("Documents queried", Arrays.asList("doc1"), documentsQueried);
+        assertEquals("Documents posted", Arrays.asList("doc1"), documentsPosted);
+    }
+
+    private static File createFile(String id, String documentId, String fileHash) {
+        return new File.Builder()
+                .setId(id)
+                .setDocumentId(documentId)
+                .setFileHash(fileHash)
+                .build();
+    }
+
+    /**
+     * Query of the files of a document that completes only when the test says so.
+     */
+    private static class PendingFilesRequest extends Request<List<File>> {
+        private RequestFuture<Response> future;
+
+        PendingFilesRequest() {
+            super(null);
+        }
+
+        @Override
+        protected Response doRun() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void doRunAsync(RequestFuture<Response> future, Executor executor) {
+            this.future = future;
+        }
+
+        void complete(List<File> files) {
+            future.complete(new Response(files, (Date) null, null));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mendeley.sdk.sync;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.index.FolderMembershipIndex;
+import com.mendeley.sdk.request.endpoint.FoldersEndpoint;
+import com.mendeley.sdk.testUtils.FakeRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FolderMembershipSyncTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_load_loadsManyFolders_whoseRequestsCompleteStraightAway() throws MendeleyException {
+        // GIVEN many folders, each one with one document, loaded by requests completing straight away
+        final List<String> folderIds = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            folderIds.add("folder" + i);
+        }
+        final FolderMembershipSync sync = new FolderMembershipSync(new Mendeley.RequestFactoryImpl(null, null) {
+            @Override
+            public Request<List<String>> newGetFolderDocumentsRequest(FoldersEndpoint.FolderRequestParameters parameters, String folderId) {
+                return FakeRequest.succeeding(Collections.singletonList("doc-" + folderId));
+            }
+        });
+
+        // WHEN loading them
+        final FolderMembershipIndex index = sync.load(folderIds).getResult();
+
+        // THEN all of them are in the index, without overflowing the stack
+        assertEquals("Documents of the last folder", Arrays.asList("doc-folder19999"), index.getDocumentIds("folder19999"));
+        assertEquals("Document count", folderIds.size(), index.getDocumentCount());
+    }
+}
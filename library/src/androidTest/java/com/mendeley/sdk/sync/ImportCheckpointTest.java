@@ -0,0 +1,81 @@
+package com.mendeley.sdk.sync;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class ImportCheckpointTest extends AndroidTestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("import", ".log");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_new_restoresTheStepsSaved_byAPreviousCheckpoint() {
+        // GIVEN a checkpoint with some steps done
+        final ImportCheckpoint previous = new ImportCheckpoint(file);
+        previous.setDocumentCreated("record-1", "doc-1");
+        previous.setFileUploaded("record-1");
+        previous.setLinked("record-1", "folder-1");
+        previous.setDocumentCreated("record-2", "doc-2");
+        previous.close();
+
+        // WHEN creating a new checkpoint on the same file
+        final ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+
+        // THEN the steps are restored
+        assertEquals("Document of record 1", "doc-1", checkpoint.getDocumentId("record-1"));
+        assertTrue("File of record 1 uploaded", checkpoint.isFileUploaded("record-1"));
+        assertTrue("Record 1 in folder 1", checkpoint.isLinked("record-1", "folder-1"));
+        assertFalse("Record 1 in folder 2", checkpoint.isLinked("record-1", "folder-2"));
+        assertEquals("Document of record 2", "doc-2", checkpoint.getDocumentId("record-2"));
+        assertFalse("File of record 2 uploaded", checkpoint.isFileUploaded("record-2"));
+        assertNull("Document of record 3", checkpoint.getDocumentId("record-3"));
+    }
+
+    @SmallTest
+    public void test_new_ignoresALineCutByTheDeathOfTheProcess() throws Exception {
+        // GIVEN a checkpoint whose last line was not completely written
+        final ImportCheckpoint previous = new ImportCheckpoint(file);
+        previous.setDocumentCreated("record-1", "doc-1");
+        previous.close();
+        final FileOutputStream outputStream = new FileOutputStream(file, true);
+        outputStream.write("record-2\tcreated\tdoc-".getBytes("UTF-8"));
+        outputStream.close();
+
+        // WHEN creating a new checkpoint on the same file
+        final ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+
+        // THEN the incomplete step is not restored
+        assertEquals("Document of record 1", "doc-1", checkpoint.getDocumentId("record-1"));
+        assertNull("Document of record 2", checkpoint.getDocumentId("record-2"));
+    }
+
+    @SmallTest
+    public void test_clear_forgetsAllTheSteps() {
+        // GIVEN a checkpoint with some steps done
+        final ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+        checkpoint.setDocumentCreated("record-1", "doc-1");
+
+        // WHEN clearing it
+        checkpoint.clear();
+
+        // THEN nothing is restored
+        assertNull("Document of record 1", checkpoint.getDocumentId("record-1"));
+        assertNull("Restored document of record 1", new ImportCheckpoint(file).getDocumentId("record-1"));
+    }
+}
@@ -0,0 +1,153 @@
+package com.mendeley.sdk.sync;
+
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.mendeley.sdk.Mendeley;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.model.ReadPosition;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class ReadPositionPublisherTest extends AndroidTestCase {
+
+    // long enough for the scheduled flushes not to happen during the tests
+    private static final long FLUSH_INTERVAL_MS = 60 * 60 * 1000;
+
+    private SharedPreferences preferences;
+    private final List<PendingPostRequest> posts = new ArrayList<PendingPostRequest>();
+
+    private final Mendeley.RequestFactoryImpl requestsFactory = new Mendeley.RequestFactoryImpl(null, null) {
+        @Override
+        public Request<ReadPosition> newPostRecentlyReadRequest(ReadPosition readPosition) {
+            final PendingPostRequest request = new PendingPostRequest(readPosition);
+            posts.add(request);
+            return request;
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        preferences = getContext().getSharedPreferences("test_read_positions", Context.MODE_PRIVATE);
+        preferences.edit().clear().commit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        preferences.edit().clear().commit();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void test_flush_postsOnlyTheLatestPositionOfEachFile() {
+        // GIVEN a publisher with several positions of the same file
+        final ReadPositionPublisher publisher = new ReadPositionPublisher(requestsFactory, preferences, FLUSH_INTERVAL_MS);
+        publisher.publish(createReadPosition("file1", 1));
+        publisher.publish(createReadPosition("file1", 2));
+        publisher.publish(createReadPosition("file2", 5));
+
+        // WHEN flushing
+        publisher.flush();
+
+        // THEN one position per file is posted, the latest one
+        assertEquals("Posts", 2, posts.size());
+        assertEquals("Posted page of file 1", 2, posts.get(0).readPosition.page);
+        publisher.release();
+    }
+
+    @SmallTest
+    public void test_flush_doesNotPostAgain_thePositionsBeingPosted() {
+        // GIVEN a publisher whose position is being posted
+        final ReadPositionPublisher publisher = new ReadPositionPublisher(requestsFactory, preferences, FLUSH_INTERVAL_MS);
+        publisher.publish(createReadPosition("file1", 1));
+        final RequestFuture<List<ReadPosition>> firstFlush = publisher.flush();
+
+        // WHEN flushing again before the post completes
+        final RequestFuture<List<ReadPosition>> secondFlush = publisher.flush();
+
+        // THEN the position is posted once, and both flushes complete with the post
+        assertEquals("Posts", 1, posts.size());
+        assertFalse("Second flush done before the post", secondFlush.isDone());
+        posts.get(0).completePost();
+        assertTrue("First flush done", firstFlush.isDone());
+        assertTrue("Second flush done", secondFlush.isDone());
+        assertEquals("Pending positions", 0, publisher.getPendingCount());
+        publisher.release();
+    }
+
+    @SmallTest
+    public void test_new_restoresThePositionsNotPosted() {
+        // GIVEN a publisher released before posting its position
+        final ReadPositionPublisher previous = new ReadPositionPublisher(requestsFactory, preferences, FLUSH_INTERVAL_MS);
+        previous.publish(createReadPosition("file1", 3));
+        previous.release();
+
+        // WHEN creating a new publisher with the same preferences
+        final ReadPositionPublisher publisher = new ReadPositionPublisher(requestsFactory, preferences, FLUSH_INTERVAL_MS);
+
+        // THEN the position is posted in its next flush
+        assertEquals("Pending positions", 1, publisher.getPendingCount());
+        publisher.flush();
+        assertEquals("Posted page", 3, posts.get(0).readPosition.page);
+        publisher.release();
+    }
+
+    @SmallTest
+    public void test_obtain_returnsTheSameInstance_untilReleased() {
+        // GIVEN the publisher of the app
+        final ReadPositionPublisher publisher = ReadPositionPublisher.obtain(getContext(), requestsFactory);
+
+        // WHEN obtaining it again, and after releasing it
+        final ReadPositionPublisher sameInstance = ReadPositionPublisher.obtain(getContext(), requestsFactory);
+        publisher.release();
+        final ReadPositionPublisher newInstance = ReadPositionPublisher.obtain(getContext(), requestsFactory);
+        newInstance.release();
+
+        // THEN the same instance is shared until released
+        assertSame("Same instance", publisher, sameInstance);
+        assertNotSame("New instance", publisher, newInstance);
+    }
+
+    private static ReadPosition createReadPosition(String fileId, int page) {
+        return new ReadPosition.Builder()
+                .setFileId(fileId)
+                .setPage(page)
+                .setDate(new Date())
+                .build();
+    }
+
+    /**
+     * Post of a position that completes only when the test says so.
+     */
+    private static class PendingPostRequest extends Request<ReadPosition> {
+        final ReadPosition readPosition;
+        private RequestFuture<Response> future;
+
+        PendingPostRequest(ReadPosition readPosition) {
+            super(null);
+            this.readPosition = readPosition;
+        }
+
+        @Override
+        protected Response doRun() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void doRunAsync(RequestFuture<Response> future, Executor executor) {
+            this.future = future;
+        }
+
+        void completePost() {
+            future.complete(new Response(readPosition, (Date) null, null));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mendeley.sdk.testUtils;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.exceptions.MendeleyException;
+
+import java.util.Date;
+import java.util.concurrent.Executor;
+
+/**
+ * Request that completes straight away, in the calling thread, with the passed resource or
+ * error, to test the classes composing requests without a server.
+ */
+public class FakeRequest<T> extends Request<T> {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final T resource;
+    private final Date serverDate;
+    private final Uri next;
+    private final MendeleyException error;
+
+    private FakeRequest(T resource, Date serverDate, Uri next, MendeleyException error) {
+        super(null);
+        this.resource = resource;
+        this.serverDate = serverDate;
+        this.next = next;
+        this.error = error;
+    }
+
+    public static <T> FakeRequest<T> succeeding(T resource) {
+        return new FakeRequest<T>(resource, null, null, null);
+    }
+
+    /**
+     * @return request of one page of a list, received at the server date, with the link to the
+     *         next page or null if it is the last one
+     */
+    public static <T> FakeRequest<T> succeeding(T resource, Date serverDate, Uri next) {
+        return new FakeRequest<T>(resource, serverDate, next, null);
+    }
+
+    public static <T> FakeRequest<T> failing(MendeleyException error) {
+        return new FakeRequest<T>(null, null, null, error);
+    }
+
+    @Override
+    protected Response doRun() throws MendeleyException {
+        if (error != null) {
+            throw error;
+        }
+        return new Response(resource, serverDate, next);
+    }
+
+    @Override
+    protected Executor getDefaultFutureExecutor() {
+        return DIRECT_EXECUTOR;
+    }
+}
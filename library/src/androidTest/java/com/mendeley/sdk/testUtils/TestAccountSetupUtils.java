@@ -4,6 +4,7 @@ import android.util.JsonReader;
 
 import com.mendeley.sdk.AuthTokenManager;
 import com.mendeley.sdk.BuildConfig;
+import com.mendeley.sdk.Request;
 import com.mendeley.sdk.RequestsFactory;
 import com.mendeley.sdk.exceptions.MendeleyException;
 import com.mendeley.sdk.model.Annotation;
@@ -28,6 +29,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -56,19 +58,25 @@ public class TestAccountSetupUtils{
 
     private void cleanDocs() {
         try {
-            // delete non-trashed docs
+            // delete non-trashed docs, going through all the pages
+            final List<String> documentIds = new ArrayList<String>();
             // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
-            for (Document doc: requestFactory.newGetDocumentsRequest((DocumentEndpoint.DocumentRequestParameters) null).run().resource) {
-                // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
-                requestFactory.newDeleteDocumentRequest(doc.id).run();
+            Request<List<Document>>.Response page = requestFactory.newGetDocumentsRequest((DocumentEndpoint.DocumentRequestParameters) null).run();
+            while (true) {
+                for (Document doc : page.resource) {
+                    documentIds.add(doc.id);
+                }
+                if (page.next == null) {
+                    break;
+                }
+                page = requestFactory.newGetDocumentsRequest(page.next).run();
             }
+            // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
+            Assert.assertTrue("Expected all non trashed docs deleted", requestFactory.newDeleteDocumentsRequest(documentIds).run().resource.isComplete());
 
             // delete trashed docs
             // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
-            for (Document doc: requestFactory.newGetTrashedDocumentsRequest((DocumentEndpoint.DocumentRequestParameters) null).run().resource) {
-                // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
-                requestFactory.newDeleteTrashedDocumentRequest(doc.id).run();
-            }
+            Assert.assertTrue("Expected all trashed docs deleted", requestFactory.newEmptyTrashRequest().run().resource.isComplete());
 
             // ensure no documents at all (trashed or deleted)
             // FIXME: do not delegate into the requestFactory to this, because we are testing the requestFactory...
@@ -0,0 +1,34 @@
+package com.mendeley.sdk.util;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.ByteArrayInputStream;
+
+public class HashUtilsTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_sha1_returnsTheLowercaseHexHash_ofTheStream() throws Exception {
+        // GIVEN a stream with some content
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream("abc".getBytes("UTF-8"));
+
+        // WHEN hashing it
+        final String hash = HashUtils.sha1(inputStream);
+
+        // THEN the SHA-1 is returned
+        assertEquals("Hash", "a9993e364706816aba3e25717850c26c9cd0d89d", hash);
+    }
+
+    @SmallTest
+    public void test_sha1_returnsTheHashOfNothing_forAnEmptyStream() throws Exception {
+        // GIVEN an empty stream
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        // WHEN hashing it
+        final String hash = HashUtils.sha1(inputStream);
+
+        // THEN the SHA-1 of no bytes is returned
+        assertEquals("Hash", "da39a3ee5e6b4b0d3255bfef95601890afd80709", hash);
+    }
+}
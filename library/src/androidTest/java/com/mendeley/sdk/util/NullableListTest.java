@@ -0,0 +1,77 @@
+package com.mendeley.sdk.util;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NullableListTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_of_sharesTheInstances_forNullAndEmptyLists() {
+        // WHEN creating lists from null and empty lists
+        final NullableList<String> null1 = NullableList.of(null);
+        final NullableList<String> null2 = NullableList.of(null);
+        final NullableList<String> empty1 = NullableList.of(new ArrayList<String>());
+        final NullableList<String> empty2 = NullableList.of(new ArrayList<String>());
+
+        // THEN the same instances are returned, keeping null and empty apart
+        assertSame("Null list", null1, null2);
+        assertSame("Empty list", empty1, empty2);
+        assertTrue("Null list is null", null1.isNull());
+        assertFalse("Empty list is not null", empty1.isNull());
+        assertTrue("Null list of a null list is null", NullableList.of(null1).isNull());
+    }
+
+    @SmallTest
+    public void test_of_keepsTheElements() {
+        // GIVEN a small and a big list
+        final List<String> small = Arrays.asList("a", "b", "c");
+        final List<String> big = new ArrayList<String>();
+        for (int i = 0; i <= NullableList.COMPACT_MAX_SIZE; i++) {
+            big.add("element" + i);
+        }
+
+        // WHEN creating lists from them
+        // THEN they have the same elements
+        assertEquals("Small list", small, NullableList.of(small));
+        assertEquals("Big list", big, NullableList.of(big));
+    }
+
+    @SmallTest
+    public void test_of_returnsReadOnlyLists() {
+        // GIVEN a list created with of()
+        final NullableList<String> list = NullableList.of(Arrays.asList("a"));
+
+        // WHEN modifying it
+        try {
+            list.add("b");
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @SmallTest
+    public void test_of_returnsReadOnlyCopies_ofBigLists() {
+        // GIVEN a list too big to be compacted
+        final List<String> big = new ArrayList<String>();
+        for (int i = 0; i <= NullableList.COMPACT_MAX_SIZE; i++) {
+            big.add("tag" + i);
+        }
+        final NullableList<String> list = NullableList.of(big);
+
+        // WHEN modifying the original list
+        big.add("other");
+
+        // THEN the created list doesn't change, and can't be modified
+        assertEquals("Size", NullableList.COMPACT_MAX_SIZE + 1, list.size());
+        try {
+            list.add("b");
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
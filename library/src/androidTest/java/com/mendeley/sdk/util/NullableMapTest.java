@@ -0,0 +1,62 @@
+package com.mendeley.sdk.util;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class NullableMapTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_of_sharesTheInstances_forNullAndEmptyMaps() {
+        // WHEN creating maps from null and empty maps
+        final NullableMap<String, String> null1 = NullableMap.of(null);
+        final NullableMap<String, String> empty1 = NullableMap.of(new HashMap<String, String>());
+
+        // THEN shared instances are returned, keeping null and empty apart
+        assertSame("Null map", null1, NullableMap.of(null));
+        assertSame("Empty map", empty1, NullableMap.of(new HashMap<String, String>()));
+        assertTrue("Null map is null", null1.isNull());
+        assertFalse("Empty map is not null", empty1.isNull());
+    }
+
+    @SmallTest
+    public void test_of_keepsTheEntries_ofSmallMaps() {
+        // GIVEN a small map
+        final Map<String, String> map = new HashMap<String, String>();
+        map.put("doi", "10.1000/182");
+        map.put("isbn", "0-123");
+
+        // WHEN creating a map from it
+        final NullableMap<String, String> compact = NullableMap.of(map);
+
+        // THEN it has the same entries
+        assertEquals("Map", map, compact);
+        assertEquals("Value", "0-123", compact.get("isbn"));
+        assertNull("Missing value", compact.get("pmid"));
+        assertEquals("Size", 2, compact.size());
+    }
+
+    @SmallTest
+    public void test_of_returnsReadOnlyCopies_ofBigMaps() {
+        // GIVEN a map too big to be compacted
+        final Map<String, String> big = new HashMap<String, String>();
+        for (int i = 0; i <= NullableMap.COMPACT_MAX_SIZE; i++) {
+            big.put("key" + i, "value" + i);
+        }
+        final NullableMap<String, String> map = NullableMap.of(big);
+
+        // WHEN modifying the original map
+        big.put("other", "value");
+
+        // THEN the created map doesn't change, and can't be modified
+        assertEquals("Size", NullableMap.COMPACT_MAX_SIZE + 1, map.size());
+        try {
+            map.put("b", "value");
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
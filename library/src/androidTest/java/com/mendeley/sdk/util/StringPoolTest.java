@@ -0,0 +1,35 @@
+package com.mendeley.sdk.util;
+
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+public class StringPoolTest extends AndroidTestCase {
+
+    @SmallTest
+    public void test_get_returnsTheSharedInstance_forEqualStrings() {
+        // GIVEN a pool counting its stats, with one string
+        final StringPool pool = new StringPool(16, true);
+        final String first = new String("Smith");
+        pool.get(first);
+
+        // WHEN passing an equal string
+        final String second = new String("Smith");
+        final String pooled = pool.get(second);
+
+        // THEN the first instance is returned
+        assertSame("Shared string", first, pooled);
+        assertEquals("Hits", 1, pool.getHits());
+        assertEquals("Lookups", 2, pool.getLookups());
+    }
+
+    @SmallTest
+    public void test_get_returnsNull_forNull() {
+        // GIVEN a pool
+        final StringPool pool = new StringPool(16);
+
+        // WHEN passing null
+        // THEN null is returned
+        assertNull("Pooled null", pool.get(null));
+    }
+}
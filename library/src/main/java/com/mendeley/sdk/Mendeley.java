@@ -1,6 +1,5 @@
 package com.mendeley.sdk;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
@@ -16,6 +15,11 @@ import com.mendeley.sdk.model.Group;
 import com.mendeley.sdk.model.Profile;
 import com.mendeley.sdk.model.ReadPosition;
 import com.mendeley.sdk.model.UserRole;
+import com.mendeley.sdk.request.BulkRequest;
+import com.mendeley.sdk.request.OkHttpAuthorizedRequest;
+import com.mendeley.sdk.request.PatchAuthorizedRequest;
+import com.mendeley.sdk.request.PostAuthorizedRequest;
+import com.mendeley.sdk.request.RequestBodyCompressor;
 import com.mendeley.sdk.request.endpoint.AnnotationsEndpoint;
 import com.mendeley.sdk.request.endpoint.DocumentEndpoint;
 import com.mendeley.sdk.request.endpoint.DocumentIdentifiersEndpoint;
@@ -31,10 +35,13 @@ import com.mendeley.sdk.request.endpoint.UserRolesEndpoint;
 import com.mendeley.sdk.ui.sign_in.SignInActivity;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class exposing all the pubic functionality of the Mendeley SDK.
@@ -69,7 +76,7 @@ public class Mendeley {
 
     private ClientCredentials clientCredentials;
     private AuthTokenManager authTokenManager;
-    private RequestsFactory requestsFactory;
+    private RequestFactoryImpl requestsFactory;
 
     /**
      * @return a reference to the @{Mendeley} SDK singleton.
@@ -93,9 +100,50 @@ public class Mendeley {
      * @param appSecret, valid client app secret
      */
     public final void init(Context context, String appId, String appSecret) {
+        init(context, appId, appSecret, false);
+    }
+
+    /**
+     * Initialises the SDK, providing a valid API key and credentials to obtain authorization tokens
+     * from the Mendeley API, optionally pre-warming the connection to the API.
+     *
+     * @param context a Context, won't be kept as a reference.
+     * @param appId, valid client app id
+     * @param appSecret, valid client app secret
+     * @param prewarmConnection true to open a connection to the API in the background straight
+     *                          away, see {@link #prewarmConnection()}
+     */
+    public final void init(Context context, String appId, String appSecret, boolean prewarmConnection) {
         this.clientCredentials = new ClientCredentials(appId, appSecret);
         this.authTokenManager = SharedPreferencesAuthTokenManager.obtain(context);
         this.requestsFactory = new RequestFactoryImpl(authTokenManager, clientCredentials);
+        if (prewarmConnection) {
+            prewarmConnection();
+        }
+    }
+
+    /**
+     * Opens a connection to the Mendeley API in the background, so that the first request of
+     * the app doesn't pay the DNS lookup and the TCP and TLS handshakes. Call it while the app
+     * shows its splash screen, if not done in {@link #init(Context, String, String, boolean)}.
+     *
+     * @return future that will complete with the milliseconds of the round trip of the HEAD
+     *         request opening the connection
+     */
+    public RequestFuture<Long> prewarmConnection() {
+        return OkHttpAuthorizedRequest.prewarmConnection();
+    }
+
+    /**
+     * Enables or disables sending the bodies of the requests creating and updating documents and
+     * annotations compressed with gzip, when they are big enough to be worth it.
+     * Disabled by default.
+     *
+     * @see RequestFactoryImpl#setBodyCompressionEnabled(boolean)
+     */
+    public void setBodyCompressionEnabled(boolean enabled) {
+        assertInitialised();
+        requestsFactory.setBodyCompressionEnabled(enabled);
     }
 
     /**
@@ -240,11 +288,45 @@ public class Mendeley {
         private final ClientCredentials clientCredentials;
         private final AuthTokenManager authTokenManager;
 
+        // compresses the bodies of the document and annotation requests, null if disabled
+        private volatile RequestBodyCompressor bodyCompressor;
+
         public RequestFactoryImpl(AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
             this.authTokenManager = authTokenManager;
             this.clientCredentials = clientCredentials;
         }
 
+        /**
+         * Enables or disables sending the bodies of the POST and PATCH requests of documents and
+         * annotations compressed with gzip (with Content-Encoding: gzip), when they are big enough
+         * to be worth it. Disabled by default, as it needs the server to accept compressed bodies.
+         */
+        public synchronized void setBodyCompressionEnabled(boolean enabled) {
+            if (!enabled) {
+                bodyCompressor = null;
+            } else if (bodyCompressor == null) {
+                bodyCompressor = new RequestBodyCompressor();
+            }
+        }
+
+        /**
+         * @return the compressor of the bodies of the requests created by this factory, to measure
+         *         the bytes saved, or null if the compression is disabled
+         */
+        public RequestBodyCompressor getBodyCompressor() {
+            return bodyCompressor;
+        }
+
+        private <T> PostAuthorizedRequest<T> compressingBody(PostAuthorizedRequest<T> request) {
+            request.setBodyCompressor(bodyCompressor);
+            return request;
+        }
+
+        private <T> PatchAuthorizedRequest<T> compressingBody(PatchAuthorizedRequest<T> request) {
+            request.setBodyCompressor(bodyCompressor);
+            return request;
+        }
+
         @Override
         public Request<Profile> newGetMyProfileRequest() {
             return new ProfilesEndpoint.GetProfileRequest("me", authTokenManager, clientCredentials);
@@ -285,6 +367,16 @@ public class Mendeley {
             return new DocumentEndpoint.GetDocumentsRequest(url, authTokenManager, clientCredentials);
         }
 
+        @Override
+        public Request<List<Document>> newGetDocumentsRequest(DocumentEndpoint.DocumentRequestParameters parameters, Set<Document.Field> fields) {
+            return new DocumentEndpoint.GetDocumentsRequest(parameters, fields, authTokenManager, clientCredentials);
+        }
+
+        @Override
+        public Request<List<Document>> newGetDocumentsRequest(Uri url, Set<Document.Field> fields) {
+            return new DocumentEndpoint.GetDocumentsRequest(url, fields, authTokenManager, clientCredentials);
+        }
+
         @Override
         public Request<Document> newGetDocumentRequest(String documentId, DocumentEndpoint.DocumentRequestParameters.View view) {
             return new DocumentEndpoint.GetDocumentRequest(documentId, view, authTokenManager, clientCredentials);
@@ -292,12 +384,12 @@ public class Mendeley {
 
         @Override
         public Request<Document> newPostDocumentRequest(Document document) {
-            return new DocumentEndpoint.PostDocumentRequest(document, authTokenManager, clientCredentials);
+            return compressingBody(new DocumentEndpoint.PostDocumentRequest(document, authTokenManager, clientCredentials));
         }
 
         @Override
         public Request<Document> newPatchDocumentRequest(String documentId, Date date, Document document) {
-            return new DocumentEndpoint.PatchDocumentAuthorizedRequest(documentId, document, date, authTokenManager, clientCredentials);
+            return compressingBody(new DocumentEndpoint.PatchDocumentAuthorizedRequest(documentId, document, date, authTokenManager, clientCredentials));
         }
 
         @Override
@@ -330,6 +422,108 @@ public class Mendeley {
             return new TrashEndpoint.RestoreTrashedDocumentRequest(documentId, authTokenManager, clientCredentials);
         }
 
+        @Override
+        public Request<BulkRequest.Result> newTrashDocumentsRequest(Collection<String> documentIds) {
+            return new BulkRequest(Uri.parse(DocumentEndpoint.DOCUMENTS_BASE_URL), documentIds) {
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newTrashDocumentRequest(id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Request<BulkRequest.Result> newDeleteDocumentsRequest(Collection<String> documentIds) {
+            return new BulkRequest(Uri.parse(DocumentEndpoint.DOCUMENTS_BASE_URL), documentIds) {
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newDeleteDocumentRequest(id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Request<BulkRequest.Result> newDeleteTrashedDocumentsRequest(Collection<String> documentIds) {
+            return new BulkRequest(Uri.parse(TrashEndpoint.BASE_URL), documentIds) {
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newDeleteTrashedDocumentRequest(id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Request<BulkRequest.Result> newEmptyTrashRequest() {
+            return new BulkRequest(Uri.parse(TrashEndpoint.BASE_URL), null) {
+                @Override
+                protected RequestFuture<List<String>> loadIds() {
+                    final DocumentEndpoint.DocumentRequestParameters parameters = new DocumentEndpoint.DocumentRequestParameters();
+                    parameters.limit = PageLoader.MAX_PAGE_SIZE;
+                    final Request<List<Document>> firstPage = newGetTrashedDocumentsRequest(parameters);
+                    firstPage.setBackground(isBackground());
+                    return loadTrashedDocumentIds(firstPage);
+                }
+
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newDeleteTrashedDocumentRequest(id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
+        private RequestFuture<List<String>> loadTrashedDocumentIds(Request<List<Document>> firstPage) {
+            return PageLoader.loadAll(firstPage, new PageLoader.NextPageFactory<Document>() {
+                @Override
+                public Request<List<Document>> newNextPageRequest(Uri next) {
+                    return newGetTrashedDocumentsRequest(next);
+                }
+            }).map(new RequestFuture.Function<List<Document>, List<String>>() {
+                @Override
+                public List<String> apply(List<Document> documents) {
+                    final List<String> ids = new ArrayList<String>(documents.size());
+                    for (Document document : documents) {
+                        ids.add(document.id);
+                    }
+                    return ids;
+                }
+            });
+        }
+
+        @Override
+        public Request<BulkRequest.Result> newRestoreTrashedDocumentsRequest(Collection<String> documentIds) {
+            return new BulkRequest(Uri.parse(TrashEndpoint.BASE_URL), documentIds) {
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newRestoreTrashedDocumentRequest(id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
         @Override
         public Request<List<Annotation>> newGetAnnotationsRequest(AnnotationsEndpoint.AnnotationRequestParameters parameters) {
             return new AnnotationsEndpoint.GetAnnotationsRequest(parameters, authTokenManager, clientCredentials);
@@ -347,12 +541,12 @@ public class Mendeley {
 
         @Override
         public Request<Annotation> newPostAnnotationRequest(Annotation annotation) {
-            return new AnnotationsEndpoint.PostAnnotationRequest(annotation, authTokenManager, clientCredentials);
+            return compressingBody(new AnnotationsEndpoint.PostAnnotationRequest(annotation, authTokenManager, clientCredentials));
         }
 
         @Override
         public Request<Annotation> newPatchAnnotationRequest(String annotationId, Annotation annotation) {
-            return new AnnotationsEndpoint.PatchAnnotationRequest(annotationId, annotation, authTokenManager, clientCredentials);
+            return compressingBody(new AnnotationsEndpoint.PatchAnnotationRequest(annotationId, annotation, authTokenManager, clientCredentials));
         }
 
         @Override
@@ -436,6 +630,21 @@ public class Mendeley {
             return new FoldersEndpoint.DeleteDocumentFromFolder(folderId, documentId, authTokenManager, clientCredentials);
         }
 
+        @Override
+        public Request<BulkRequest.Result> newDeleteDocumentsFromFolderRequest(final String folderId, Collection<String> documentIds) {
+            return new BulkRequest(Uri.parse(FoldersEndpoint.FOLDERS_BASE_URL + "/" + folderId + "/documents"), documentIds) {
+                @Override
+                protected Request<?> newItemRequest(String id) {
+                    return newDeleteDocumentFromFolderRequest(folderId, id);
+                }
+
+                @Override
+                protected boolean removesItems() {
+                    return true;
+                }
+            };
+        }
+
         @Override
         public Request<List<Group>> newGetGroupsRequest(GroupsEndpoint.GroupRequestParameters parameters) {
             return new GroupsEndpoint.GetGroupsRequest(parameters, authTokenManager, clientCredentials);
@@ -490,6 +699,13 @@ public class Mendeley {
      *
      * <p/>
      *
+     * The tokens are read from the preferences once, and then kept in memory, as they are read by
+     * every request. They are replaced all together, so a reader never sees the access token of
+     * one refresh with the expiration date of another, and reading them doesn't take any lock.
+     * Changes are saved to the preferences in the background.
+     *
+     * <p/>
+     *
      * Typical Android applications using the Mendeley SDK won't directly need to deal with this,
      * but this class is left public in case you don't want to use the {@link Mendeley} singleton
      * in your app and you prefer to instantiate the {@link AuthTokenManager} by yourself.
@@ -504,59 +720,82 @@ public class Mendeley {
         private static final String EXPIRES_AT_KEY = "expiresAtDate";
         private static final String TOKEN_TYPE_KEY = "tokenType";
 
-        public static SharedPreferencesAuthTokenManager obtain(Context context) {
-            return new SharedPreferencesAuthTokenManager(context.getSharedPreferences(SharedPreferencesAuthTokenManager.SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE));
-        }
+        private static SharedPreferencesAuthTokenManager sInstance;
 
+        /**
+         * Obtains the token manager of the process. It is created the first time, and the same
+         * one is returned afterwards, as each instance keeps its own copy of the tokens, which
+         * would go stale when another instance refreshes them.
+         */
+        public static synchronized SharedPreferencesAuthTokenManager obtain(Context context) {
+            if (sInstance == null) {
+                sInstance = new SharedPreferencesAuthTokenManager(context.getApplicationContext().getSharedPreferences(SharedPreferencesAuthTokenManager.SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE));
+            }
+            return sInstance;
+        }
 
         private final SharedPreferences preferences;
 
+        // replaced, never modified, on every change
+        private volatile Tokens tokens;
+
         public SharedPreferencesAuthTokenManager(SharedPreferences preferences) {
             this.preferences = preferences;
+            this.tokens = new Tokens(
+                    preferences.getString(ACCESS_TOKEN_KEY, null),
+                    preferences.getString(REFRESH_TOKEN_KEY, null),
+                    preferences.getString(TOKEN_TYPE_KEY, null),
+                    new Date(preferences.getLong(EXPIRES_AT_KEY, 0)));
         }
 
-        @SuppressLint("CommitPrefEdits")
         @Override
-        public final void saveTokens(String accessToken, String refreshToken, String tokenType, int expiresIn)  {
+        public final synchronized void saveTokens(String accessToken, String refreshToken, String tokenType, int expiresIn)  {
             Date expiresAt = generateExpiresAtFromExpiresIn(expiresIn);
+            tokens = new Tokens(accessToken, refreshToken, tokenType, expiresAt);
 
+            // saved in order, as apply() calls are written in the order they are made
             SharedPreferences.Editor editor = preferences.edit();
             editor.putString(ACCESS_TOKEN_KEY, accessToken);
             editor.putString(REFRESH_TOKEN_KEY, refreshToken);
             editor.putString(TOKEN_TYPE_KEY, tokenType);
             editor.putLong(EXPIRES_AT_KEY, expiresAt.getTime());
-            editor.commit();
+            editor.apply();
         }
 
-        @SuppressLint("CommitPrefEdits")
         @Override
-        public final void clearTokens() {
+        public final synchronized void clearTokens() {
+            tokens = new Tokens(null, null, null, new Date(0));
+
             SharedPreferences.Editor editor = preferences.edit();
             editor.remove(ACCESS_TOKEN_KEY);
             editor.remove(REFRESH_TOKEN_KEY);
             editor.remove(EXPIRES_AT_KEY);
             editor.remove(TOKEN_TYPE_KEY);
-            editor.commit();
+            editor.apply();
         }
 
+        /**
+         * @return the expiration date of the access token. It is shared by all the callers, so
+         *         it must not be modified.
+         */
         @Override
         public final Date getAuthTokenExpirationDate() {
-            return new Date(preferences.getLong(EXPIRES_AT_KEY, 0));
+            return tokens.expiresAt;
         }
 
         @Override
         public final String getRefreshToken() {
-            return preferences.getString(REFRESH_TOKEN_KEY, null);
+            return tokens.refreshToken;
         }
 
         @Override
         public final  String getAccessToken() {
-            return preferences.getString(ACCESS_TOKEN_KEY, null);
+            return tokens.accessToken;
         }
 
         @Override
         public final String getTokenType() {
-            return preferences.getString(TOKEN_TYPE_KEY, null);
+            return tokens.tokenType;
         }
 
         private Date generateExpiresAtFromExpiresIn(int expiresIn) {
@@ -564,5 +803,19 @@ public class Mendeley {
             c.add(Calendar.SECOND, expiresIn);
             return c.getTime();
         }
+
+        private static final class Tokens {
+            final String accessToken;
+            final String refreshToken;
+            final String tokenType;
+            final Date expiresAt;
+
+            Tokens(String accessToken, String refreshToken, String tokenType, Date expiresAt) {
+                this.accessToken = accessToken;
+                this.refreshToken = refreshToken;
+                this.tokenType = tokenType;
+                this.expiresAt = expiresAt;
+            }
+        }
     }
 }
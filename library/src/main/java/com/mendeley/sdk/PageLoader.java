@@ -0,0 +1,135 @@
+package com.mendeley.sdk;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.exceptions.MendeleyException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads all the pages of a list of the API, one after the other, as each page holds the link to
+ * the next.
+ * <p/>
+ * Pages completing straight away are processed in a loop rather than by recursion, and the ones
+ * completing later resume the loop from their listener, so loading many pages never nests one
+ * future or call per page. Cancelling the returned future cancels the page being loaded.
+ */
+public class PageLoader<T> {
+
+    /**
+     * Largest page size allowed by the API, for the first request of lists loaded whole
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Creates the requests of the pages after the first one.
+     */
+    public interface NextPageFactory<T> {
+        Request<List<T>> newNextPageRequest(Uri next);
+    }
+
+    /**
+     * Receives each page as soon as it is loaded, in order, for example to show the first items
+     * before all of them are loaded.
+     */
+    public interface PageListener<T> {
+        void onPage(Request<List<T>>.Response page);
+    }
+
+    private final NextPageFactory<T> nextPages;
+    private final PageListener<T> pageListener;
+    private final boolean background;
+
+    private final RequestFuture<List<T>> result = new RequestFuture<List<T>>();
+    private final List<T> items = new ArrayList<T>();
+    private volatile RequestFuture<Request<List<T>>.Response> currentPage;
+
+    private PageLoader(NextPageFactory<T> nextPages, PageListener<T> pageListener, boolean background) {
+        this.nextPages = nextPages;
+        this.pageListener = pageListener;
+        this.background = background;
+        result.addCancellationListener(new Runnable() {
+            @Override
+            public void run() {
+                final RequestFuture<?> page = currentPage;
+                if (page != null) {
+                    page.cancel(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param firstPage request of the first page. The next ones are run as background requests
+     *                  if this one is.
+     * @param nextPages creates the requests of the next pages
+     * @return future that will complete with the items of all the pages, in order
+     */
+    public static <T> RequestFuture<List<T>> loadAll(Request<List<T>> firstPage, NextPageFactory<T> nextPages) {
+        return loadAll(firstPage, nextPages, null);
+    }
+
+    /**
+     * @param firstPage request of the first page. The next ones are run as background requests
+     *                  if this one is.
+     * @param nextPages creates the requests of the next pages
+     * @param pageListener receives each page as it is loaded, or null
+     * @return future that will complete with the items of all the pages, in order
+     */
+    public static <T> RequestFuture<List<T>> loadAll(Request<List<T>> firstPage, NextPageFactory<T> nextPages, PageListener<T> pageListener) {
+        final PageLoader<T> loader = new PageLoader<T>(nextPages, pageListener, firstPage.isBackground());
+        loader.loadPages(firstPage);
+        return loader.result;
+    }
+
+    private void loadPages(Request<List<T>> page) {
+        while (page != null) {
+            final RequestFuture<Request<List<T>>.Response> future = page.runFuture();
+            currentPage = future;
+            if (result.isCancelled()) {
+                future.cancel(false);
+                return;
+            }
+            if (!future.isDone()) {
+                future.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        loadPages(onPageLoaded(future));
+                    }
+                });
+                return;
+            }
+            page = onPageLoaded(future);
+        }
+    }
+
+    /**
+     * @return the request of the next page, or null if it was the last one or the load has
+     *         failed or been cancelled
+     */
+    private Request<List<T>> onPageLoaded(RequestFuture<Request<List<T>>.Response> future) {
+        if (result.isDone()) {
+            return null;
+        }
+        try {
+            final Request<List<T>>.Response response = future.getResult();
+            items.addAll(response.resource);
+            if (pageListener != null) {
+                pageListener.onPage(response);
+            }
+            if (response.next == null) {
+                result.complete(items);
+                return null;
+            }
+            final Request<List<T>> next = nextPages.newNextPageRequest(response.next);
+            next.setBackground(background);
+            return next;
+        } catch (MendeleyException e) {
+            result.fail(e);
+        } catch (RuntimeException e) {
+            result.fail(new MendeleyException("Unexpected error loading the pages", e));
+        }
+        return null;
+    }
+}
@@ -11,6 +11,8 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class modeling an HTTP request against the Mendeley API.
@@ -34,18 +36,26 @@ public abstract class Request<ResultType> {
         httpHeaderDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
     }
 
+    // SimpleDateFormat is not thread-safe, and responses are parsed in several threads at a time
     private static Date parseHeaderDate(String serverDateStr) {
         try {
-            return httpHeaderDateFormat.parse(serverDateStr);
+            synchronized (httpHeaderDateFormat) {
+                return httpHeaderDateFormat.parse(serverDateStr);
+            }
         } catch (Exception e) {
             throw new IllegalArgumentException("Could not parse server date header", e);
         }
     }
 
 
+    // number of requests not marked as background that are running
+    private static final AtomicInteger sRunningInteractiveRequests = new AtomicInteger();
+
     private final Uri uri;
-    private boolean cancelled;
-    private boolean finishedRun;
+    private volatile boolean background;
+    // atomic, as requests are usually cancelled from a different thread than the one running them
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile boolean finishedRun;
 
     /**
      * Constructor
@@ -72,6 +82,7 @@ public abstract class Request<ResultType> {
      *
      * <ul>
      * <li>Using the {@link Request#runAsync(RequestCallback)} method</li>
+     * <li>Using the {@link Request#runFuture()} method, if the result needs to be composed with other requests</li>
      * <li>Executing this method in an {@link AsyncTask}, {@link android.app.IntentService} or using any other threading mechanism </li>
      * </ul>
      *
@@ -80,10 +91,17 @@ public abstract class Request<ResultType> {
      * @throws MendeleyException if the request could not be completed for any unexpected reason
      */
     public final Response run() throws MendeleyException {
+        final boolean interactive = !background;
+        if (interactive) {
+            sRunningInteractiveRequests.incrementAndGet();
+        }
         try {
             return doRun();
         } finally {
             finishedRun = true;
+            if (interactive) {
+                sRunningInteractiveRequests.decrementAndGet();
+            }
         }
     }
 
@@ -126,18 +144,151 @@ public abstract class Request<ResultType> {
         task.executeOnExecutor(executor);
     }
 
+    /**
+     * Runs the request asynchronously, returning a {@link RequestFuture} that can be composed
+     * with the ones of other requests.
+     * The work will be performed in the default executor of the request.
+     *
+     * @return future that will complete with the response of the request
+     */
+    public final RequestFuture<Response> runFuture() {
+        return runFuture(getDefaultFutureExecutor());
+    }
+
+    /**
+     * Runs the request asynchronously, returning a {@link RequestFuture} that can be composed
+     * with the ones of other requests.
+     * Cancelling the returned future cancels this request.
+     *
+     * @param executor where the work of the request will run at
+     * @return future that will complete with the response of the request
+     */
+    public final RequestFuture<Response> runFuture(Executor executor) {
+        final RequestFuture<Response> future = new RequestFuture<Response>();
+        future.addCancellationListener(new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        });
+        final boolean interactive = !background;
+        if (interactive) {
+            sRunningInteractiveRequests.incrementAndGet();
+        }
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                finishedRun = true;
+                if (interactive) {
+                    sRunningInteractiveRequests.decrementAndGet();
+                }
+            }
+        });
+
+        doRunAsync(future, executor);
+        return future;
+    }
+
+    /**
+     * Template method that performs the work of the request asynchronously, completing the passed
+     * future with the response.
+     * This implementation runs {@link #doRun()} in the executor, blocking one of its threads.
+     * Requests able to perform non-blocking network operations should override it.
+     *
+     * @param future to complete with the outcome of the request
+     * @param executor where the work of the request is expected to run at
+     */
+    protected void doRunAsync(final RequestFuture<Response> future, Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    completeFuture(future, doRun());
+                } catch (MendeleyException e) {
+                    failFuture(future, e);
+                } catch (RuntimeException e) {
+                    failFuture(future, new MendeleyException("Unexpected error in request " + uri, e));
+                }
+            }
+        });
+    }
+
+    /**
+     * Completes the future with the response, unless the request has been cancelled.
+     */
+    protected final void completeFuture(RequestFuture<Response> future, Response response) {
+        if (isCancelled()) {
+            future.cancel(false);
+        } else {
+            future.complete(response);
+        }
+    }
+
+    /**
+     * Fails the future with the exception, unless the request has been cancelled.
+     */
+    protected final void failFuture(RequestFuture<Response> future, MendeleyException exception) {
+        if (isCancelled()) {
+            future.cancel(false);
+        } else {
+            future.fail(exception);
+        }
+    }
+
+    /**
+     * @return the executor used by {@link #runFuture()}
+     */
+    protected Executor getDefaultFutureExecutor() {
+        return AsyncTask.THREAD_POOL_EXECUTOR;
+    }
+
+    /**
+     * Marks this request as background work, like prefetching or bulk operations, which should
+     * give way to the requests the user is waiting for.
+     * Must be called before running the request.
+     *
+     * @see #getRunningInteractiveRequestCount()
+     */
+    public final void setBackground(boolean background) {
+        this.background = background;
+    }
+
+    public final boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * @return number of requests not marked as background that are running now. Background work
+     *         can wait for it to be 0 before starting new requests.
+     */
+    public static int getRunningInteractiveRequestCount() {
+        return sRunningInteractiveRequests.get();
+    }
+
     /**
      * Tells this request to cancel its work and to return as soon as possible.
      */
     public final void cancel() {
-        cancelled = true;
+        if (cancelled.compareAndSet(false, true)) {
+            onCancelled();
+        }
+    }
+
+    /**
+     * Hook invoked once when the request is cancelled, in the thread calling {@link #cancel()}.
+     * Subclasses can override it to abort any ongoing blocking operation straight away.
+     */
+    protected void onCancelled() {
     }
 
     /**
      * @return whether or not this request has been cancelled
      */
     public final boolean isCancelled() {
-        return cancelled;
+        return cancelled.get();
     }
 
     /**
@@ -145,7 +296,7 @@ public abstract class Request<ResultType> {
      *          False if it has not been run or is still running.
      */
     public boolean isDone() {
-        return finishedRun || cancelled;
+        return finishedRun || cancelled.get();
     }
 
     /**
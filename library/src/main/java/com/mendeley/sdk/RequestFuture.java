@@ -0,0 +1,505 @@
+package com.mendeley.sdk;
+
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.exceptions.RequestTimeoutException;
+import com.mendeley.sdk.exceptions.UserCancelledException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Future} holding the outcome of one asynchronous operation, typically the
+ * {@link Request.Response} of a {@link Request} launched with {@link Request#runFuture()}.
+ *
+ * <p/>
+ *
+ * Futures can be composed without blocking any thread:
+ *
+ * <ul>
+ * <li>{@link #map(Function)} and {@link #then(AsyncFunction)} chain dependent operations</li>
+ * <li>{@link #allOf(List)} and {@link #zip(RequestFuture, RequestFuture, Combiner)} wait for
+ * independent operations running in parallel</li>
+ * <li>{@link #withTimeout(long, TimeUnit)} fails the operation if it takes too long</li>
+ * </ul>
+ *
+ * Cancelling a future obtained by composition cancels the futures (and hence the {@link Request}s)
+ * it depends on.
+ *
+ * @param <T> type of the result
+ */
+public class RequestFuture<T> implements Future<T> {
+
+    private enum State {
+        PENDING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private static ScheduledExecutorService sTimeoutScheduler;
+
+    private final List<Runnable> completionListeners = new LinkedList<Runnable>();
+    private final List<Runnable> cancellationListeners = new LinkedList<Runnable>();
+
+    private State state = State.PENDING;
+    private T result;
+    private MendeleyException error;
+
+    /**
+     * @return a future already completed with the passed result
+     */
+    public static <T> RequestFuture<T> succeeded(T result) {
+        final RequestFuture<T> future = new RequestFuture<T>();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * @return a future already failed with the passed exception
+     */
+    public static <T> RequestFuture<T> failed(MendeleyException error) {
+        final RequestFuture<T> future = new RequestFuture<T>();
+        future.fail(error);
+        return future;
+    }
+
+    /**
+     * Completes this future with success.
+     *
+     * @param result the result of the operation
+     * @return false if the future had already completed
+     */
+    public boolean complete(T result) {
+        return transition(State.SUCCEEDED, result, null);
+    }
+
+    /**
+     * Completes this future with an error.
+     *
+     * @param error semantic exception representing the error
+     * @return false if the future had already completed
+     */
+    public boolean fail(MendeleyException error) {
+        return transition(State.FAILED, null, error);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return transition(State.CANCELLED, null, null);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == State.CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != State.PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == State.PENDING) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == State.PENDING) {
+            final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                throw new TimeoutException();
+            }
+            wait(remainingMs);
+        }
+        return report();
+    }
+
+    /**
+     * Blocks the calling thread until the operation completes and returns its result, throwing
+     * the same exceptions {@link Request#run()} would.
+     *
+     * @return the result of the operation
+     * @throws UserCancelledException if the operation was cancelled or the thread interrupted
+     * @throws MendeleyException if the operation failed
+     */
+    public T getResult() throws MendeleyException {
+        try {
+            return get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserCancelledException(e);
+        } catch (CancellationException e) {
+            throw new UserCancelledException(e);
+        } catch (ExecutionException e) {
+            throw (MendeleyException) e.getCause();
+        }
+    }
+
+    /**
+     * Registers one callback that will be invoked in the passed executor once this future completes.
+     * If it has already completed, the callback is invoked straight away.
+     */
+    public void addCallback(final Callback<? super T> callback, Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                final State finalState;
+                synchronized (RequestFuture.this) {
+                    finalState = state;
+                }
+                if (finalState == State.SUCCEEDED) {
+                    callback.onSuccess(result);
+                } else if (finalState == State.FAILED) {
+                    callback.onFailure(error);
+                } else {
+                    callback.onCancelled();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * Registers one listener that will run in the passed executor once this future completes,
+     * whatever the outcome. If it has already completed, the listener is run straight away.
+     */
+    public void addListener(final Runnable listener, final Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(listener);
+            }
+        });
+    }
+
+    /**
+     * Registers one listener that will run in the thread completing this future, whatever the
+     * outcome. If it has already completed, the listener is run straight away in the calling thread.
+     * Listeners registered this way should be cheap.
+     */
+    public void addListener(Runnable listener) {
+        synchronized (this) {
+            if (state == State.PENDING) {
+                completionListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Registers one listener to be run if, and only if, this future gets cancelled.
+     * Producers use it to stop the work in progress, typically cancelling one {@link Request}.
+     */
+    public void addCancellationListener(Runnable listener) {
+        synchronized (this) {
+            if (state == State.PENDING) {
+                cancellationListeners.add(listener);
+                return;
+            } else if (state != State.CANCELLED) {
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Returns a future that will complete with the result of this one transformed by the passed
+     * function. The function runs in the thread completing this future, so it should be cheap.
+     */
+    public <O> RequestFuture<O> map(final Function<? super T, ? extends O> function) {
+        final RequestFuture<O> derived = new RequestFuture<O>();
+        derived.cancelAlso(this);
+
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (forwardUnsuccessfulOutcome(derived)) {
+                    return;
+                }
+                try {
+                    derived.complete(function.apply(result));
+                } catch (MendeleyException e) {
+                    derived.fail(e);
+                } catch (RuntimeException e) {
+                    derived.fail(new MendeleyException("Error transforming the result", e));
+                }
+            }
+        });
+
+        return derived;
+    }
+
+    /**
+     * Returns a future that will complete with the outcome of the future returned by the passed
+     * function, which is invoked with the result of this one.
+     * Use it to launch one {@link Request} that depends on the result of a previous one.
+     */
+    public <O> RequestFuture<O> then(final AsyncFunction<? super T, O> function) {
+        final RequestFuture<O> derived = new RequestFuture<O>();
+        derived.cancelAlso(this);
+
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (forwardUnsuccessfulOutcome(derived)) {
+                    return;
+                }
+                final RequestFuture<O> next;
+                try {
+                    next = function.apply(result);
+                } catch (MendeleyException e) {
+                    derived.fail(e);
+                    return;
+                } catch (RuntimeException e) {
+                    derived.fail(new MendeleyException("Error chaining the result", e));
+                    return;
+                }
+                derived.cancelAlso(next);
+                next.forwardOutcome(derived);
+            }
+        });
+
+        return derived;
+    }
+
+    /**
+     * Returns a future that will complete with the outcome of this one, or will fail with a
+     * {@link RequestTimeoutException} if it does not complete in the given time. In this case this
+     * future gets cancelled.
+     */
+    public RequestFuture<T> withTimeout(long timeout, TimeUnit unit) {
+        final RequestFuture<T> derived = new RequestFuture<T>();
+        derived.cancelAlso(this);
+
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        final ScheduledFuture<?> timer = getTimeoutScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (timedOut.compareAndSet(false, true)) {
+                    cancel(false);
+                    derived.fail(new RequestTimeoutException("Operation timed out"));
+                }
+            }
+        }, timeout, unit);
+
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                timer.cancel(false);
+                if (!timedOut.get() && !forwardUnsuccessfulOutcome(derived)) {
+                    derived.complete(result);
+                }
+            }
+        });
+
+        return derived;
+    }
+
+    /**
+     * Returns a future that will complete with the results of all the passed futures, in the
+     * same order. If any of them fails or is cancelled, the returned future fails or is cancelled
+     * straight away and the remaining ones are cancelled.
+     */
+    public static <T> RequestFuture<List<T>> allOf(final List<? extends RequestFuture<? extends T>> futures) {
+        final RequestFuture<List<T>> aggregate = new RequestFuture<List<T>>();
+        if (futures.isEmpty()) {
+            aggregate.complete(Collections.<T>emptyList());
+            return aggregate;
+        }
+
+        for (RequestFuture<? extends T> future : futures) {
+            aggregate.cancelAlso(future);
+        }
+
+        final AtomicInteger pending = new AtomicInteger(futures.size());
+        for (final RequestFuture<? extends T> future : futures) {
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.forwardUnsuccessfulOutcome(aggregate)) {
+                        cancelAll(futures);
+                        return;
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        final List<T> results = new ArrayList<T>(futures.size());
+                        for (RequestFuture<? extends T> f : futures) {
+                            results.add(f.result);
+                        }
+                        aggregate.complete(results);
+                    }
+                }
+            });
+        }
+
+        return aggregate;
+    }
+
+    /**
+     * Returns a future that will complete with the results of the two passed futures, merged
+     * using the combiner. Failure or cancellation are handled as in {@link #allOf(List)}.
+     */
+    public static <A, B, O> RequestFuture<O> zip(final RequestFuture<A> first, final RequestFuture<B> second, final Combiner<? super A, ? super B, ? extends O> combiner) {
+        final List<RequestFuture<?>> both = new ArrayList<RequestFuture<?>>(2);
+        both.add(first);
+        both.add(second);
+
+        return RequestFuture.<Object>allOf(both).map(new Function<List<Object>, O>() {
+            @Override
+            public O apply(List<Object> input) throws MendeleyException {
+                return combiner.combine(first.result, second.result);
+            }
+        });
+    }
+
+    private static void cancelAll(List<? extends RequestFuture<?>> futures) {
+        for (RequestFuture<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getTimeoutScheduler() {
+        if (sTimeoutScheduler == null) {
+            sTimeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "MendeleySdkTimeouts");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sTimeoutScheduler;
+    }
+
+    /**
+     * Makes the cancellation of this future cancel also the passed one.
+     */
+    private void cancelAlso(final RequestFuture<?> upstream) {
+        addCancellationListener(new Runnable() {
+            @Override
+            public void run() {
+                upstream.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Completes the target future with the outcome of this one, once known.
+     */
+    private void forwardOutcome(final RequestFuture<T> target) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (!forwardUnsuccessfulOutcome(target)) {
+                    target.complete(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * Propagates the failure or cancellation of this (completed) future to the target.
+     *
+     * @return true if this future did not succeed
+     */
+    private boolean forwardUnsuccessfulOutcome(RequestFuture<?> target) {
+        final State finalState;
+        synchronized (this) {
+            finalState = state;
+        }
+        if (finalState == State.FAILED) {
+            target.fail(error);
+            return true;
+        } else if (finalState == State.CANCELLED) {
+            target.cancel(false);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean transition(State newState, T result, MendeleyException error) {
+        final List<Runnable> listeners = new ArrayList<Runnable>();
+
+        synchronized (this) {
+            if (state != State.PENDING) {
+                return false;
+            }
+            this.state = newState;
+            this.result = result;
+            this.error = error;
+
+            if (newState == State.CANCELLED) {
+                listeners.addAll(cancellationListeners);
+            }
+            listeners.addAll(completionListeners);
+            cancellationListeners.clear();
+            completionListeners.clear();
+
+            notifyAll();
+        }
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    private T report() throws ExecutionException {
+        if (state == State.SUCCEEDED) {
+            return result;
+        } else if (state == State.FAILED) {
+            throw new ExecutionException(error);
+        }
+        throw new CancellationException("Operation was cancelled");
+    }
+
+    /**
+     * Callback invoked upon completion of one {@link RequestFuture}.
+     *
+     * @param <T> type of the result
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        void onFailure(MendeleyException mendeleyException);
+
+        void onCancelled();
+    }
+
+    /**
+     * Synchronous transformation of the result of one {@link RequestFuture}.
+     */
+    public interface Function<I, O> {
+        O apply(I input) throws MendeleyException;
+    }
+
+    /**
+     * Transformation of the result of one {@link RequestFuture} into a new asynchronous operation.
+     */
+    public interface AsyncFunction<I, O> {
+        RequestFuture<O> apply(I input) throws MendeleyException;
+    }
+
+    /**
+     * Merges the results of two {@link RequestFuture}s.
+     */
+    public interface Combiner<A, B, O> {
+        O combine(A first, B second) throws MendeleyException;
+    }
+}
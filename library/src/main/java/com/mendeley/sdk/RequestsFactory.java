@@ -10,6 +10,7 @@ import com.mendeley.sdk.model.Group;
 import com.mendeley.sdk.model.Profile;
 import com.mendeley.sdk.model.ReadPosition;
 import com.mendeley.sdk.model.UserRole;
+import com.mendeley.sdk.request.BulkRequest;
 import com.mendeley.sdk.request.endpoint.AnnotationsEndpoint;
 import com.mendeley.sdk.request.endpoint.DocumentEndpoint;
 import com.mendeley.sdk.request.endpoint.FilesEndpoint;
@@ -17,9 +18,11 @@ import com.mendeley.sdk.request.endpoint.FoldersEndpoint;
 import com.mendeley.sdk.request.endpoint.GroupsEndpoint;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Factory for creating typical {@link Request}s to interact against the Mendeley API.
@@ -97,6 +100,27 @@ public interface RequestsFactory {
      */
     Request<List<Document>> newGetDocumentsRequest(Uri url);
 
+    /**
+     * Obtains a {@link Request} to retrieve the list of {@link Document}s, reading only some of
+     * their fields. This is cheaper when not all of them are needed, like when displaying a list.
+     *
+     * @param parameters used  to configure the query. Can be null.
+     * @param fields the fields to read. The rest of them will be null in the returned documents.
+     * @return the request
+     */
+    Request<List<Document>> newGetDocumentsRequest(DocumentEndpoint.DocumentRequestParameters parameters, Set<Document.Field> fields);
+
+    /**
+     * Obtains a {@link Request} to retrieve the list of {@link Document}s, reading only some of
+     * their fields.
+     *
+     * @param url the URL of the request.
+     *            May be the {@link Request.Response#next} field of a previous request.
+     * @param fields the fields to read. The rest of them will be null in the returned documents.
+     * @return the request
+     */
+    Request<List<Document>> newGetDocumentsRequest(Uri url, Set<Document.Field> fields);
+
     /**
      * Obtains a {@link Request} to retrieve one single {@link Document} by its id.
      *
@@ -174,6 +198,50 @@ public interface RequestsFactory {
      */
     Request<Void> newRestoreTrashedDocumentRequest(String documentId);
 
+    /**
+     * Obtains a {@link Request} to move several documents to the trash, running up to
+     * {@link BulkRequest#DEFAULT_MAX_CONCURRENT_REQUESTS} requests at a time.
+     *
+     * @param documentIds the ids of the documents to trash
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newTrashDocumentsRequest(Collection<String> documentIds);
+
+    /**
+     * Obtains a {@link Request} to permanently delete several documents which are NOT in the
+     * trash, running up to {@link BulkRequest#DEFAULT_MAX_CONCURRENT_REQUESTS} requests at a time.
+     *
+     * @param documentIds the ids of the documents to delete
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newDeleteDocumentsRequest(Collection<String> documentIds);
+
+    /**
+     * Obtains a {@link Request} to permanently delete several documents which are in the trash,
+     * running up to {@link BulkRequest#DEFAULT_MAX_CONCURRENT_REQUESTS} requests at a time.
+     *
+     * @param documentIds the ids of the documents to delete
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newDeleteTrashedDocumentsRequest(Collection<String> documentIds);
+
+    /**
+     * Obtains a {@link Request} to permanently delete all the documents in the trash, going
+     * through all its pages.
+     *
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newEmptyTrashRequest();
+
+    /**
+     * Obtains a {@link Request} to restore several documents from the trash, running up to
+     * {@link BulkRequest#DEFAULT_MAX_CONCURRENT_REQUESTS} requests at a time.
+     *
+     * @param documentIds the ids of the documents to restore
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newRestoreTrashedDocumentsRequest(Collection<String> documentIds);
+
     /**
      * Obtains a {@link Request} to get a list of the @{link File}s in the user's library.
      *
@@ -314,6 +382,17 @@ public interface RequestsFactory {
      */
     Request<Void> newDeleteDocumentFromFolderRequest(String folderId, String documentId);
 
+    /**
+     * Obtains a {@link Request} to delete several documents from one folder, running up to
+     * {@link BulkRequest#DEFAULT_MAX_CONCURRENT_REQUESTS} requests at a time.
+     * The documents won't be deleted.
+     *
+     * @param folderId the id of the folder
+     * @param documentIds the ids of the documents
+     * @return the request, completing with the outcome of each document
+     */
+    Request<BulkRequest.Result> newDeleteDocumentsFromFolderRequest(String folderId, Collection<String> documentIds);
+
     /**
      * Obtains a {@link Request} to retrieve the list of {@link Group}s in the user library.
      *
@@ -0,0 +1,248 @@
+package com.mendeley.sdk.cache;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed store of the binaries of the {@link com.mendeley.sdk.model.File}s, named by
+ * their {@link com.mendeley.sdk.model.File#fileHash}, limited in size.
+ * <p/>
+ * As files are stored by hash, the same binary attached to documents of several groups is stored
+ * once, and it is found before any network call whatever the file id used to get it.
+ * <p/>
+ * The cache keeps an in-memory index of its files, so checking whether a file is cached doesn't
+ * touch the disk. Files are written to a temporary file from {@link #newTempFile(String)} and
+ * then moved into the cache with {@link #publish(String, File)}, which is an atomic rename, so a
+ * file in the cache is always complete.
+ * <p/>
+ * When the cache exceeds its size, the least recently used files are deleted, except the ones
+ * pinned with {@link #pin(String)}, typically because they are open.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class FileCache {
+
+    // subdirectory owned by the cache, so that other files of the passed directory are never touched
+    static final String DIRECTORY_NAME = "mendeley_file_cache";
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    // extension added by FilesEndpoint.GetFileBinaryRequest to a temp file while it is written
+    private static final String PARTIAL_EXTENSION = ".part";
+
+    private final File directory;
+    private final long maxSize;
+
+    // file hash -> size, in least recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    // file hash -> number of pins
+    private final Map<String, Integer> pins = new HashMap<String, Integer>();
+
+    private final AtomicLong tempFileCount = new AtomicLong();
+    private long size;
+
+    /**
+     * @param directory directory in which the cache creates its own subdirectory to store the
+     *                  files, such as {@link android.content.Context#getCacheDir()}. Files found in
+     *                  that subdirectory are added to the cache, and temporary ones left by a
+     *                  previous process are deleted. Other files of the directory are left alone.
+     * @param maxSize maximum number of bytes of all the files
+     */
+    public FileCache(File directory, long maxSize) {
+        this.directory = new File(directory, DIRECTORY_NAME);
+        this.maxSize = maxSize;
+        this.directory.mkdirs();
+        loadEntries();
+    }
+
+    /**
+     * @return the file with the hash, or null if it is not in the cache
+     */
+    public synchronized File get(String fileHash) {
+        if (entries.get(fileHash) == null) {
+            return null;
+        }
+        final File file = getPath(fileHash);
+        // keeps the order of use for the next processes
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized boolean contains(String fileHash) {
+        return entries.containsKey(fileHash);
+    }
+
+    /**
+     * @return a new file in the directory of the cache where the file with the hash can be
+     *         written before being published, so that the rename is atomic
+     * @throws IllegalArgumentException if the hash is not hexadecimal
+     */
+    public File newTempFile(String fileHash) {
+        checkFileHash(fileHash);
+        return new File(directory, fileHash + "." + tempFileCount.incrementAndGet() + TEMP_EXTENSION);
+    }
+
+    /**
+     * Moves the completely written file into the cache. If the cache already has a file with the
+     * hash, the passed one is deleted.
+     *
+     * @param fileHash hash of the content of the file
+     * @param tempFile file obtained from {@link #newTempFile(String)}
+     * @return the file in the cache
+     * @throws IOException if the file can't be moved into the cache
+     * @throws IllegalArgumentException if the hash is not hexadecimal
+     */
+    public synchronized File publish(String fileHash, File tempFile) throws IOException {
+        final File file = getPath(fileHash);
+        if (entries.containsKey(fileHash)) {
+            tempFile.delete();
+            return file;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Cannot move " + tempFile + " into the cache");
+        }
+        final long length = file.length();
+        entries.put(fileHash, length);
+        size += length;
+        trimToSize();
+        return file;
+    }
+
+    /**
+     * Removes the file from the cache, unless it is pinned.
+     *
+     * @return true if the file was removed
+     */
+    public synchronized boolean remove(String fileHash) {
+        if (pins.containsKey(fileHash)) {
+            return false;
+        }
+        final Long length = entries.remove(fileHash);
+        if (length == null) {
+            return false;
+        }
+        getPath(fileHash).delete();
+        size -= length;
+        return true;
+    }
+
+    /**
+     * Keeps the file from being evicted until {@link #unpin(String)} is called as many times.
+     * Files can be pinned before they are published.
+     */
+    public synchronized void pin(String fileHash) {
+        final Integer count = pins.get(fileHash);
+        pins.put(fileHash, count == null ? 1 : count + 1);
+    }
+
+    public synchronized void unpin(String fileHash) {
+        final Integer count = pins.get(fileHash);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pins.put(fileHash, count - 1);
+        } else {
+            pins.remove(fileHash);
+            trimToSize();
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of bytes of all the files in the cache
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Deletes the least recently used files, except the pinned ones, until the cache fits in its
+     * maximum size.
+     */
+    public synchronized void trimToSize() {
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            getPath(entry.getKey()).delete();
+            size -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private File getPath(String fileHash) {
+        checkFileHash(fileHash);
+        return new File(directory, fileHash);
+    }
+
+    /**
+     * Hashes are used as file names, so anything else, like a path separator or "..", could
+     * reach files outside the cache.
+     */
+    private static void checkFileHash(String fileHash) {
+        if (!isFileHash(fileHash)) {
+            throw new IllegalArgumentException("Not a file hash: " + fileHash);
+        }
+    }
+
+    private static boolean isFileHash(String name) {
+        if (name == null || name.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.digit(name.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void loadEntries() {
+        final File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                // names of cached files are hashes, temporary files are left by interrupted
+                // downloads, partly written either by the cache or by the request
+                final String name = file.getName();
+                if (name.contains(TEMP_EXTENSION) || name.endsWith(PARTIAL_EXTENSION)) {
+                    file.delete();
+                    return false;
+                }
+                return isFileHash(name) && file.isFile();
+            }
+        });
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                final long lhsModified = lhs.lastModified();
+                final long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            final long length = file.length();
+            entries.put(file.getName(), length);
+            size += length;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.mendeley.sdk.cache;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.exceptions.HttpResponseException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.Photo;
+import com.mendeley.sdk.request.OkHttpAuthorizedRequest;
+import com.mendeley.sdk.util.HashUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Loads the {@link Photo}s of profiles as {@link Bitmap}s of the size of the views showing them,
+ * so that lists of group members or annotation authors can scroll without downloading or
+ * decoding images in the main thread.
+ * <p/>
+ * Decoded bitmaps are kept in a memory cache limited in bytes, and the downloaded images in a
+ * {@link FileCache}. Images are decoded downsampled to the smallest power of two that is not
+ * smaller than the requested size, and loads of the same image and size made while one is in
+ * progress share it.
+ * <p/>
+ * Bitmaps can be looked up synchronously with {@link #getCached(String, int, int)} when binding
+ * a view, and loaded otherwise with {@link #load(String, int, int)}, whose futures complete in a
+ * background thread.
+ */
+public class ProfilePhotoCache {
+
+    public static final String DIRECTORY_NAME = "mendeley_photos";
+    public static final long DEFAULT_MAX_DISK_SIZE = 10 * 1024 * 1024;
+
+    private static final int THREAD_COUNT = 3;
+
+    private static ProfilePhotoCache sInstance;
+
+    private final FileCache diskCache;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final OkHttpClient httpClient = OkHttpAuthorizedRequest.getOkHttpClient();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkPhotos #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // memory key -> load in progress
+    private final Map<String, RequestFuture<Bitmap>> loads = new HashMap<String, RequestFuture<Bitmap>>();
+
+    /**
+     * Obtains the cache of the app, storing the images in its cache directory and keeping in
+     * memory up to one eighth of its heap.
+     * <p/>
+     * The same instance is returned by every call, as each cache has its own threads and several
+     * ones must not share the same disk cache.
+     */
+    public static synchronized ProfilePhotoCache obtain(Context context) {
+        if (sInstance == null) {
+            final java.io.File directory = new java.io.File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+            final int maxMemorySize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+            sInstance = new ProfilePhotoCache(new FileCache(directory, DEFAULT_MAX_DISK_SIZE), maxMemorySize);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Creates a cache with threads of its own. Callers keep the instance for as long as they
+     * need it, and never create another one over the same disk cache.
+     *
+     * @param diskCache where the downloaded images are stored
+     * @param maxMemorySize maximum number of bytes of the decoded bitmaps kept in memory
+     */
+    public ProfilePhotoCache(FileCache diskCache, int maxMemorySize) {
+        this.diskCache = diskCache;
+        this.memoryCache = new LruCache<String, Bitmap>(maxMemorySize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return the url of the photo best suited to show it in a view of the size
+     */
+    public static String getUrl(Photo photo, int width, int height) {
+        if (width == height && photo.square != null) {
+            return photo.square;
+        }
+        return photo.standard != null ? photo.standard : photo.original;
+    }
+
+    /**
+     * @return the bitmap of the image for a view of the size, or null if it is not in memory
+     */
+    public Bitmap getCached(String url, int width, int height) {
+        return memoryCache.get(getMemoryKey(url, width, height));
+    }
+
+    /**
+     * Loads the photo for a view of the size, from memory, disk or network.
+     *
+     * @return future that will complete with the bitmap, at least as big as the size unless the
+     *         image is smaller
+     */
+    public RequestFuture<Bitmap> load(Photo photo, int width, int height) {
+        return load(getUrl(photo, width, height), width, height);
+    }
+
+    /**
+     * Loads the image for a view of the size, from memory, disk or network.
+     *
+     * @return future that will complete with the bitmap, at least as big as the size unless the
+     *         image is smaller
+     */
+    public synchronized RequestFuture<Bitmap> load(final String url, final int width, final int height) {
+        if (url == null) {
+            return RequestFuture.failed(new MendeleyException("The photo has no image url"));
+        }
+
+        final String memoryKey = getMemoryKey(url, width, height);
+        final Bitmap cached = memoryCache.get(memoryKey);
+        if (cached != null) {
+            return RequestFuture.succeeded(cached);
+        }
+
+        final RequestFuture<Bitmap> inProgress = loads.get(memoryKey);
+        if (inProgress != null) {
+            return inProgress;
+        }
+
+        final RequestFuture<Bitmap> future = new RequestFuture<Bitmap>();
+        loads.put(memoryKey, future);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Bitmap bitmap = decode(getFile(url), width, height);
+                    if (bitmap == null) {
+                        throw new MendeleyException("Cannot decode image " + url);
+                    }
+                    memoryCache.put(memoryKey, bitmap);
+                    future.complete(bitmap);
+                } catch (MendeleyException e) {
+                    future.fail(e);
+                } catch (RuntimeException e) {
+                    // such as a malformed url
+                    future.fail(new MendeleyException("Unexpected error loading image " + url, e));
+                } finally {
+                    onLoaded(memoryKey);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Releases the bitmaps held in memory, typically when the app is asked to trim its memory.
+     */
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    private synchronized void onLoaded(String memoryKey) {
+        loads.remove(memoryKey);
+    }
+
+    /**
+     * @return the file with the image, downloading it if it's not on disk
+     */
+    private java.io.File getFile(String url) throws MendeleyException {
+        final String fileHash = getDiskKey(url);
+        final java.io.File cached = diskCache.get(fileHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        final java.io.File tempFile = diskCache.newTempFile(fileHash);
+        ResponseBody body = null;
+        FileOutputStream outputStream = null;
+        try {
+            final Response response = httpClient.newCall(new Request.Builder().url(url).build()).execute();
+            body = response.body();
+            if (!response.isSuccessful()) {
+                throw new HttpResponseException(response.code(), response.message(), url);
+            }
+
+            outputStream = new FileOutputStream(tempFile);
+            final InputStream inputStream = body.byteStream();
+            final byte[] buffer = new byte[1024 * 16];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            outputStream.close();
+            outputStream = null;
+
+            return diskCache.publish(fileHash, tempFile);
+        } catch (IOException e) {
+            throw new MendeleyException("IO error downloading image " + url, e);
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (body != null) {
+                body.close();
+            }
+            tempFile.delete();
+        }
+    }
+
+    private static Bitmap decode(java.io.File file, int width, int height) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, width, height);
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    /**
+     * @return the largest power of two the image can be downsampled by while staying at least
+     *         as big as the requested size
+     */
+    static int getSampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return sampleSize;
+        }
+        while (imageWidth / (sampleSize * 2) >= width && imageHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static String getMemoryKey(String url, int width, int height) {
+        return width + "x" + height + ":" + url;
+    }
+
+    /**
+     * @return the name of the image in the disk cache, as urls are not valid file names
+     */
+    private static String getDiskKey(String url) {
+        try {
+            return HashUtils.toHex(HashUtils.newSha1Digest().digest(url.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.mendeley.sdk.cache;
+
+import java.io.IOException;
+
+/**
+ * Encodes and decodes one type of model in the records of a snapshot.
+ * <p/>
+ * Each field of the model is written with its own tag. When reading, fields with unknown tags
+ * are ignored, so new fields can be added without breaking existing snapshots.
+ *
+ * @param <T> type of the model
+ */
+public interface SnapshotCodec<T> {
+
+    /**
+     * @return identifier of the type of records, stored in the header of the snapshot
+     */
+    byte getKind();
+
+    void write(T record, SnapshotRecordWriter out) throws IOException;
+
+    T read(SnapshotRecordReader in) throws IOException;
+}
@@ -0,0 +1,362 @@
+package com.mendeley.sdk.cache;
+
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.model.Folder;
+import com.mendeley.sdk.model.Person;
+import com.mendeley.sdk.model.Point;
+import com.mendeley.sdk.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SnapshotCodec}s for the models of the SDK.
+ * <p/>
+ * Tags are part of the snapshot format: never change the tag of an existing field, use new
+ * ones for new fields instead.
+ */
+public class SnapshotCodecs {
+
+    public static final SnapshotCodec<Document> DOCUMENTS = new DocumentCodec();
+    public static final SnapshotCodec<Folder> FOLDERS = new FolderCodec();
+    public static final SnapshotCodec<Annotation> ANNOTATIONS = new AnnotationCodec();
+    public static final SnapshotCodec<File> FILES = new FileCodec();
+
+    private SnapshotCodecs() {
+    }
+
+    private static class DocumentCodec implements SnapshotCodec<Document> {
+
+        private static final int LAST_MODIFIED = 1;
+        private static final int GROUP_ID = 2;
+        private static final int PROFILE_ID = 3;
+        private static final int READ = 4;
+        private static final int STARRED = 5;
+        private static final int AUTHORED = 6;
+        private static final int CONFIRMED = 7;
+        private static final int HIDDEN = 8;
+        private static final int ID = 9;
+        private static final int TYPE = 10;
+        private static final int MONTH = 11;
+        private static final int YEAR = 12;
+        private static final int DAY = 13;
+        private static final int SOURCE = 14;
+        private static final int TITLE = 15;
+        private static final int REVISION = 16;
+        private static final int CREATED = 17;
+        private static final int IDENTIFIERS = 18;
+        private static final int ABSTRACT = 19;
+        private static final int AUTHORS = 20;
+        private static final int PAGES = 21;
+        private static final int VOLUME = 22;
+        private static final int ISSUE = 23;
+        private static final int PUBLISHER = 24;
+        private static final int CITY = 25;
+        private static final int EDITION = 26;
+        private static final int INSTITUTION = 27;
+        private static final int SERIES = 28;
+        private static final int CHAPTER = 29;
+        private static final int EDITORS = 30;
+        private static final int TAGS = 31;
+        private static final int FILE_ATTACHED = 32;
+        private static final int KEYWORDS = 33;
+        private static final int WEBSITES = 34;
+        private static final int CLIENT_DATA = 35;
+        private static final int UNIQUE_ID = 36;
+
+        @Override
+        public byte getKind() {
+            return 1;
+        }
+
+        @Override
+        public void write(Document doc, SnapshotRecordWriter out) {
+            out.writeDate(LAST_MODIFIED, doc.lastModified);
+            out.writeString(GROUP_ID, doc.groupId);
+            out.writeString(PROFILE_ID, doc.profileId);
+            out.writeBoolean(READ, doc.read);
+            out.writeBoolean(STARRED, doc.starred);
+            out.writeBoolean(AUTHORED, doc.authored);
+            out.writeBoolean(CONFIRMED, doc.confirmed);
+            out.writeBoolean(HIDDEN, doc.hidden);
+            out.writeString(ID, doc.id);
+            out.writeString(TYPE, doc.type);
+            out.writeInt(MONTH, doc.month);
+            out.writeInt(YEAR, doc.year);
+            out.writeInt(DAY, doc.day);
+            out.writeString(SOURCE, doc.source);
+            out.writeString(TITLE, doc.title);
+            out.writeString(REVISION, doc.revision);
+            out.writeDate(CREATED, doc.created);
+            out.writeStringMap(IDENTIFIERS, nullIfNull(doc.identifiers));
+            out.writeString(ABSTRACT, doc.abstractString);
+            out.writeStringList(AUTHORS, personsToStrings(doc.authors));
+            out.writeString(PAGES, doc.pages);
+            out.writeString(VOLUME, doc.volume);
+            out.writeString(ISSUE, doc.issue);
+            out.writeString(PUBLISHER, doc.publisher);
+            out.writeString(CITY, doc.city);
+            out.writeString(EDITION, doc.edition);
+            out.writeString(INSTITUTION, doc.institution);
+            out.writeString(SERIES, doc.series);
+            out.writeString(CHAPTER, doc.chapter);
+            out.writeStringList(EDITORS, personsToStrings(doc.editors));
+            out.writeStringList(TAGS, nullIfNull(doc.tags));
+            out.writeBoolean(FILE_ATTACHED, doc.fileAttached);
+            out.writeStringList(KEYWORDS, nullIfNull(doc.keywords));
+            out.writeStringList(WEBSITES, nullIfNull(doc.websites));
+            out.writeString(CLIENT_DATA, doc.clientData);
+            out.writeString(UNIQUE_ID, doc.uniqueId);
+        }
+
+        @Override
+        public Document read(SnapshotRecordReader in) {
+            final Document.Builder bld = new Document.Builder();
+            while (in.nextField()) {
+                switch (in.getTag()) {
+                    case LAST_MODIFIED: bld.setLastModified(in.readDate()); break;
+                    case GROUP_ID: bld.setGroupId(in.readString()); break;
+                    case PROFILE_ID: bld.setProfileId(in.readString()); break;
+                    case READ: bld.setRead(in.readBoolean()); break;
+                    case STARRED: bld.setStarred(in.readBoolean()); break;
+                    case AUTHORED: bld.setAuthored(in.readBoolean()); break;
+                    case CONFIRMED: bld.setConfirmed(in.readBoolean()); break;
+                    case HIDDEN: bld.setHidden(in.readBoolean()); break;
+                    case ID: bld.setId(in.readString()); break;
+                    case TYPE: bld.setType(in.readString()); break;
+                    case MONTH: bld.setMonth(in.readInt()); break;
+                    case YEAR: bld.setYear(in.readInt()); break;
+                    case DAY: bld.setDay(in.readInt()); break;
+                    case SOURCE: bld.setSource(in.readString()); break;
+                    case TITLE: bld.setTitle(in.readString()); break;
+                    case REVISION: bld.setRevision(in.readString()); break;
+                    case CREATED: bld.setCreated(in.readDate()); break;
+                    case IDENTIFIERS: bld.setIdentifiers(in.readStringMap()); break;
+                    case ABSTRACT: bld.setAbstractString(in.readString()); break;
+                    case AUTHORS: bld.setAuthors(stringsToPersons(in.readStringList())); break;
+                    case PAGES: bld.setPages(in.readString()); break;
+                    case VOLUME: bld.setVolume(in.readString()); break;
+                    case ISSUE: bld.setIssue(in.readString()); break;
+                    case PUBLISHER: bld.setPublisher(in.readString()); break;
+                    case CITY: bld.setCity(in.readString()); break;
+                    case EDITION: bld.setEdition(in.readString()); break;
+                    case INSTITUTION: bld.setInstitution(in.readString()); break;
+                    case SERIES: bld.setSeries(in.readString()); break;
+                    case CHAPTER: bld.setChapter(in.readString()); break;
+                    case EDITORS: bld.setEditors(stringsToPersons(in.readStringList())); break;
+                    case TAGS: bld.setTags(in.readStringList()); break;
+                    case FILE_ATTACHED: bld.setFileAttached(in.readBoolean()); break;
+                    case KEYWORDS: bld.setKeywords(in.readStringList()); break;
+                    case WEBSITES: bld.setWebsites(in.readStringList()); break;
+                    case CLIENT_DATA: bld.setClientData(in.readString()); break;
+                    case UNIQUE_ID: bld.setUniqueId(in.readString()); break;
+                    default: break;
+                }
+            }
+            return bld.build();
+        }
+
+        private static List<String> personsToStrings(List<Person> persons) {
+            if (nullIfNull(persons) == null) {
+                return null;
+            }
+            final List<String> strings = new ArrayList<String>(persons.size() * 2);
+            for (Person person : persons) {
+                strings.add(person.firstName);
+                strings.add(person.lastName);
+            }
+            return strings;
+        }
+
+        private static List<Person> stringsToPersons(List<String> strings) {
+            final List<Person> persons = new ArrayList<Person>(strings.size() / 2);
+            for (int i = 0; i + 1 < strings.size(); i += 2) {
+                persons.add(new Person(strings.get(i), strings.get(i + 1)));
+            }
+            return persons;
+        }
+    }
+
+    private static class FolderCodec implements SnapshotCodec<Folder> {
+
+        private static final int NAME = 1;
+        private static final int ID = 2;
+        private static final int PARENT_ID = 3;
+        private static final int GROUP_ID = 4;
+        private static final int ADDED = 5;
+
+        @Override
+        public byte getKind() {
+            return 2;
+        }
+
+        @Override
+        public void write(Folder folder, SnapshotRecordWriter out) {
+            out.writeString(NAME, folder.name);
+            out.writeString(ID, folder.id);
+            out.writeString(PARENT_ID, folder.parentId);
+            out.writeString(GROUP_ID, folder.groupId);
+            out.writeDate(ADDED, folder.added);
+        }
+
+        @Override
+        public Folder read(SnapshotRecordReader in) {
+            final Folder.Builder bld = new Folder.Builder();
+            while (in.nextField()) {
+                switch (in.getTag()) {
+                    case NAME: bld.setName(in.readString()); break;
+                    case ID: bld.setId(in.readString()); break;
+                    case PARENT_ID: bld.setParentId(in.readString()); break;
+                    case GROUP_ID: bld.setGroupId(in.readString()); break;
+                    case ADDED: bld.setAdded(in.readDate()); break;
+                    default: break;
+                }
+            }
+            return bld.build();
+        }
+    }
+
+    private static class AnnotationCodec implements SnapshotCodec<Annotation> {
+
+        private static final int ID = 1;
+        private static final int TYPE = 2;
+        private static final int PREVIOUS_ID = 3;
+        private static final int COLOR = 4;
+        private static final int TEXT = 5;
+        private static final int PROFILE_ID = 6;
+        private static final int POSITIONS = 7;
+        private static final int CREATED = 8;
+        private static final int LAST_MODIFIED = 9;
+        private static final int PRIVACY_LEVEL = 10;
+        private static final int FILE_HASH = 11;
+        private static final int DOCUMENT_ID = 12;
+
+        // page, top left x and y, bottom right x and y
+        private static final int DOUBLES_PER_POSITION = 5;
+
+        @Override
+        public byte getKind() {
+            return 3;
+        }
+
+        @Override
+        public void write(Annotation annotation, SnapshotRecordWriter out) {
+            out.writeString(ID, annotation.id);
+            out.writeString(TYPE, annotation.type != null ? annotation.type.name : null);
+            out.writeString(PREVIOUS_ID, annotation.previousId);
+            out.writeInt(COLOR, annotation.color);
+            out.writeString(TEXT, annotation.text);
+            out.writeString(PROFILE_ID, annotation.profileId);
+            out.writeDoubles(POSITIONS, positionsToDoubles(annotation.positions));
+            out.writeDate(CREATED, annotation.created);
+            out.writeDate(LAST_MODIFIED, annotation.lastModified);
+            out.writeString(PRIVACY_LEVEL, annotation.privacyLevel != null ? annotation.privacyLevel.name : null);
+            out.writeString(FILE_HASH, annotation.fileHash);
+            out.writeString(DOCUMENT_ID, annotation.documentId);
+        }
+
+        @Override
+        public Annotation read(SnapshotRecordReader in) {
+            final Annotation.Builder bld = new Annotation.Builder();
+            while (in.nextField()) {
+                switch (in.getTag()) {
+                    case ID: bld.setId(in.readString()); break;
+                    case TYPE: bld.setType(Annotation.Type.fromName(in.readString())); break;
+                    case PREVIOUS_ID: bld.setPreviousId(in.readString()); break;
+                    case COLOR: bld.setColor(in.readInt()); break;
+                    case TEXT: bld.setText(in.readString()); break;
+                    case PROFILE_ID: bld.setProfileId(in.readString()); break;
+                    case POSITIONS: bld.setPositions(doublesToPositions(in.readDoubles())); break;
+                    case CREATED: bld.setCreated(in.readDate()); break;
+                    case LAST_MODIFIED: bld.setLastModified(in.readDate()); break;
+                    case PRIVACY_LEVEL: bld.setPrivacyLevel(Annotation.PrivacyLevel.fromName(in.readString())); break;
+                    case FILE_HASH: bld.setFileHash(in.readString()); break;
+                    case DOCUMENT_ID: bld.setDocumentId(in.readString()); break;
+                    default: break;
+                }
+            }
+            return bld.build();
+        }
+
+        private static double[] positionsToDoubles(List<Annotation.Position> positions) {
+            if (nullIfNull(positions) == null) {
+                return null;
+            }
+            final double[] values = new double[positions.size() * DOUBLES_PER_POSITION];
+            int i = 0;
+            for (Annotation.Position position : positions) {
+                values[i++] = position.page != null ? position.page : Double.NaN;
+                values[i++] = position.topLeft != null ? position.topLeft.x : Double.NaN;
+                values[i++] = position.topLeft != null ? position.topLeft.y : Double.NaN;
+                values[i++] = position.bottomRight != null ? position.bottomRight.x : Double.NaN;
+                values[i++] = position.bottomRight != null ? position.bottomRight.y : Double.NaN;
+            }
+            return values;
+        }
+
+        private static List<Annotation.Position> doublesToPositions(double[] values) {
+            final List<Annotation.Position> positions = new ArrayList<Annotation.Position>(values.length / DOUBLES_PER_POSITION);
+            for (int i = 0; i + DOUBLES_PER_POSITION <= values.length; i += DOUBLES_PER_POSITION) {
+                final Integer page = Double.isNaN(values[i]) ? null : (int) values[i];
+                final Point topLeft = Double.isNaN(values[i + 1]) ? null : new Point(values[i + 1], values[i + 2]);
+                final Point bottomRight = Double.isNaN(values[i + 3]) ? null : new Point(values[i + 3], values[i + 4]);
+                positions.add(new Annotation.Position(topLeft, bottomRight, page));
+            }
+            return positions;
+        }
+    }
+
+    private static class FileCodec implements SnapshotCodec<File> {
+
+        private static final int ID = 1;
+        private static final int DOCUMENT_ID = 2;
+        private static final int MIME_TYPE = 3;
+        private static final int FILE_NAME = 4;
+        private static final int FILE_HASH = 5;
+        private static final int FILE_SIZE = 6;
+
+        @Override
+        public byte getKind() {
+            return 4;
+        }
+
+        @Override
+        public void write(File file, SnapshotRecordWriter out) {
+            out.writeString(ID, file.id);
+            out.writeString(DOCUMENT_ID, file.documentId);
+            out.writeString(MIME_TYPE, file.mimeType);
+            out.writeString(FILE_NAME, file.fileName);
+            out.writeString(FILE_HASH, file.fileHash);
+            out.writeInt(FILE_SIZE, file.fileSize);
+        }
+
+        @Override
+        public File read(SnapshotRecordReader in) {
+            final File.Builder bld = new File.Builder();
+            while (in.nextField()) {
+                switch (in.getTag()) {
+                    case ID: bld.setId(in.readString()); break;
+                    case DOCUMENT_ID: bld.setDocumentId(in.readString()); break;
+                    case MIME_TYPE: bld.setMimeType(in.readString()); break;
+                    case FILE_NAME: bld.setFileName(in.readString()); break;
+                    case FILE_HASH: bld.setFileHash(in.readString()); break;
+                    case FILE_SIZE: bld.setFileSize(in.readInt()); break;
+                    default: break;
+                }
+            }
+            return bld.build();
+        }
+    }
+
+    /**
+     * @return null if the collection is a null {@link Nullable} one, or the collection otherwise
+     */
+    private static <C> C nullIfNull(C collection) {
+        if (collection instanceof Nullable && ((Nullable) collection).isNull()) {
+            return null;
+        }
+        return collection;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mendeley.sdk.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of the snapshot files, shared by {@link SnapshotWriter} and {@link SnapshotReader}.
+ * <p/>
+ * <pre>
+ * header:       int magic, short version, byte kind, int recordCount,
+ *               int stringTableOffset, int indexOffset
+ * records:      for each record: varint length, then its fields.
+ *               Each field is: byte tag, varint length, payload
+ * string table: int count, int[count] offsets of the strings relative to the table,
+ *               then each string as varint length and UTF-8 bytes
+ * index:        int[recordCount] offsets of the records in the file
+ * </pre>
+ * Strings are stored once in the string table and referenced by the records using their
+ * position in it (plus one, so zero means null).
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4D534E50; // "MSNP"
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 4 + 2 + 1 + 4 + 4 + 4;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Reads the unsigned varint starting at the position. Use {@link #varintLength(int)} to know
+     * how many bytes it took.
+     */
+    static int readVarint(ByteBuffer buffer, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @return number of bytes taken by the value when encoded as an unsigned varint
+     */
+    static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,137 @@
+package com.mendeley.sdk.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the records of a snapshot written by {@link SnapshotWriter}.
+ * <p/>
+ * The file is memory mapped and records are only decoded when requested with {@link #get(int)},
+ * so big libraries can be paged lazily without deserialising all of them. Strings are decoded
+ * the first time a record references them and shared from then on.
+ * <p/>
+ * Instances are safe to use from several threads.
+ *
+ * @param <T> type of the records
+ */
+public class SnapshotReader<T> {
+
+    private final ByteBuffer buffer;
+    private final SnapshotCodec<T> codec;
+
+    private final int recordCount;
+    private final int stringTableOffset;
+    private final int indexOffset;
+
+    private final String[] strings;
+
+    /**
+     * Opens a snapshot.
+     *
+     * @param file the snapshot
+     * @param codec to decode the records. Must be the same type of codec used to write them.
+     * @throws IOException if the file can't be read, or it is not a snapshot of a supported
+     *         version and kind. Callers should discard the snapshot in that case.
+     */
+    public static <T> SnapshotReader<T> open(File file, SnapshotCodec<T> codec) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            // the mapping stays valid after closing the channel
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotReader<T>(buffer, codec);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    SnapshotReader(ByteBuffer buffer, SnapshotCodec<T> codec) throws IOException {
+        this.buffer = buffer;
+        this.codec = codec;
+
+        if (buffer.capacity() < SnapshotFormat.HEADER_SIZE || buffer.getInt(0) != SnapshotFormat.MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        final short version = buffer.getShort(4);
+        if (version != SnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        final byte kind = buffer.get(6);
+        if (kind != codec.getKind()) {
+            throw new IOException("Snapshot of kind " + kind + " can't be read with codec of kind " + codec.getKind());
+        }
+
+        recordCount = buffer.getInt(7);
+        stringTableOffset = buffer.getInt(11);
+        indexOffset = buffer.getInt(15);
+
+        // the string table starts with its count, and the index follows it
+        if (recordCount < 0 || stringTableOffset < SnapshotFormat.HEADER_SIZE
+                || indexOffset < stringTableOffset + 4L || indexOffset + 4L * recordCount > buffer.capacity()) {
+            throw new IOException("Truncated snapshot");
+        }
+
+        final int stringCount = buffer.getInt(stringTableOffset);
+        if (stringCount < 0 || stringTableOffset + 4L + 4L * stringCount > indexOffset) {
+            throw new IOException("Corrupt string table in snapshot");
+        }
+        strings = new String[stringCount];
+    }
+
+    /**
+     * @return number of records in the snapshot
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Decodes one record.
+     *
+     * @param index position of the record
+     * @return the record
+     * @throws IOException if the record can't be decoded because the file is corrupt
+     */
+    public T get(int index) throws IOException {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        try {
+            int position = buffer.getInt(indexOffset + 4 * index);
+            final int length = SnapshotFormat.readVarint(buffer, position);
+            position += SnapshotFormat.varintLength(length);
+
+            return codec.read(new SnapshotRecordReader(this, buffer, position, position + length));
+        } catch (IndexOutOfBoundsException e) {
+            // an offset or a length points out of the file
+            throw new IOException("Corrupt record " + index + " in snapshot", e);
+        } catch (NegativeArraySizeException e) {
+            throw new IOException("Corrupt record " + index + " in snapshot", e);
+        }
+    }
+
+    String getString(int id) {
+        // racy but harmless: in the worst case the same string is decoded twice
+        String string = strings[id];
+        if (string == null) {
+            string = decodeString(id);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private String decodeString(int id) {
+        int position = stringTableOffset + buffer.getInt(stringTableOffset + 4 + 4 * id);
+        final int length = SnapshotFormat.readVarint(buffer, position);
+        position += SnapshotFormat.varintLength(length);
+
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, SnapshotFormat.UTF_8);
+    }
+}
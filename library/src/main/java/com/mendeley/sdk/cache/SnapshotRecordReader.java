@@ -0,0 +1,124 @@
+package com.mendeley.sdk.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the fields of one record of a snapshot, straight from the mapped file.
+ * <p/>
+ * Typical use:
+ * <pre>
+ * while (in.nextField()) {
+ *     switch (in.getTag()) {
+ *         case TAG_TITLE: bld.setTitle(in.readString()); break;
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Fields which are not read are skipped.
+ */
+public final class SnapshotRecordReader {
+
+    private final SnapshotReader<?> snapshot;
+    private final ByteBuffer buffer;
+    private final int end;
+
+    private int next;
+    private int position;
+    private int tag;
+
+    SnapshotRecordReader(SnapshotReader<?> snapshot, ByteBuffer buffer, int start, int end) {
+        this.snapshot = snapshot;
+        this.buffer = buffer;
+        this.next = start;
+        this.end = end;
+    }
+
+    /**
+     * Moves to the next field of the record.
+     *
+     * @return false if there are no more fields
+     */
+    public boolean nextField() {
+        if (next >= end) {
+            return false;
+        }
+        position = next;
+        tag = buffer.get(position++) & 0xFF;
+        final int length = readVarint();
+        next = position + length;
+        return true;
+    }
+
+    /**
+     * @return the tag of the current field
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    public String readString() {
+        return readStringRef();
+    }
+
+    public int readInt() {
+        final int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readBoolean() {
+        return buffer.get(position++) != 0;
+    }
+
+    public Date readDate() {
+        return new Date(readLong());
+    }
+
+    public List<String> readStringList() {
+        final int size = readVarint();
+        final List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readStringRef());
+        }
+        return values;
+    }
+
+    public Map<String, String> readStringMap() {
+        final int size = readVarint();
+        final Map<String, String> values = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            values.put(readStringRef(), readStringRef());
+        }
+        return values;
+    }
+
+    public double[] readDoubles() {
+        final int size = readVarint();
+        final double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Double.longBitsToDouble(readLong());
+        }
+        return values;
+    }
+
+    private String readStringRef() {
+        final int ref = readVarint();
+        return ref == 0 ? null : snapshot.getString(ref - 1);
+    }
+
+    private int readVarint() {
+        final int value = SnapshotFormat.readVarint(buffer, position);
+        position += SnapshotFormat.varintLength(value);
+        return value;
+    }
+
+    private long readLong() {
+        final long value = buffer.getLong(position);
+        position += 8;
+        return value;
+    }
+}
@@ -0,0 +1,149 @@
+package com.mendeley.sdk.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the fields of one record of a snapshot.
+ * Null values are not written at all, so they are read back as null.
+ */
+public final class SnapshotRecordWriter {
+
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    private final List<String> strings;
+
+    private final Buffer record = new Buffer();
+    private final Buffer field = new Buffer();
+
+    SnapshotRecordWriter(List<String> strings) {
+        this.strings = strings;
+    }
+
+    public void writeString(int tag, String value) {
+        if (value == null) {
+            return;
+        }
+        writeStringRef(field, value);
+        endField(tag);
+    }
+
+    public void writeInt(int tag, Integer value) {
+        if (value == null) {
+            return;
+        }
+        writeVarint(field, (value << 1) ^ (value >> 31));
+        endField(tag);
+    }
+
+    public void writeBoolean(int tag, Boolean value) {
+        if (value == null) {
+            return;
+        }
+        field.write(value ? 1 : 0);
+        endField(tag);
+    }
+
+    public void writeDate(int tag, Date value) {
+        if (value == null) {
+            return;
+        }
+        writeLong(field, value.getTime());
+        endField(tag);
+    }
+
+    /**
+     * Writes a list of strings. The list can contain null elements.
+     */
+    public void writeStringList(int tag, List<String> values) {
+        if (values == null) {
+            return;
+        }
+        writeVarint(field, values.size());
+        for (String value : values) {
+            writeStringRef(field, value);
+        }
+        endField(tag);
+    }
+
+    public void writeStringMap(int tag, Map<String, String> values) {
+        if (values == null) {
+            return;
+        }
+        writeVarint(field, values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writeStringRef(field, entry.getKey());
+            writeStringRef(field, entry.getValue());
+        }
+        endField(tag);
+    }
+
+    public void writeDoubles(int tag, double[] values) {
+        if (values == null) {
+            return;
+        }
+        writeVarint(field, values.length);
+        for (double value : values) {
+            writeLong(field, Double.doubleToLongBits(value));
+        }
+        endField(tag);
+    }
+
+    /**
+     * Appends the record written so far, prefixed by its length, and gets ready for the next one.
+     */
+    void endRecord(ByteArrayOutputStream out) {
+        writeVarint(out, record.size());
+        out.write(record.getBytes(), 0, record.size());
+        record.reset();
+    }
+
+    private void endField(int tag) {
+        if (tag <= 0 || tag > 0xFF) {
+            throw new IllegalArgumentException("Invalid tag " + tag);
+        }
+        record.write(tag);
+        writeVarint(record, field.size());
+        record.write(field.getBytes(), 0, field.size());
+        field.reset();
+    }
+
+    private void writeStringRef(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        writeVarint(out, id + 1);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * {@link ByteArrayOutputStream} giving access to its buffer, to copy it without allocating.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        byte[] getBytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mendeley.sdk.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes lists of models in snapshot files, to be read later with {@link SnapshotReader}.
+ * <p/>
+ * The snapshot is first written in a temporary file which then replaces the target one, so
+ * readers never see half-written snapshots.
+ */
+public class SnapshotWriter {
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * Writes the records in the file, replacing it if it already exists.
+     *
+     * @param file where to write the snapshot
+     * @param records models to write
+     * @param codec to encode the models
+     */
+    public static <T> void write(File file, List<T> records, SnapshotCodec<T> codec) throws IOException {
+        final List<String> strings = new ArrayList<String>();
+        final SnapshotRecordWriter recordWriter = new SnapshotRecordWriter(strings);
+
+        // records are encoded first, as the string table is filled while doing it
+        final ByteArrayOutputStream recordsBytes = new ByteArrayOutputStream();
+        final int[] offsets = new int[records.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = SnapshotFormat.HEADER_SIZE + recordsBytes.size();
+            codec.write(records.get(i), recordWriter);
+            recordWriter.endRecord(recordsBytes);
+        }
+
+        final ByteArrayOutputStream stringTableBytes = encodeStringTable(strings);
+
+        final int stringTableOffset = SnapshotFormat.HEADER_SIZE + recordsBytes.size();
+        final int indexOffset = stringTableOffset + stringTableBytes.size();
+
+        final File tempFile = new File(file.getParent(), file.getName() + TEMP_EXTENSION);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(SnapshotFormat.MAGIC);
+            out.writeShort(SnapshotFormat.VERSION);
+            out.writeByte(codec.getKind());
+            out.writeInt(offsets.length);
+            out.writeInt(stringTableOffset);
+            out.writeInt(indexOffset);
+
+            recordsBytes.writeTo(out);
+            stringTableBytes.writeTo(out);
+
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not write snapshot " + file);
+        }
+    }
+
+    private static ByteArrayOutputStream encodeStringTable(List<String> strings) throws IOException {
+        final ByteArrayOutputStream stringsBytes = new ByteArrayOutputStream();
+        final int[] stringOffsets = new int[strings.size()];
+        final int headerSize = 4 + 4 * strings.size();
+
+        for (int i = 0; i < stringOffsets.length; i++) {
+            stringOffsets[i] = headerSize + stringsBytes.size();
+            final byte[] bytes = strings.get(i).getBytes(SnapshotFormat.UTF_8);
+            SnapshotRecordWriter.writeVarint(stringsBytes, bytes.length);
+            stringsBytes.write(bytes);
+        }
+
+        final ByteArrayOutputStream table = new ByteArrayOutputStream(headerSize + stringsBytes.size());
+        final DataOutputStream out = new DataOutputStream(table);
+        out.writeInt(stringOffsets.length);
+        for (int offset : stringOffsets) {
+            out.writeInt(offset);
+        }
+        stringsBytes.writeTo(out);
+        out.flush();
+        return table;
+    }
+}
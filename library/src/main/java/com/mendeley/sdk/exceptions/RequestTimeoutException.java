@@ -0,0 +1,11 @@
+package com.mendeley.sdk.exceptions;
+
+/**
+ * Exception thrown when an asynchronous operation did not complete in the allowed time.
+ */
+public class RequestTimeoutException extends MendeleyException {
+
+    public RequestTimeoutException(String detailMessage) {
+        super(detailMessage);
+    }
+}
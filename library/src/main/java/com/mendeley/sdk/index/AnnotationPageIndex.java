@@ -0,0 +1,244 @@
+package com.mendeley.sdk.index;
+
+import com.mendeley.sdk.model.Annotation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of the {@link Annotation.Position}s of the annotations per file and page, to find the
+ * annotations to draw over the visible part of one page of a PDF.
+ * <p/>
+ * The rectangles of each page are packed in arrays of primitives, so a query scans a few
+ * contiguous arrays instead of every annotation of the file and its objects.
+ * <p/>
+ * The index is updated incrementally with {@link #put(Annotation)} and {@link #remove(String)},
+ * so it can be filled as the pages of annotations are received and queried in the meantime.
+ * Annotations without position, like document notes, are not indexed.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class AnnotationPageIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final OrdinalTable<Annotation> annotations = new OrdinalTable<Annotation>();
+
+    // file hash -> page -> rectangles of the page
+    private final Map<String, Map<Integer, PageRects>> files = new HashMap<String, Map<Integer, PageRects>>();
+
+    /**
+     * Adds the annotation to the index, replacing the previous version if it was already indexed.
+     */
+    public void put(Annotation annotation) {
+        if (annotation.id == null) {
+            throw new IllegalArgumentException("Annotation without id");
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(annotation.id);
+            if (annotation.fileHash == null || !hasIndexablePositions(annotation)) {
+                return;
+            }
+
+            final int ordinal = annotations.add(annotation.id, annotation);
+            Map<Integer, PageRects> pages = files.get(annotation.fileHash);
+            if (pages == null) {
+                pages = new HashMap<Integer, PageRects>();
+                files.put(annotation.fileHash, pages);
+            }
+            for (Annotation.Position position : annotation.positions) {
+                if (!isIndexable(position)) {
+                    continue;
+                }
+                PageRects rects = pages.get(position.page);
+                if (rects == null) {
+                    rects = new PageRects();
+                    pages.put(position.page, rects);
+                }
+                rects.add(ordinal,
+                        (float) Math.min(position.topLeft.x, position.bottomRight.x),
+                        (float) Math.min(position.topLeft.y, position.bottomRight.y),
+                        (float) Math.max(position.topLeft.x, position.bottomRight.x),
+                        (float) Math.max(position.topLeft.y, position.bottomRight.y));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a page of annotations, typically as soon as it is received.
+     */
+    public void putAll(List<Annotation> annotations) {
+        for (Annotation annotation : annotations) {
+            put(annotation);
+        }
+    }
+
+    /**
+     * Removes the annotation from the index, if it was indexed.
+     */
+    public void remove(String annotationId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(annotationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of annotations in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return annotations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the annotations with some position in the page of the file
+     */
+    public List<Annotation> getAnnotations(String fileHash, int page) {
+        return getAnnotations(fileHash, page, -Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+    }
+
+    /**
+     * Finds the annotations with some position intersecting the visible area of the page, in the
+     * coordinates of the positions of the annotations.
+     *
+     * @return the matching annotations, each one once, in the order they were indexed
+     */
+    public List<Annotation> getAnnotations(String fileHash, int page, float left, float top, float right, float bottom) {
+        lock.readLock().lock();
+        try {
+            final Map<Integer, PageRects> pages = files.get(fileHash);
+            final PageRects rects = pages != null ? pages.get(page) : null;
+            if (rects == null) {
+                return Collections.emptyList();
+            }
+
+            final List<Annotation> results = new ArrayList<Annotation>();
+            int previousOrdinal = -1;
+            for (int i = 0; i < rects.size; i++) {
+                final int ordinal = rects.ordinals[i];
+                // the rectangles of one annotation are contiguous
+                if (ordinal == previousOrdinal) {
+                    continue;
+                }
+                final int offset = i * 4;
+                if (rects.coords[offset] <= right && rects.coords[offset + 2] >= left
+                        && rects.coords[offset + 1] <= bottom && rects.coords[offset + 3] >= top) {
+                    results.add(annotations.valueOf(ordinal));
+                    previousOrdinal = ordinal;
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String annotationId) {
+        final int ordinal = annotations.ordinalOf(annotationId);
+        if (ordinal < 0) {
+            return;
+        }
+        final Annotation annotation = annotations.valueOf(ordinal);
+        final Map<Integer, PageRects> pages = files.get(annotation.fileHash);
+        for (Annotation.Position position : annotation.positions) {
+            final PageRects rects = position.page != null ? pages.get(position.page) : null;
+            if (rects != null) {
+                rects.removeAll(ordinal);
+                if (rects.size == 0) {
+                    pages.remove(position.page);
+                }
+            }
+        }
+        if (pages.isEmpty()) {
+            files.remove(annotation.fileHash);
+        }
+        annotations.remove(annotationId);
+
+        final int[] mapping = annotations.compactIfNeeded();
+        if (mapping != null) {
+            for (Map<Integer, PageRects> pagesOfFile : files.values()) {
+                for (PageRects rects : pagesOfFile.values()) {
+                    rects.map(mapping);
+                }
+            }
+        }
+    }
+
+    private static boolean hasIndexablePositions(Annotation annotation) {
+        for (Annotation.Position position : annotation.positions) {
+            if (isIndexable(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIndexable(Annotation.Position position) {
+        return position.page != null && position.topLeft != null && position.bottomRight != null;
+    }
+
+    /**
+     * Rectangles of one page, as left, top, right, bottom floats, with the ordinal of their
+     * annotation.
+     */
+    private static final class PageRects {
+        private static final float[] NO_COORDS = new float[0];
+        private static final int[] NO_ORDINALS = new int[0];
+
+        float[] coords = NO_COORDS;
+        int[] ordinals = NO_ORDINALS;
+        int size;
+
+        void add(int ordinal, float left, float top, float right, float bottom) {
+            if (size == ordinals.length) {
+                final int capacity = Math.max(4, size + (size >> 1));
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                coords = Arrays.copyOf(coords, capacity * 4);
+            }
+            ordinals[size] = ordinal;
+            final int offset = size * 4;
+            coords[offset] = left;
+            coords[offset + 1] = top;
+            coords[offset + 2] = right;
+            coords[offset + 3] = bottom;
+            size++;
+        }
+
+        void removeAll(int ordinal) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] != ordinal) {
+                    if (kept != i) {
+                        ordinals[kept] = ordinals[i];
+                        System.arraycopy(coords, i * 4, coords, kept * 4, 4);
+                    }
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+
+        void map(int[] mapping) {
+            for (int i = 0; i < size; i++) {
+                ordinals[i] = mapping[ordinals[i]];
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.mendeley.sdk.index;
+
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.Person;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index counting the documents of the library per tag, type, year and author, to display them
+ * in a sidebar and filter the library by them.
+ * <p/>
+ * The index is updated incrementally with {@link #put(Document)} and {@link #remove(String)} as
+ * documents are synced. Counts of a facet cost as much as the number of different values of the
+ * facet, and filtered counts as much as the number of documents matching the filters, never as
+ * much as the whole library.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class DocumentFacetIndex {
+
+    /**
+     * Properties of the documents which are counted.
+     */
+    public enum Facet {
+        TAG,
+        TYPE,
+        YEAR,
+        /**
+         * Authors are identified as "last name, first name"
+         */
+        AUTHOR
+    }
+
+    private static final Facet[] FACETS = Facet.values();
+    private static final String[] NO_VALUES = new String[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinals of the documents, with their values of each facet
+    private final OrdinalTable<String[][]> documents = new OrdinalTable<String[][]>();
+
+    // facet -> value -> ordinals of the documents with that value
+    private final EnumMap<Facet, Map<String, SortedIntSet>> index = new EnumMap<Facet, Map<String, SortedIntSet>>(Facet.class);
+
+    public DocumentFacetIndex() {
+        for (Facet facet : FACETS) {
+            index.put(facet, new HashMap<String, SortedIntSet>());
+        }
+    }
+
+    /**
+     * Adds the document to the index, replacing the previous version if it was already indexed.
+     */
+    public void put(Document document) {
+        if (document.id == null) {
+            throw new IllegalArgumentException("Document without id");
+        }
+
+        final String[][] facetValues = new String[FACETS.length][];
+        facetValues[Facet.TAG.ordinal()] = distinct(document.tags);
+        facetValues[Facet.TYPE.ordinal()] = document.type != null ? new String[] {document.type} : NO_VALUES;
+        facetValues[Facet.YEAR.ordinal()] = document.year != null ? new String[] {String.valueOf(document.year)} : NO_VALUES;
+        final List<String> authors = new ArrayList<String>(document.authors.size());
+        for (Person author : document.authors) {
+            if (author.lastName != null) {
+                authors.add(author.firstName != null ? author.lastName + ", " + author.firstName : author.lastName);
+            }
+        }
+        facetValues[Facet.AUTHOR.ordinal()] = distinct(authors);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.id);
+
+            final int ordinal = documents.add(document.id, facetValues);
+            for (Facet facet : FACETS) {
+                final Map<String, SortedIntSet> valuesOfFacet = index.get(facet);
+                for (String value : facetValues[facet.ordinal()]) {
+                    SortedIntSet ordinals = valuesOfFacet.get(value);
+                    if (ordinals == null) {
+                        ordinals = new SortedIntSet();
+                        valuesOfFacet.put(value, ordinals);
+                    }
+                    ordinals.add(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(List<Document> documents) {
+        for (Document document : documents) {
+            put(document);
+        }
+    }
+
+    /**
+     * Removes the document from the index, if it was indexed.
+     */
+    public void remove(String documentId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of documents in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of documents for each value of the facet
+     */
+    public Map<String, Integer> getCounts(Facet facet) {
+        lock.readLock().lock();
+        try {
+            final Map<String, SortedIntSet> valuesOfFacet = index.get(facet);
+            final Map<String, Integer> counts = new HashMap<String, Integer>(valuesOfFacet.size() * 2);
+            for (Map.Entry<String, SortedIntSet> entry : valuesOfFacet.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().size());
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param facet the facet to count
+     * @param filters values the documents must have, per facet
+     * @return number of documents matching the filters for each value of the facet
+     */
+    public Map<String, Integer> getCounts(Facet facet, Map<Facet, String> filters) {
+        if (filters.isEmpty()) {
+            return getCounts(facet);
+        }
+
+        lock.readLock().lock();
+        try {
+            final Map<String, Integer> counts = new HashMap<String, Integer>();
+            final BitSet matches = filterLocked(filters);
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                for (String value : documents.valueOf(ordinal)[facet.ordinal()]) {
+                    final Integer count = counts.get(value);
+                    counts.put(value, count == null ? 1 : count + 1);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param filters values the documents must have, per facet
+     * @return ids of the documents matching all the filters, in the order they were indexed
+     */
+    public List<String> getDocumentIds(Map<Facet, String> filters) {
+        lock.readLock().lock();
+        try {
+            final BitSet matches = filterLocked(filters);
+            final List<String> documentIds = new ArrayList<String>(matches.cardinality());
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                documentIds.add(documents.idOf(ordinal));
+            }
+            return documentIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet filterLocked(Map<Facet, String> filters) {
+        final BitSet matches = new BitSet(documents.capacity());
+        if (filters.isEmpty()) {
+            for (int ordinal = 0; ordinal < documents.capacity(); ordinal++) {
+                if (documents.idOf(ordinal) != null) {
+                    matches.set(ordinal);
+                }
+            }
+            return matches;
+        }
+
+        // start from the smallest set, so that the work is bound by it
+        final List<SortedIntSet> sets = new ArrayList<SortedIntSet>(filters.size());
+        for (Map.Entry<Facet, String> filter : filters.entrySet()) {
+            final SortedIntSet ordinals = index.get(filter.getKey()).get(filter.getValue());
+            if (ordinals == null) {
+                return matches;
+            }
+            sets.add(ordinals);
+        }
+        SortedIntSet smallest = sets.get(0);
+        for (SortedIntSet set : sets) {
+            if (set.size() < smallest.size()) {
+                smallest = set;
+            }
+        }
+
+        for (int i = 0; i < smallest.size(); i++) {
+            final int ordinal = smallest.get(i);
+            boolean inAll = true;
+            for (SortedIntSet set : sets) {
+                if (set != smallest && !set.contains(ordinal)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    private void removeLocked(String documentId) {
+        final int ordinal = documents.ordinalOf(documentId);
+        if (ordinal < 0) {
+            return;
+        }
+        final String[][] facetValues = documents.valueOf(ordinal);
+        for (Facet facet : FACETS) {
+            final Map<String, SortedIntSet> valuesOfFacet = index.get(facet);
+            for (String value : facetValues[facet.ordinal()]) {
+                final SortedIntSet ordinals = valuesOfFacet.get(value);
+                ordinals.remove(ordinal);
+                if (ordinals.isEmpty()) {
+                    valuesOfFacet.remove(value);
+                }
+            }
+        }
+        documents.remove(documentId);
+
+        final int[] mapping = documents.compactIfNeeded();
+        if (mapping != null) {
+            for (Map<String, SortedIntSet> valuesOfFacet : index.values()) {
+                for (SortedIntSet ordinals : valuesOfFacet.values()) {
+                    ordinals.map(mapping);
+                    ordinals.trim();
+                }
+            }
+        }
+    }
+
+    private static String[] distinct(List<String> values) {
+        if (values.isEmpty()) {
+            return NO_VALUES;
+        }
+        final Set<String> distinct = new LinkedHashSet<String>(values);
+        distinct.removeAll(Collections.singleton(null));
+        return distinct.toArray(new String[distinct.size()]);
+    }
+}
@@ -0,0 +1,383 @@
+package com.mendeley.sdk.index;
+
+import com.mendeley.sdk.model.Document;
+import com.mendeley.sdk.model.Person;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index to search the documents of the library without network access.
+ * <p/>
+ * It indexes the title, authors, abstract, tags and keywords of the documents. Words are
+ * lowercased and stripped of accents, and queries match words by prefix, so it can be used to
+ * search as the user types.
+ * <p/>
+ * The index is updated incrementally with {@link #put(Document)} and {@link #remove(String)} as
+ * documents are synced, and it can be saved and restored with {@link #writeTo(OutputStream)}
+ * and {@link #readFrom(InputStream)}.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class DocumentSearchIndex {
+
+    private static final int MAGIC = 0x4D534958; // "MSIX"
+    private static final int VERSION = 1;
+
+    // words shorter than this are not indexed
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinals of the documents, used in the postings instead of their ids, with their terms
+    private final OrdinalTable<String[]> documents = new OrdinalTable<String[]>();
+
+    // term -> ordinals of the documents containing it
+    private final TreeMap<String, SortedIntSet> postings = new TreeMap<String, SortedIntSet>();
+
+    /**
+     * Adds the document to the index, replacing the previous version if it was already indexed.
+     */
+    public void put(Document document) {
+        if (document.id == null) {
+            throw new IllegalArgumentException("Document without id");
+        }
+
+        final TreeSet<String> terms = new TreeSet<String>();
+        addTerms(terms, document.title);
+        addTerms(terms, document.abstractString);
+        for (Person author : document.authors) {
+            addTerms(terms, author.firstName);
+            addTerms(terms, author.lastName);
+        }
+        for (String tag : document.tags) {
+            addTerms(terms, tag);
+        }
+        for (String keyword : document.keywords) {
+            addTerms(terms, keyword);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.id);
+
+            final String[] sharedTerms = new String[terms.size()];
+            final int ordinal = documents.add(document.id, sharedTerms);
+            int i = 0;
+            for (String term : terms) {
+                sharedTerms[i++] = addPosting(term, ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(List<Document> documents) {
+        for (Document document : documents) {
+            put(document);
+        }
+    }
+
+    /**
+     * Removes the document from the index, if it was indexed.
+     */
+    public void remove(String documentId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of documents in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches documents containing all the words of the query. Each word of the query matches
+     * the words of the documents starting with it.
+     *
+     * @param query words to search
+     * @param limit maximum number of results
+     * @return ids of the matching documents, in the order they were indexed
+     */
+    public List<String> search(String query, int limit) {
+        final List<String> queryTerms = tokenize(query, 1);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String queryTerm : queryTerms) {
+                final BitSet termMatches = new BitSet(documents.capacity());
+                for (SortedIntSet ordinalsOfTerm : withPrefix(queryTerm).values()) {
+                    for (int i = 0; i < ordinalsOfTerm.size(); i++) {
+                        termMatches.set(ordinalsOfTerm.get(i));
+                    }
+                }
+                if (matches == null) {
+                    matches = termMatches;
+                } else {
+                    matches.and(termMatches);
+                }
+                if (matches.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            final List<String> results = new ArrayList<String>(Math.min(limit, matches.cardinality()));
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && results.size() < limit; ordinal = matches.nextSetBit(ordinal + 1)) {
+                results.add(documents.idOf(ordinal));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Suggests words to complete the one being typed.
+     *
+     * @param prefix start of the word
+     * @param limit maximum number of suggestions
+     * @return indexed words starting with the prefix, the ones in more documents first
+     */
+    public List<String> suggest(String prefix, int limit) {
+        final List<String> prefixTerms = tokenize(prefix, 1);
+        if (prefixTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Map.Entry<String, SortedIntSet>> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = new ArrayList<Map.Entry<String, SortedIntSet>>(withPrefix(prefixTerms.get(prefixTerms.size() - 1)).entrySet());
+            Collections.sort(candidates, new Comparator<Map.Entry<String, SortedIntSet>>() {
+                @Override
+                public int compare(Map.Entry<String, SortedIntSet> lhs, Map.Entry<String, SortedIntSet> rhs) {
+                    return rhs.getValue().size() - lhs.getValue().size();
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final List<String> suggestions = new ArrayList<String>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            suggestions.add(candidates.get(i).getKey());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Saves the index.
+     * Word positions are stored as deltas of increasing document numbers, so the result is
+     * much smaller than the index in memory.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        lock.readLock().lock();
+        try {
+            // documents are renumbered to skip the removed ones
+            final int[] compacted = documents.getCompactMapping();
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(documents.size());
+            for (int ordinal = 0; ordinal < documents.capacity(); ordinal++) {
+                final String documentId = documents.idOf(ordinal);
+                if (documentId != null) {
+                    out.writeUTF(documentId);
+                }
+            }
+
+            out.writeInt(postings.size());
+            for (Map.Entry<String, SortedIntSet> entry : postings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                final SortedIntSet ordinalsOfTerm = entry.getValue();
+                writeVarint(out, ordinalsOfTerm.size());
+                int previous = 0;
+                for (int i = 0; i < ordinalsOfTerm.size(); i++) {
+                    final int ordinal = compacted[ordinalsOfTerm.get(i)];
+                    writeVarint(out, ordinal - previous);
+                    previous = ordinal;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Restores an index saved with {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException if the data can't be read or it is not a saved index
+     */
+    public static DocumentSearchIndex readFrom(InputStream inputStream) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a saved search index, or unsupported version");
+        }
+
+        final DocumentSearchIndex index = new DocumentSearchIndex();
+
+        final int documentCount = in.readInt();
+        final List<List<String>> termsOfDocuments = new ArrayList<List<String>>(documentCount);
+        for (int ordinal = 0; ordinal < documentCount; ordinal++) {
+            index.documents.add(in.readUTF(), null);
+            termsOfDocuments.add(new ArrayList<String>());
+        }
+
+        final int termCount = in.readInt();
+        for (int t = 0; t < termCount; t++) {
+            final String term = in.readUTF();
+            final SortedIntSet ordinalsOfTerm = new SortedIntSet();
+            final int size = readVarint(in);
+            int ordinal = 0;
+            for (int i = 0; i < size; i++) {
+                ordinal += readVarint(in);
+                ordinalsOfTerm.add(ordinal);
+                termsOfDocuments.get(ordinal).add(term);
+            }
+            ordinalsOfTerm.trim();
+            index.postings.put(term, ordinalsOfTerm);
+        }
+
+        for (int ordinal = 0; ordinal < documentCount; ordinal++) {
+            final List<String> terms = termsOfDocuments.get(ordinal);
+            index.documents.setValue(ordinal, terms.toArray(new String[terms.size()]));
+        }
+        return index;
+    }
+
+    private void removeLocked(String documentId) {
+        final int ordinal = documents.ordinalOf(documentId);
+        if (ordinal < 0) {
+            return;
+        }
+        for (String term : documents.valueOf(ordinal)) {
+            final SortedIntSet ordinalsOfTerm = postings.get(term);
+            ordinalsOfTerm.remove(ordinal);
+            if (ordinalsOfTerm.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        documents.remove(documentId);
+
+        final int[] mapping = documents.compactIfNeeded();
+        if (mapping != null) {
+            for (SortedIntSet ordinalsOfTerm : postings.values()) {
+                ordinalsOfTerm.map(mapping);
+                ordinalsOfTerm.trim();
+            }
+        }
+    }
+
+    /**
+     * @return the instance of the term kept in the index, so that documents share it
+     */
+    private String addPosting(String term, int ordinal) {
+        final String existing = postings.ceilingKey(term);
+        if (existing != null && existing.equals(term)) {
+            postings.get(existing).add(ordinal);
+            return existing;
+        }
+        final SortedIntSet ordinalsOfTerm = new SortedIntSet();
+        ordinalsOfTerm.add(ordinal);
+        postings.put(term, ordinalsOfTerm);
+        return term;
+    }
+
+    private SortedMap<String, SortedIntSet> withPrefix(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private static void addTerms(TreeSet<String> terms, String text) {
+        if (text != null) {
+            terms.addAll(tokenize(text, MIN_TERM_LENGTH));
+        }
+    }
+
+    /**
+     * Splits the text in lowercase words without accents.
+     */
+    static List<String> tokenize(String text, int minLength) {
+        final List<String> terms = new ArrayList<String>();
+        if (text == null) {
+            return terms;
+        }
+
+        final String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        final StringBuilder term = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            final char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else {
+                addTerm(terms, term, minLength);
+            }
+        }
+        addTerm(terms, term, minLength);
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, StringBuilder term, int minLength) {
+        if (term.length() >= minLength) {
+            terms.add(term.toString());
+        }
+        term.setLength(0);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
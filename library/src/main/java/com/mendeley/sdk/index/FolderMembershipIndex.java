@@ -0,0 +1,233 @@
+package com.mendeley.sdk.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of which documents are in which folders, answering both the documents of one folder and
+ * the folders of one document without network access.
+ * <p/>
+ * Folders and documents are numbered with ordinals, and each side keeps the sorted ordinals of
+ * the other one, so memberships cost a few bytes each instead of a pair of id strings.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class FolderMembershipIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // folders, with the ordinals of their documents
+    private final OrdinalTable<SortedIntSet> folders = new OrdinalTable<SortedIntSet>();
+
+    // documents, with the ordinals of their folders
+    private final OrdinalTable<SortedIntSet> documents = new OrdinalTable<SortedIntSet>();
+
+    /**
+     * Sets the documents of the folder, replacing the ones it had.
+     */
+    public void setDocuments(String folderId, Collection<String> documentIds) {
+        lock.writeLock().lock();
+        try {
+            removeFolderLocked(folderId);
+            if (documentIds.isEmpty()) {
+                return;
+            }
+            final int folderOrdinal = folders.add(folderId, new SortedIntSet());
+            for (String documentId : documentIds) {
+                addLocked(folderOrdinal, documentId);
+            }
+            folders.valueOf(folderOrdinal).trim();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the document has been added to the folder.
+     */
+    public void add(String folderId, String documentId) {
+        lock.writeLock().lock();
+        try {
+            int folderOrdinal = folders.ordinalOf(folderId);
+            if (folderOrdinal < 0) {
+                folderOrdinal = folders.add(folderId, new SortedIntSet());
+            }
+            addLocked(folderOrdinal, documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the document has been removed from the folder.
+     */
+    public void remove(String folderId, String documentId) {
+        lock.writeLock().lock();
+        try {
+            final int folderOrdinal = folders.ordinalOf(folderId);
+            final int documentOrdinal = documents.ordinalOf(documentId);
+            if (folderOrdinal < 0 || documentOrdinal < 0) {
+                return;
+            }
+            final SortedIntSet documentsOfFolder = folders.valueOf(folderOrdinal);
+            documentsOfFolder.remove(documentOrdinal);
+            if (documentsOfFolder.isEmpty()) {
+                folders.remove(folderId);
+            }
+            final SortedIntSet foldersOfDocument = documents.valueOf(documentOrdinal);
+            foldersOfDocument.remove(folderOrdinal);
+            if (foldersOfDocument.isEmpty()) {
+                documents.remove(documentId);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the folder, typically because it has been deleted.
+     */
+    public void removeFolder(String folderId) {
+        lock.writeLock().lock();
+        try {
+            removeFolderLocked(folderId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the document from all its folders, typically because it has been deleted.
+     */
+    public void removeDocument(String documentId) {
+        lock.writeLock().lock();
+        try {
+            final int documentOrdinal = documents.ordinalOf(documentId);
+            if (documentOrdinal < 0) {
+                return;
+            }
+            final SortedIntSet foldersOfDocument = documents.valueOf(documentOrdinal);
+            for (int i = 0; i < foldersOfDocument.size(); i++) {
+                final int folderOrdinal = foldersOfDocument.get(i);
+                final SortedIntSet documentsOfFolder = folders.valueOf(folderOrdinal);
+                documentsOfFolder.remove(documentOrdinal);
+                if (documentsOfFolder.isEmpty()) {
+                    folders.remove(folders.idOf(folderOrdinal));
+                }
+            }
+            documents.remove(documentId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the documents in the folder, in the order they were first indexed
+     */
+    public List<String> getDocumentIds(String folderId) {
+        lock.readLock().lock();
+        try {
+            final int folderOrdinal = folders.ordinalOf(folderId);
+            return folderOrdinal >= 0 ? idsOf(documents, folders.valueOf(folderOrdinal)) : Collections.<String>emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the folders containing the document
+     */
+    public List<String> getFolderIds(String documentId) {
+        lock.readLock().lock();
+        try {
+            final int documentOrdinal = documents.ordinalOf(documentId);
+            return documentOrdinal >= 0 ? idsOf(folders, documents.valueOf(documentOrdinal)) : Collections.<String>emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String folderId, String documentId) {
+        lock.readLock().lock();
+        try {
+            final int folderOrdinal = folders.ordinalOf(folderId);
+            final int documentOrdinal = documents.ordinalOf(documentId);
+            return folderOrdinal >= 0 && documentOrdinal >= 0 && folders.valueOf(folderOrdinal).contains(documentOrdinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of documents in at least one folder
+     */
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(int folderOrdinal, String documentId) {
+        int documentOrdinal = documents.ordinalOf(documentId);
+        if (documentOrdinal < 0) {
+            documentOrdinal = documents.add(documentId, new SortedIntSet());
+        }
+        folders.valueOf(folderOrdinal).add(documentOrdinal);
+        documents.valueOf(documentOrdinal).add(folderOrdinal);
+    }
+
+    private void removeFolderLocked(String folderId) {
+        final int folderOrdinal = folders.ordinalOf(folderId);
+        if (folderOrdinal < 0) {
+            return;
+        }
+        final SortedIntSet documentsOfFolder = folders.valueOf(folderOrdinal);
+        for (int i = 0; i < documentsOfFolder.size(); i++) {
+            final int documentOrdinal = documentsOfFolder.get(i);
+            final SortedIntSet foldersOfDocument = documents.valueOf(documentOrdinal);
+            foldersOfDocument.remove(folderOrdinal);
+            if (foldersOfDocument.isEmpty()) {
+                documents.remove(documents.idOf(documentOrdinal));
+            }
+        }
+        folders.remove(folderId);
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        final int[] folderMapping = folders.compactIfNeeded();
+        if (folderMapping != null) {
+            mapAll(documents, folderMapping);
+        }
+        final int[] documentMapping = documents.compactIfNeeded();
+        if (documentMapping != null) {
+            mapAll(folders, documentMapping);
+        }
+    }
+
+    private static void mapAll(OrdinalTable<SortedIntSet> table, int[] mapping) {
+        for (int ordinal = 0; ordinal < table.capacity(); ordinal++) {
+            final SortedIntSet ordinals = table.valueOf(ordinal);
+            if (ordinals != null) {
+                ordinals.map(mapping);
+            }
+        }
+    }
+
+    private static List<String> idsOf(OrdinalTable<SortedIntSet> table, SortedIntSet ordinals) {
+        final List<String> ids = new ArrayList<String>(ordinals.size());
+        for (int i = 0; i < ordinals.size(); i++) {
+            ids.add(table.idOf(ordinals.get(i)));
+        }
+        return ids;
+    }
+}
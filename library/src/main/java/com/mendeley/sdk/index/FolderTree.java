@@ -0,0 +1,373 @@
+package com.mendeley.sdk.index;
+
+import com.mendeley.sdk.model.Folder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchy of the {@link Folder}s of the user's library and groups, built from the flat lists
+ * returned by the API, where each folder only knows the id of its parent.
+ * <p/>
+ * Folders are indexed by id, and each one keeps links to its parent and children, so getting
+ * the parent or the children of a folder is a lookup, and getting its ancestors costs as much as
+ * its depth.
+ * <p/>
+ * The tree is updated with {@link #put(Folder)} and {@link #remove(String)} as folders are
+ * created, changed or deleted. Folders can be put in any order: the ones whose parent is not
+ * known yet are treated as roots until the parent is put. If that parent turns out to be one of
+ * their own subfolders, they stay as roots, so inconsistent data never makes a cycle.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public class FolderTree {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // folder id -> node
+    private final Map<String, Node> nodes = new HashMap<String, Node>();
+
+    // group id (null for the user's library) -> nodes without known parent
+    private final Map<String, Set<Node>> roots = new HashMap<String, Set<Node>>();
+
+    // parent id -> nodes waiting for the parent to be put
+    private final Map<String, Set<Node>> orphans = new HashMap<String, Set<Node>>();
+
+    public FolderTree() {
+    }
+
+    public FolderTree(List<Folder> folders) {
+        putAll(folders);
+    }
+
+    /**
+     * Adds the folder to the tree, or updates it if it was already there. If its parent has
+     * changed, the folder is moved with all its subfolders.
+     *
+     * @throws IllegalArgumentException if the folder would become a subfolder of itself
+     */
+    public void put(Folder folder) {
+        if (folder.id == null) {
+            throw new IllegalArgumentException("Folder without id");
+        }
+        if (folder.id.equals(folder.parentId)) {
+            throw new IllegalArgumentException("Folder " + folder.id + " can't be its own parent");
+        }
+
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.get(folder.id);
+            if (node == null) {
+                node = new Node(folder);
+                nodes.put(folder.id, node);
+                attach(node);
+                // adopt the subfolders put before this one
+                final Set<Node> children = orphans.remove(folder.id);
+                if (children != null) {
+                    for (Node child : children) {
+                        if (isAncestorNode(child, node)) {
+                            // inconsistent parents, like two folders being the parent of each
+                            // other: adopting it would make a cycle, so it stays as a root
+                            continue;
+                        }
+                        getRoots(child.folder.groupId).remove(child);
+                        child.parent = node;
+                        node.children.add(child);
+                        updateDepth(child);
+                    }
+                }
+            } else {
+                final Node newParent = folder.parentId != null ? nodes.get(folder.parentId) : null;
+                if (newParent != null && isAncestorNode(node, newParent)) {
+                    throw new IllegalArgumentException("Folder " + folder.id + " can't be moved into " + folder.parentId);
+                }
+                detach(node);
+                node.folder = folder;
+                attach(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(List<Folder> folders) {
+        for (Folder folder : folders) {
+            put(folder);
+        }
+    }
+
+    /**
+     * Removes the folder from the tree, with all its subfolders, as the server does when a
+     * folder is deleted.
+     *
+     * @return the ids of the removed folders, empty if the folder was not in the tree
+     */
+    public List<String> remove(String folderId) {
+        lock.writeLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            detach(node);
+
+            final List<String> removedIds = new ArrayList<String>();
+            final List<Node> pending = new ArrayList<Node>();
+            pending.add(node);
+            while (!pending.isEmpty()) {
+                final Node removed = pending.remove(pending.size() - 1);
+                nodes.remove(removed.folder.id);
+                removedIds.add(removed.folder.id);
+                pending.addAll(removed.children);
+            }
+            return removedIds;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of folders in the tree
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the folder with the id, or null if it is not in the tree
+     */
+    public Folder getFolder(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            return node != null ? node.folder : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the parent of the folder, or null if it is a root folder or it is not in the tree
+     */
+    public Folder getParent(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            return node != null && node.parent != null ? node.parent.folder : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the subfolders of the folder, empty if it has none or it is not in the tree
+     */
+    public List<Folder> getChildren(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            return node != null ? toFolders(node.children) : Collections.<Folder>emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param groupId id of the group, or null for the user's library
+     * @return the top level folders of the group
+     */
+    public List<Folder> getRootFolders(String groupId) {
+        lock.readLock().lock();
+        try {
+            final Set<Node> rootsOfGroup = roots.get(groupId);
+            return rootsOfGroup != null ? toFolders(rootsOfGroup) : Collections.<Folder>emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ancestors of the folder, from the root folder down to its parent, or an empty
+     *         list if it is a root folder or it is not in the tree
+     */
+    public List<Folder> getAncestors(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            if (node == null || node.parent == null) {
+                return Collections.emptyList();
+            }
+            final Folder[] ancestors = new Folder[node.depth];
+            for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestors[ancestor.depth] = ancestor.folder;
+            }
+            final List<Folder> list = new ArrayList<Folder>(ancestors.length);
+            Collections.addAll(list, ancestors);
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of ancestors of the folder, 0 for root folders, or -1 if it is not in the tree
+     */
+    public int getDepth(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            return node != null ? node.depth : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the second folder is a subfolder, at any depth, of the first one
+     */
+    public boolean isAncestor(String ancestorId, String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node ancestor = nodes.get(ancestorId);
+            Node node = nodes.get(folderId);
+            if (ancestor == null || node == null || node.depth <= ancestor.depth) {
+                return false;
+            }
+            while (node.depth > ancestor.depth) {
+                node = node.parent;
+            }
+            return node == ancestor;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of all the subfolders of the folder, at any depth
+     */
+    public List<String> getDescendantIds(String folderId) {
+        lock.readLock().lock();
+        try {
+            final Node node = nodes.get(folderId);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            final List<String> descendantIds = new ArrayList<String>();
+            final List<Node> pending = new ArrayList<Node>(node.children);
+            while (!pending.isEmpty()) {
+                final Node descendant = pending.remove(pending.size() - 1);
+                descendantIds.add(descendant.folder.id);
+                pending.addAll(descendant.children);
+            }
+            return descendantIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void attach(Node node) {
+        final String parentId = node.folder.parentId;
+        final Node parent = parentId != null ? nodes.get(parentId) : null;
+        if (parent != null) {
+            node.parent = parent;
+            parent.children.add(node);
+        } else {
+            node.parent = null;
+            getRoots(node.folder.groupId).add(node);
+            if (parentId != null) {
+                getOrphans(parentId).add(node);
+            }
+        }
+        updateDepth(node);
+    }
+
+    private void detach(Node node) {
+        if (node.parent != null) {
+            node.parent.children.remove(node);
+            node.parent = null;
+        } else {
+            getRoots(node.folder.groupId).remove(node);
+            final String parentId = node.folder.parentId;
+            if (parentId != null) {
+                final Set<Node> waiting = orphans.get(parentId);
+                if (waiting != null) {
+                    waiting.remove(node);
+                    if (waiting.isEmpty()) {
+                        orphans.remove(parentId);
+                    }
+                }
+            }
+        }
+    }
+
+    private Set<Node> getRoots(String groupId) {
+        Set<Node> rootsOfGroup = roots.get(groupId);
+        if (rootsOfGroup == null) {
+            rootsOfGroup = new LinkedHashSet<Node>();
+            roots.put(groupId, rootsOfGroup);
+        }
+        return rootsOfGroup;
+    }
+
+    private Set<Node> getOrphans(String parentId) {
+        Set<Node> waiting = orphans.get(parentId);
+        if (waiting == null) {
+            waiting = new LinkedHashSet<Node>();
+            orphans.put(parentId, waiting);
+        }
+        return waiting;
+    }
+
+    /**
+     * @return true if the first node is the parent of the second one, at any depth
+     */
+    private static boolean isAncestorNode(Node ancestor, Node node) {
+        for (Node parent = node.parent; parent != null; parent = parent.parent) {
+            if (parent == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void updateDepth(Node node) {
+        final List<Node> pending = new ArrayList<Node>();
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            final Node updated = pending.remove(pending.size() - 1);
+            updated.depth = updated.parent != null ? updated.parent.depth + 1 : 0;
+            pending.addAll(updated.children);
+        }
+    }
+
+    private static List<Folder> toFolders(Set<Node> nodes) {
+        final List<Folder> folders = new ArrayList<Folder>(nodes.size());
+        for (Node node : nodes) {
+            folders.add(node.folder);
+        }
+        return folders;
+    }
+
+    private static final class Node {
+        Folder folder;
+        Node parent;
+        int depth;
+        final Set<Node> children = new LinkedHashSet<Node>();
+
+        Node(Folder folder) {
+            this.folder = folder;
+        }
+    }
+}
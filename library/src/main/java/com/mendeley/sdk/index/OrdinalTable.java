@@ -0,0 +1,132 @@
+package com.mendeley.sdk.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns consecutive numbers (ordinals) to ids, so that indexes can store compact sets of ints
+ * instead of sets of ids, and keeps some data per ordinal.
+ * <p/>
+ * Ordinals of removed ids are not reused, to keep the sets of the indexes sorted when adding.
+ * Instead, {@link #compactIfNeeded()} renumbers the ordinals once there are too many unused ones.
+ * <p/>
+ * Not thread safe.
+ *
+ * @param <V> type of the data kept per ordinal
+ */
+final class OrdinalTable<V> {
+
+    // number of removed ids from which the table is compacted
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+    private final List<String> ids = new ArrayList<String>();
+    private final List<V> values = new ArrayList<V>();
+
+    private int removedCount;
+
+    /**
+     * @return the ordinal assigned to the id, which must not be in the table
+     */
+    int add(String id, V value) {
+        final int ordinal = ids.size();
+        ordinals.put(id, ordinal);
+        ids.add(id);
+        values.add(value);
+        return ordinal;
+    }
+
+    /**
+     * @return the ordinal of the id, or -1 if it is not in the table
+     */
+    int ordinalOf(String id) {
+        final Integer ordinal = ordinals.get(id);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * @return the id of the ordinal, or null if it has been removed
+     */
+    String idOf(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    V valueOf(int ordinal) {
+        return values.get(ordinal);
+    }
+
+    void setValue(int ordinal, V value) {
+        values.set(ordinal, value);
+    }
+
+    /**
+     * @return the ordinal the id had, or -1 if it was not in the table
+     */
+    int remove(String id) {
+        final Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return -1;
+        }
+        ids.set(ordinal, null);
+        values.set(ordinal, null);
+        removedCount++;
+        return ordinal;
+    }
+
+    /**
+     * @return number of ids in the table
+     */
+    int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * @return upper bound of the ordinals in use
+     */
+    int capacity() {
+        return ids.size();
+    }
+
+    /**
+     * Renumbers the ordinals to drop the ones of the removed ids, if they outnumber the ids in
+     * the table.
+     *
+     * @return the new ordinal of each former one, to update the sets of the index, or null if
+     *         the table has not been compacted. The mapping keeps the order of the ordinals.
+     */
+    int[] compactIfNeeded() {
+        if (removedCount <= COMPACTION_THRESHOLD || removedCount <= ordinals.size()) {
+            return null;
+        }
+        final int[] mapping = getCompactMapping();
+        int count = 0;
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            final String id = ids.get(ordinal);
+            if (id != null) {
+                ids.set(count, id);
+                values.set(count, values.get(ordinal));
+                ordinals.put(id, count);
+                count++;
+            }
+        }
+        ids.subList(count, ids.size()).clear();
+        values.subList(count, values.size()).clear();
+        removedCount = 0;
+        return mapping;
+    }
+
+    /**
+     * @return the ordinal each current one would have if the table was compacted, or -1 for
+     *         removed ones
+     */
+    int[] getCompactMapping() {
+        final int[] mapping = new int[ids.size()];
+        int count = 0;
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            mapping[ordinal] = ids.get(ordinal) != null ? count++ : -1;
+        }
+        return mapping;
+    }
+}
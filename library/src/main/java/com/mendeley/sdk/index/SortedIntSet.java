@@ -0,0 +1,100 @@
+package com.mendeley.sdk.index;
+
+import java.util.Arrays;
+
+/**
+ * Set of ints kept in a sorted array, used to store compact lists of ids in the indexes.
+ * <p/>
+ * Adding ids in increasing order (the usual case, as ids are assigned incrementally) is an
+ * append; other changes move the tail of the array.
+ * <p/>
+ * Not thread safe.
+ */
+final class SortedIntSet {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values = EMPTY;
+    private int size;
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(int value) {
+        if (size > 0 && values[size - 1] < value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            return true;
+        }
+        final int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        final int insertion = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+        values[insertion] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    boolean remove(int value) {
+        final int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the value at the position, in increasing order
+     */
+    int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replaces each value by the one in its position of the mapping.
+     * The mapping must keep the order of the values in the set.
+     */
+    void map(int[] mapping) {
+        for (int i = 0; i < size; i++) {
+            values[i] = mapping[values[i]];
+        }
+    }
+
+    /**
+     * Releases the spare capacity of the array.
+     */
+    void trim() {
+        if (values.length > size) {
+            values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1) + 2));
+        }
+    }
+}
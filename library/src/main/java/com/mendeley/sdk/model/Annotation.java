@@ -76,7 +76,7 @@ public class Annotation {
         this.color = color;
         this.text = text;
         this.profileId = profileId;
-        this.positions = new NullableList<Position>(positions);
+        this.positions = NullableList.of(positions);
         this.created = created;
         this.lastModified = lastModified;
         this.privacyLevel = privacyLevel;
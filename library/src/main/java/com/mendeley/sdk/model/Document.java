@@ -108,9 +108,9 @@ public class Document {
 		this.title = title;
 		this.revision = revision;
 		this.created = created;
-		this.identifiers = new NullableMap<String, String>(identifiers);
+		this.identifiers = NullableMap.of(identifiers);
 		this.abstractString = abstractString;
-		this.authors = new NullableList<Person>(authors);
+		this.authors = NullableList.of(authors);
 		this.pages = pages;
 		this.volume = volume;
 		this.issue = issue;
@@ -120,15 +120,58 @@ public class Document {
 		this.institution = institution;
 		this.series = series;
 		this.chapter = chapter;
-		this.editors = new NullableList<Person>(editors);
-        this.tags = new NullableList<String>(tags);
+		this.editors = NullableList.of(editors);
+        this.tags = NullableList.of(tags);
         this.fileAttached = fileAttached;
-        this.keywords = new NullableList<String>(keywords);
-        this.websites = new NullableList<String>(websites);
+        this.keywords = NullableList.of(keywords);
+        this.websites = NullableList.of(websites);
         this.clientData = clientData;
         this.uniqueId = uniqueId;
 	}
 
+    /**
+     * Fields of the document, used to tell which ones to read when only some of them are needed
+     * (for example, to display a list of documents).
+     */
+    public enum Field {
+        LAST_MODIFIED,
+        GROUP_ID,
+        PROFILE_ID,
+        READ,
+        STARRED,
+        AUTHORED,
+        CONFIRMED,
+        HIDDEN,
+        ID,
+        TYPE,
+        MONTH,
+        YEAR,
+        DAY,
+        SOURCE,
+        TITLE,
+        REVISION,
+        CREATED,
+        IDENTIFIERS,
+        ABSTRACT,
+        AUTHORS,
+        PAGES,
+        VOLUME,
+        ISSUE,
+        PUBLISHER,
+        CITY,
+        EDITION,
+        INSTITUTION,
+        SERIES,
+        CHAPTER,
+        EDITORS,
+        TAGS,
+        FILE_ATTACHED,
+        KEYWORDS,
+        WEBSITES,
+        CLIENT_DATA,
+        UNIQUE_ID
+    }
+
 	public static class Builder {
         private String title;
         private String type;
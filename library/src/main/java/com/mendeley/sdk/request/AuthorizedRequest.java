@@ -6,11 +6,15 @@ import android.text.TextUtils;
 import com.mendeley.sdk.AuthTokenManager;
 import com.mendeley.sdk.ClientCredentials;
 import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
 import com.mendeley.sdk.exceptions.HttpResponseException;
 import com.mendeley.sdk.exceptions.MendeleyException;
 import com.mendeley.sdk.request.endpoint.OAuthTokenEndpoint;
 
 import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,6 +29,29 @@ public abstract class AuthorizedRequest<ResultType> extends Request<ResultType>
     // Only use tokens which don't expire in the next 5 mins:
     private final static int MIN_TOKEN_VALIDITY_SEC = 300;
 
+    // Runs the listener in the thread completing the future
+    private final static Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    // Runs the blocking token refreshes of the requests run as futures, out of their executor so
+    // that a slow refresh doesn't take the threads parsing the responses of other requests
+    private final static Executor sTokenRefreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkTokenRefresher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Held during the refreshes, rather than the token manager, so that saving or clearing the
+    // tokens never waits for the network
+    private final static Object sTokenRefreshLock = new Object();
+
     protected final AuthTokenManager authTokenManager;
     protected final ClientCredentials clientCredentials;
 
@@ -43,20 +70,22 @@ public abstract class AuthorizedRequest<ResultType> extends Request<ResultType>
 
     @Override
     public final Response doRun() throws MendeleyException {
-        if (TextUtils.isEmpty(authTokenManager.getAccessToken())) {
+        String accessToken = authTokenManager.getAccessToken();
+        if (TextUtils.isEmpty(accessToken)) {
             // Must call startSignInProcess first - caller error!
             throw new MendeleyException("No access token found");
         }
 
-        if (willExpireSoon()) {
-            refreshExpiredToken();
+        if (willExpireSoon(accessToken)) {
+            refreshExpiredToken(accessToken);
+            accessToken = authTokenManager.getAccessToken();
         }
         try {
             return doRunAuthorized();
         } catch (HttpResponseException e) {
-            if (e.httpReturnCode == 401 && e.getMessage().contains("Token has expired")) {
+            if (isTokenExpiredError(e)) {
                 // The refresh-token-in-advance logic did not work for some reason: force a refresh now
-                refreshExpiredToken();
+                refreshExpiredToken(accessToken);
                 return doRunAuthorized();
             } else {
                 throw e;
@@ -64,8 +93,93 @@ public abstract class AuthorizedRequest<ResultType> extends Request<ResultType>
         }
     }
 
-    private void refreshExpiredToken() throws MendeleyException {
-        new OAuthTokenEndpoint.RefreshTokenRequest(authTokenManager, clientCredentials).run();
+    @Override
+    protected final void doRunAsync(final RequestFuture<Response> future, final Executor executor) {
+        final String accessToken = authTokenManager.getAccessToken();
+        if (TextUtils.isEmpty(accessToken)) {
+            // Must call startSignInProcess first - caller error!
+            future.fail(new MendeleyException("No access token found"));
+            return;
+        }
+
+        final RequestFuture<Response> attempt = new RequestFuture<Response>();
+        attempt.addCallback(new RequestFuture.Callback<Response>() {
+            @Override
+            public void onSuccess(Response response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(MendeleyException mendeleyException) {
+                if (isTokenExpiredError(mendeleyException)) {
+                    // The refresh-token-in-advance logic did not work for some reason: force a refresh now
+                    refreshTokenAndRunAuthorizedAsync(future, executor, accessToken);
+                } else {
+                    failFuture(future, mendeleyException);
+                }
+            }
+
+            @Override
+            public void onCancelled() {
+                future.cancel(false);
+            }
+        }, DIRECT_EXECUTOR);
+
+        if (willExpireSoon(accessToken)) {
+            refreshTokenAndRunAuthorizedAsync(attempt, executor, accessToken);
+        } else {
+            doRunAuthorizedAsync(attempt, executor);
+        }
+    }
+
+    /**
+     * Refreshes the token, which is a blocking operation done in a thread of its own as it is
+     * rarely needed, and then runs the request asynchronously.
+     */
+    private void refreshTokenAndRunAuthorizedAsync(final RequestFuture<Response> future, final Executor executor, final String expiredAccessToken) {
+        sTokenRefreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refreshExpiredToken(expiredAccessToken);
+                    doRunAuthorizedAsync(future, executor);
+                } catch (MendeleyException e) {
+                    failFuture(future, e);
+                } catch (RuntimeException e) {
+                    failFuture(future, new MendeleyException("Unexpected error in request " + getUrl(), e));
+                }
+            }
+        });
+    }
+
+    private static boolean isTokenExpiredError(MendeleyException e) {
+        return e instanceof HttpResponseException
+                && ((HttpResponseException) e).httpReturnCode == 401
+                && e.getMessage().contains("Token has expired");
+    }
+
+    /**
+     * Refreshes the access token, unless another request has already replaced it. Requests
+     * finding the same token expired at the same time wait for one single refresh, so the refresh
+     * token is not used again once the server has replaced it.
+     *
+     * @param expiredAccessToken the access token found expired
+     */
+    private void refreshExpiredToken(String expiredAccessToken) throws MendeleyException {
+        refreshExpiredToken(authTokenManager, expiredAccessToken, new OAuthTokenEndpoint.RefreshTokenRequest(authTokenManager, clientCredentials));
+    }
+
+    /**
+     * Runs the request refreshing the token, unless the token manager no longer has the expired
+     * access token.
+     */
+    static void refreshExpiredToken(AuthTokenManager authTokenManager, String expiredAccessToken, Request<?> refreshRequest) throws MendeleyException {
+        synchronized (sTokenRefreshLock) {
+            if (!TextUtils.equals(expiredAccessToken, authTokenManager.getAccessToken())) {
+                return;
+            }
+            refreshRequest.run();
+        }
     }
 
     /**
@@ -77,17 +191,41 @@ public abstract class AuthorizedRequest<ResultType> extends Request<ResultType>
      */
     protected abstract Response doRunAuthorized() throws MendeleyException;
 
+    /**
+     * Template method that performs the work of {@link #doRunAuthorized()} asynchronously,
+     * completing the passed future.
+     * This implementation blocks one thread of the executor; extending classes able to perform
+     * non-blocking network operations should override it.
+     * This method is guaranteed to be run with a valid access token.
+     *
+     * @param future to complete with the outcome of the request
+     * @param executor where the work of the request is expected to run at
+     */
+    protected void doRunAuthorizedAsync(final RequestFuture<Response> future, Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    completeFuture(future, doRunAuthorized());
+                } catch (MendeleyException e) {
+                    failFuture(future, e);
+                } catch (RuntimeException e) {
+                    failFuture(future, new MendeleyException("Unexpected error in request " + getUrl(), e));
+                }
+            }
+        });
+    }
+
     // TODO: consider dropping this to reduce complexity
     /**
      * Checks if the current access token will expire soon (or isn't valid at all).
      */
-    private boolean willExpireSoon() {
-        if (TextUtils.isEmpty(authTokenManager.getAccessToken()) || authTokenManager.getAuthTokenExpirationDate() == null) {
+    private boolean willExpireSoon(String accessToken) {
+        final Date expires = authTokenManager.getAuthTokenExpirationDate();
+        if (TextUtils.isEmpty(accessToken) || expires == null) {
             return true;
         }
-        Date now = new Date();
-        Date expires = authTokenManager.getAuthTokenExpirationDate();
-        long timeToExpiryMs = expires.getTime() - now.getTime();
+        long timeToExpiryMs = expires.getTime() - System.currentTimeMillis();
         long timeToExpirySec = TimeUnit.MILLISECONDS.toSeconds(timeToExpiryMs);
         return timeToExpirySec < MIN_TOKEN_VALIDITY_SEC;
     }
@@ -0,0 +1,317 @@
+package com.mendeley.sdk.request;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.exceptions.HttpResponseException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.exceptions.UserCancelledException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Request} applying the same operation to many items, like trashing or deleting a list
+ * of documents, with one request per item.
+ * <p/>
+ * Up to {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} item requests run at a time, and the ones
+ * failing with network or server errors are retried with exponential back-off. A failing item
+ * doesn't stop the others: the {@link Result} tells the outcome of each one.
+ * <p/>
+ * For operations removing the items, a retry failing with 404 means that a previous attempt was
+ * applied even though its response was lost, so the item is reported as succeeded.
+ * <p/>
+ * Item requests are run as background requests if this one is. Cancelling this request cancels
+ * the running item requests and doesn't start any other.
+ */
+public abstract class BulkRequest extends Request<BulkRequest.Result> {
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private static final long RETRY_DELAY_MS = 500;
+
+    // Runs the callbacks in the thread completing the item requests
+    private final static Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final ScheduledExecutorService sRetryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkBulkRetries");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final List<String> ids;
+    private final int maxConcurrentRequests;
+    private final int maxRetries;
+
+    // futures of the running item requests, to cancel them
+    private final Set<RequestFuture<?>> running = Collections.synchronizedSet(new HashSet<RequestFuture<?>>());
+
+    /**
+     * @param url URI the request is identified by
+     * @param ids ids of the items, or null if the subclass loads them in {@link #loadIds()}
+     */
+    public BulkRequest(Uri url, Collection<String> ids) {
+        this(url, ids, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * @param url URI the request is identified by
+     * @param ids ids of the items, or null if the subclass loads them in {@link #loadIds()}
+     * @param maxConcurrentRequests maximum number of item requests running at a time
+     * @param maxRetries maximum number of times a failing item request is retried
+     */
+    public BulkRequest(Uri url, Collection<String> ids, int maxConcurrentRequests, int maxRetries) {
+        super(url);
+        this.ids = ids != null ? new ArrayList<String>(ids) : null;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return the request applying the operation to one item
+     */
+    protected abstract Request<?> newItemRequest(String id);
+
+    /**
+     * Obtains the ids of the items. This implementation returns the ones passed to the
+     * constructor; subclasses operating on all the items of a list, like the whole trash, override
+     * it to load all its pages.
+     */
+    protected RequestFuture<List<String>> loadIds() {
+        return RequestFuture.succeeded(ids);
+    }
+
+    /**
+     * @return true if the operation removes the items from where they are looked up, like
+     *         deleting, trashing or restoring them, so that a retry not finding the item means
+     *         that it was applied. This implementation returns false.
+     */
+    protected boolean removesItems() {
+        return false;
+    }
+
+    @Override
+    protected Response doRun() throws MendeleyException {
+        final RequestFuture<Response> future = new RequestFuture<Response>();
+        doRunAsync(future, DIRECT_EXECUTOR);
+        return future.getResult();
+    }
+
+    @Override
+    protected void doRunAsync(final RequestFuture<Response> future, Executor executor) {
+        final RequestFuture<List<String>> idsFuture = loadIds();
+        running.add(idsFuture);
+        idsFuture.addCallback(new RequestFuture.Callback<List<String>>() {
+            @Override
+            public void onSuccess(List<String> ids) {
+                running.remove(idsFuture);
+                new Run(ids, future).start();
+            }
+
+            @Override
+            public void onFailure(MendeleyException mendeleyException) {
+                running.remove(idsFuture);
+                failFuture(future, mendeleyException);
+            }
+
+            @Override
+            public void onCancelled() {
+                running.remove(idsFuture);
+                future.cancel(false);
+            }
+        }, DIRECT_EXECUTOR);
+    }
+
+    @Override
+    protected void onCancelled() {
+        final List<RequestFuture<?>> toCancel;
+        synchronized (running) {
+            toCancel = new ArrayList<RequestFuture<?>>(running);
+        }
+        for (RequestFuture<?> future : toCancel) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * @return true for errors that may not happen again, like network errors or server ones
+     */
+    private static boolean isRetryable(MendeleyException e) {
+        if (e instanceof UserCancelledException) {
+            return false;
+        }
+        if (e instanceof HttpResponseException) {
+            final int code = ((HttpResponseException) e).httpReturnCode;
+            return code >= 500 || code == 429;
+        }
+        return e.getCause() instanceof IOException;
+    }
+
+    /**
+     * @return true if the error of a retried item request means that a previous attempt was
+     *         applied
+     */
+    private boolean isAppliedByPreviousAttempt(MendeleyException e, int attempt) {
+        return attempt > 0
+                && removesItems()
+                && e instanceof HttpResponseException
+                && ((HttpResponseException) e).httpReturnCode == 404;
+    }
+
+    /**
+     * One run over all the items, with several chains of item requests running in parallel.
+     */
+    private class Run {
+        private final List<String> ids;
+        private final RequestFuture<Response> future;
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final AtomicInteger runningChains = new AtomicInteger();
+
+        private final List<String> succeededIds = new ArrayList<String>();
+        private final Map<String, MendeleyException> failures = new LinkedHashMap<String, MendeleyException>();
+
+        Run(List<String> ids, RequestFuture<Response> future) {
+            this.ids = ids;
+            this.future = future;
+        }
+
+        void start() {
+            final int chains = Math.min(maxConcurrentRequests, ids.size());
+            if (chains == 0) {
+                finish();
+                return;
+            }
+            runningChains.set(chains);
+            for (int i = 0; i < chains; i++) {
+                runNext();
+            }
+        }
+
+        private void runNext() {
+            final int index = nextIndex.getAndIncrement();
+            if (index >= ids.size() || isCancelled()) {
+                if (runningChains.decrementAndGet() == 0) {
+                    finish();
+                }
+                return;
+            }
+            runItem(ids.get(index), 0);
+        }
+
+        private void runItem(final String id, final int attempt) {
+            final Request<?> request = newItemRequest(id);
+            request.setBackground(isBackground());
+            final RequestFuture<?> itemFuture = request.runFuture();
+            running.add(itemFuture);
+            itemFuture.addCallback(new RequestFuture.Callback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    running.remove(itemFuture);
+                    synchronized (Run.this) {
+                        succeededIds.add(id);
+                    }
+                    runNext();
+                }
+
+                @Override
+                public void onFailure(MendeleyException mendeleyException) {
+                    running.remove(itemFuture);
+                    if (isAppliedByPreviousAttempt(mendeleyException, attempt)) {
+                        synchronized (Run.this) {
+                            succeededIds.add(id);
+                        }
+                        runNext();
+                        return;
+                    }
+                    if (attempt < maxRetries && isRetryable(mendeleyException) && !isCancelled()) {
+                        retry(id, attempt + 1);
+                        return;
+                    }
+                    synchronized (Run.this) {
+                        failures.put(id, mendeleyException);
+                    }
+                    runNext();
+                }
+
+                @Override
+                public void onCancelled() {
+                    running.remove(itemFuture);
+                    runNext();
+                }
+            }, DIRECT_EXECUTOR);
+        }
+
+        private void retry(final String id, final int attempt) {
+            sRetryScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        runNext();
+                    } else {
+                        runItem(id, attempt);
+                    }
+                }
+            }, RETRY_DELAY_MS << (attempt - 1), TimeUnit.MILLISECONDS);
+        }
+
+        private void finish() {
+            final Result result;
+            synchronized (this) {
+                result = new Result(succeededIds, failures);
+            }
+            completeFuture(future, new Response(result, (Date) null, null));
+        }
+    }
+
+    /**
+     * Outcome of each of the items of a {@link BulkRequest}.
+     */
+    public static class Result {
+        /**
+         * Ids of the items the operation was applied to
+         */
+        public final List<String> succeededIds;
+
+        /**
+         * Ids of the items the operation failed for, with the error of their last attempt
+         */
+        public final Map<String, MendeleyException> failures;
+
+        public Result(List<String> succeededIds, Map<String, MendeleyException> failures) {
+            this.succeededIds = Collections.unmodifiableList(new ArrayList<String>(succeededIds));
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<String, MendeleyException>(failures));
+        }
+
+        /**
+         * @return true if the operation was applied to all the items
+         */
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+    }
+}
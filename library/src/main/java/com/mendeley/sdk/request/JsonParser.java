@@ -18,6 +18,7 @@ import com.mendeley.sdk.model.Profile;
 import com.mendeley.sdk.model.ReadPosition;
 import com.mendeley.sdk.model.UserRole;
 import com.mendeley.sdk.util.DateUtils;
+import com.mendeley.sdk.util.StringPool;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -30,6 +31,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.mendeley.sdk.model.Annotation.PrivacyLevel;
 
@@ -38,6 +40,70 @@ import static com.mendeley.sdk.model.Annotation.PrivacyLevel;
  */
 public class JsonParser {
 
+    /**
+     * Pool sharing the values which repeat a lot across documents and annotations (types, ids of
+     * groups and profiles, names of authors, tags, file hashes), so that cached libraries retain
+     * each of them only once. It counts its lookups and hits, to measure the sharing.
+     */
+    private static final StringPool STRING_POOL = new StringPool(8192, true);
+
+    // JSON keys of the fields of the documents
+    private static final Map<String, Document.Field> DOCUMENT_FIELDS = new HashMap<String, Document.Field>();
+
+    static {
+        DOCUMENT_FIELDS.put("last_modified", Document.Field.LAST_MODIFIED);
+        DOCUMENT_FIELDS.put("group_id", Document.Field.GROUP_ID);
+        DOCUMENT_FIELDS.put("profile_id", Document.Field.PROFILE_ID);
+        DOCUMENT_FIELDS.put("read", Document.Field.READ);
+        DOCUMENT_FIELDS.put("starred", Document.Field.STARRED);
+        DOCUMENT_FIELDS.put("authored", Document.Field.AUTHORED);
+        DOCUMENT_FIELDS.put("confirmed", Document.Field.CONFIRMED);
+        DOCUMENT_FIELDS.put("hidden", Document.Field.HIDDEN);
+        DOCUMENT_FIELDS.put("id", Document.Field.ID);
+        DOCUMENT_FIELDS.put("type", Document.Field.TYPE);
+        DOCUMENT_FIELDS.put("month", Document.Field.MONTH);
+        DOCUMENT_FIELDS.put("year", Document.Field.YEAR);
+        DOCUMENT_FIELDS.put("day", Document.Field.DAY);
+        DOCUMENT_FIELDS.put("source", Document.Field.SOURCE);
+        DOCUMENT_FIELDS.put("title", Document.Field.TITLE);
+        DOCUMENT_FIELDS.put("revision", Document.Field.REVISION);
+        DOCUMENT_FIELDS.put("created", Document.Field.CREATED);
+        DOCUMENT_FIELDS.put("identifiers", Document.Field.IDENTIFIERS);
+        DOCUMENT_FIELDS.put("abstract", Document.Field.ABSTRACT);
+        DOCUMENT_FIELDS.put("authors", Document.Field.AUTHORS);
+        DOCUMENT_FIELDS.put("pages", Document.Field.PAGES);
+        DOCUMENT_FIELDS.put("volume", Document.Field.VOLUME);
+        DOCUMENT_FIELDS.put("issue", Document.Field.ISSUE);
+        DOCUMENT_FIELDS.put("publisher", Document.Field.PUBLISHER);
+        DOCUMENT_FIELDS.put("city", Document.Field.CITY);
+        DOCUMENT_FIELDS.put("edition", Document.Field.EDITION);
+        DOCUMENT_FIELDS.put("institution", Document.Field.INSTITUTION);
+        DOCUMENT_FIELDS.put("series", Document.Field.SERIES);
+        DOCUMENT_FIELDS.put("chapter", Document.Field.CHAPTER);
+        DOCUMENT_FIELDS.put("editors", Document.Field.EDITORS);
+        DOCUMENT_FIELDS.put("tags", Document.Field.TAGS);
+        DOCUMENT_FIELDS.put("file_attached", Document.Field.FILE_ATTACHED);
+        DOCUMENT_FIELDS.put("keywords", Document.Field.KEYWORDS);
+        DOCUMENT_FIELDS.put("websites", Document.Field.WEBSITES);
+        DOCUMENT_FIELDS.put("client_data", Document.Field.CLIENT_DATA);
+        DOCUMENT_FIELDS.put("unique_id", Document.Field.UNIQUE_ID);
+    }
+
+    /**
+     * @return number of strings looked up in the pool sharing the values of the parsed models
+     */
+    public static long getStringPoolLookups() {
+        return STRING_POOL.getLookups();
+    }
+
+    /**
+     * @return number of strings of the parsed models replaced by an equal one already in the
+     *         pool, which divided by {@link #getStringPoolLookups()} gives its hit rate
+     */
+    public static long getStringPoolHits() {
+        return STRING_POOL.getHits();
+    }
+
     public static Profile profileFromJson(JsonReader reader) throws JSONException, IOException, ParseException {
         final Profile.Builder builder = new Profile.Builder();
 
@@ -119,7 +185,35 @@ public class JsonParser {
         return documents;
     }
 
+    /**
+     * Parses a list of documents, reading only the passed fields. The rest are skipped without
+     * being decoded.
+     *
+     * @param fields the fields to read, or null to read all of them
+     */
+    public static List<Document> documentsFromJson(JsonReader reader, Set<Document.Field> fields) throws JSONException, IOException, ParseException {
+        final List<Document> documents = new ArrayList<Document>();
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            documents.add(documentFromJson(reader, fields));
+        }
+
+        reader.endArray();
+        return documents;
+    }
+
     public static Document documentFromJson(JsonReader reader) throws JSONException, IOException, ParseException {
+        return documentFromJson(reader, null);
+    }
+
+    /**
+     * Parses a document, reading only the passed fields. The rest are skipped without being
+     * decoded.
+     *
+     * @param fields the fields to read, or null to read all of them
+     */
+    public static Document documentFromJson(JsonReader reader, Set<Document.Field> fields) throws JSONException, IOException, ParseException {
 
         final Document.Builder bld = new Document.Builder();
 
@@ -127,20 +221,23 @@ public class JsonParser {
         while (reader.hasNext()) {
 
             final String key = reader.nextName();
-            if (key.equals("title")) {
+            if (fields != null && !fields.contains(DOCUMENT_FIELDS.get(key))) {
+                reader.skipValue();
+
+            } else if (key.equals("title")) {
                 bld.setTitle(reader.nextString());
 
             } else if (key.equals("type")) {
-                bld.setType(reader.nextString());
+                bld.setType(nextPooledString(reader));
 
             } else if (key.equals("last_modified")) {
                 bld.setLastModified(DateUtils.parseMendeleyApiTimestamp(reader.nextString()));
 
             } else if (key.equals("group_id")) {
-                bld.setGroupId(reader.nextString());
+                bld.setGroupId(nextPooledString(reader));
 
             } else if (key.equals("profile_id")) {
-                bld.setProfileId(reader.nextString());
+                bld.setProfileId(nextPooledString(reader));
 
             } else if (key.equals("read")) {
                 bld.setRead(reader.nextBoolean());
@@ -230,13 +327,13 @@ public class JsonParser {
                 reader.endObject();
                 bld.setIdentifiers(map);
             } else if (key.equals("tags")) {
-                bld.setTags(stringListFromJson(reader));
+                bld.setTags(pooledStringListFromJson(reader));
 
             } else if (key.equals("file_attached")) {
                 bld.setFileAttached(reader.nextBoolean());
 
             } else if (key.equals("keywords")) {
-                bld.setKeywords(stringListFromJson(reader));
+                bld.setKeywords(pooledStringListFromJson(reader));
 
             } else if (key.equals("websites")) {
                 bld.setWebsites(stringListFromJson(reader));
@@ -427,6 +524,19 @@ public class JsonParser {
         return builder.build();
     }
 
+    public static JSONObject fileToJson(File file) throws JSONException {
+        final JSONObject jFile = new JSONObject();
+
+        jFile.put("id", file.id);
+        jFile.put("document_id", file.documentId);
+        jFile.put("mime_type", file.mimeType);
+        jFile.put("file_name", file.fileName);
+        jFile.put("filehash", file.fileHash);
+        jFile.put("size", file.fileSize);
+
+        return jFile;
+    }
+
     public static List<Folder> foldersFromJson(JsonReader reader) throws JSONException, IOException, ParseException {
 
         final List<Folder> folders = new ArrayList<Folder>();
@@ -597,7 +707,7 @@ public class JsonParser {
                 builder.setText(reader.nextString());
 
             } else if (key.equals("profile_id")) {
-                builder.setProfileId(reader.nextString());
+                builder.setProfileId(nextPooledString(reader));
 
             } else if (key.equals("positions")) {
                 builder.setPositions(positionsFromJson(reader));
@@ -612,10 +722,10 @@ public class JsonParser {
                 builder.setPrivacyLevel(PrivacyLevel.fromName(reader.nextString()));
 
             } else if (key.equals("filehash")) {
-                builder.setFileHash(reader.nextString());
+                builder.setFileHash(nextPooledString(reader));
 
             } else if (key.equals("document_id")) {
-                builder.setDocumentId(reader.nextString());
+                builder.setDocumentId(nextPooledString(reader));
             } else {
                 reader.skipValue();
             }
@@ -739,9 +849,9 @@ public class JsonParser {
         while (reader.hasNext()) {
             final String key = reader.nextName();
             if ("first_name".equals(key)) {
-                authorName = reader.nextString();
+                authorName = nextPooledString(reader);
             } else if ("last_name".equals(key)) {
-                authorLastName = reader.nextString();
+                authorLastName = nextPooledString(reader);
             } else {
                 reader.skipValue();
             }
@@ -1070,6 +1180,21 @@ public class JsonParser {
         return mendeleyUserRole.build();
     }
 
+    private static List<String> pooledStringListFromJson(JsonReader reader) throws IOException {
+        List<String> list = new ArrayList<String>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            list.add(nextPooledString(reader));
+        }
+        reader.endArray();
+        return list;
+    }
+
+    private static String nextPooledString(JsonReader reader) throws IOException {
+        return STRING_POOL.get(reader.nextString());
+    }
+
     private static List<String> stringListFromJson(JsonReader reader) throws IOException {
         List<String> list = new LinkedList<String>();
 
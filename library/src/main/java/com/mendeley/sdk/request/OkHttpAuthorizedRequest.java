@@ -5,10 +5,12 @@ import android.net.Uri;
 import com.mendeley.sdk.ClientCredentials;
 import com.mendeley.sdk.AuthTokenManager;
 import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
 import com.mendeley.sdk.exceptions.HttpResponseException;
 import com.mendeley.sdk.exceptions.MendeleyException;
 import com.mendeley.sdk.exceptions.UserCancelledException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
@@ -16,8 +18,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
 
@@ -26,10 +35,23 @@ import okhttp3.ResponseBody;
  */
 public abstract class OkHttpAuthorizedRequest<ResultType> extends AuthorizedRequest<ResultType> {
 
+    // Calls of the requests run as futures are queued in the dispatcher, which by default runs
+    // only 5 of them at a time per host. All of them go to the Mendeley API, so allow more.
+    private static final int MAX_CONCURRENT_CALLS = 64;
+    private static final int MAX_CONCURRENT_CALLS_PER_HOST = 16;
+
+    // The pre-warm is not in the way of the user, so it can wait longer for a slow network
+    private static final int PREWARM_CONNECTION_TIMEOUT = 10000;
+
     private static OkHttpClient sOkHttpClient;
 
     static  {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENT_CALLS);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT_CALLS_PER_HOST);
+
         sOkHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
                 .writeTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
                 .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
@@ -38,8 +60,68 @@ public abstract class OkHttpAuthorizedRequest<ResultType> extends AuthorizedRequ
 
     }
 
+    /**
+     * @return the HTTP client of the requests, for other downloads of the SDK to share its
+     *         connections
+     */
+    public static OkHttpClient getOkHttpClient() {
+        return sOkHttpClient;
+    }
+
+    /**
+     * Opens a connection to the Mendeley API in the pool of the HTTP client, so that the first
+     * request doesn't pay the DNS lookup and the TCP and TLS handshakes within its connection
+     * timeout. Apps typically call it while they show their splash screen.
+     *
+     * @return future that will complete with the milliseconds of the whole HEAD request, which
+     *         includes opening the connection, to estimate the time saved to the first request
+     */
+    public static RequestFuture<Long> prewarmConnection() {
+        final RequestFuture<Long> future = new RequestFuture<Long>();
+        // shares the connection pool of the client of the requests
+        final OkHttpClient client = sOkHttpClient.newBuilder()
+                .connectTimeout(PREWARM_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
+        final long startNanos = System.nanoTime();
+
+        client.newCall(new okhttp3.Request.Builder().url(MENDELEY_API_BASE_URL).head().build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ioe) {
+                future.fail(new MendeleyException("IO error pre-warming the connection to " + MENDELEY_API_BASE_URL, ioe));
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response okHttpResponse) {
+                // any response means the connection is open, whatever its status
+                closeQuietly(okHttpResponse.body());
+                future.complete(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+        });
+        return future;
+    }
+
+    // Small pool where the responses of the requests run as futures are parsed
+    private static final Executor sParsingExecutor;
+
+    static {
+        final int poolSize = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        sParsingExecutor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "MendeleySdkParser #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     private RequestProgressListener progressListener;
 
+    // HTTP call in progress, kept to be able to abort it when the request is cancelled
+    private volatile Call currentCall;
+
     public OkHttpAuthorizedRequest(Uri url, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
         super(url, authTokenManager, clientCredentials);
     }
@@ -49,49 +131,32 @@ public abstract class OkHttpAuthorizedRequest<ResultType> extends AuthorizedRequ
         return doRun(getUrl(), 0, true);
     }
 
+    @Override
+    protected final void doRunAuthorizedAsync(RequestFuture<Response> future, Executor executor) {
+        enqueue(getUrl(), 0, future, executor);
+    }
+
+    @Override
+    protected Executor getDefaultFutureExecutor() {
+        return sParsingExecutor;
+    }
+
     private Response doRun(Uri url, int currentRetry, boolean addOauthToken) throws MendeleyException {
         ResponseBody responseBody = null;
 
         try {
-            okhttp3.Request.Builder requestBld = new okhttp3.Request.Builder();
-            requestBld.url(url.toString());
-            setMethod(requestBld);
-
-            if (addOauthToken) {
-                requestBld.addHeader("Authorization", "Bearer " + authTokenManager.getAccessToken());
-            }
-
-
-
-            final Map<String, String> requestHeaders = new HashMap<String, String>();
-            appendHeaders(requestHeaders);
-            for (String key : requestHeaders.keySet()) {
-                requestBld.addHeader(key, requestHeaders.get(key));
-            }
-
-            final okhttp3.Request okHttpRequest =  requestBld.build();
-            final okhttp3.Response okHttpResponse = sOkHttpClient.newCall(okHttpRequest).execute();
-
-            final int responseCode = okHttpResponse.code();
+            final okhttp3.Request okHttpRequest = createOkHttpRequest(url, addOauthToken);
+            final okhttp3.Response okHttpResponse = newCall(okHttpRequest).execute();
 
             responseBody = okHttpResponse.body();
-            if (responseCode / 100 != 2) {
-                throw new HttpResponseException(responseCode, okHttpResponse.message(), url.toString(), responseBody.string(), okHttpResponse.header("X-Mendeley-Trace-Id"));
-            }
+            assertSuccessfulResponse(url, okHttpResponse);
 
-            // wrapping the input stream of the connection in:
-            // -- CancellableInputStream to stop reading if the request has been cancelled
-            // -- ProgressPublisherInputStream to publish progress as the file is being read
-            final InputStream is = new MyCancellableInputStream(new MyProgressPublisherInputStream(responseBody.byteStream(), responseBody.contentLength()));
-            final Map<String, List<String>> responseHeaders = okHttpResponse.headers().toMultimap();
-            return new Response(manageResponse(is), getServerDateString(responseHeaders), getNextPage(responseHeaders));
-        } catch (CancellationException ce) {
-            throw new UserCancelledException(ce);
-        } catch (MendeleyException me) {
-            throw me;
-        } catch (ParseException pe) {
-            throw new MendeleyException("Could not parse a date in the JSON response " + url, pe);
+            return createResponse(okHttpResponse, responseBody.byteStream(), responseBody.contentLength());
         } catch (IOException ioe) {
+            if (isCancelled()) {
+                // the call has been aborted by cancel()
+                throw new UserCancelledException(ioe);
+            }
             // If the issue is due to IOException, retry up to MAX_HTTP_RETRIES times
             if (currentRetry <  MAX_HTTP_RETRIES) {
                 return doRun(url, currentRetry + 1, addOauthToken);
@@ -99,18 +164,154 @@ public abstract class OkHttpAuthorizedRequest<ResultType> extends AuthorizedRequ
                 throw new MendeleyException("IO error in request " + url, ioe);
             }
         } catch (Exception e) {
-            throw new MendeleyException("Error in request " + url, e);
+            throw toMendeleyException(url, e);
         } finally {
-            if (responseBody != null) {
-                if (responseBody.byteStream() != null) {
-                    try {
-                        responseBody.byteStream().close();
-                    } catch (IOException ignored) {
+            closeQuietly(responseBody);
+        }
+    }
+
+    /**
+     * Launches the HTTP call without blocking the calling thread. The response is received in one
+     * thread of the OkHttp dispatcher, and then parsed in the passed executor, so no thread is
+     * parked while waiting for the network.
+     */
+    private void enqueue(final Uri url, final int currentRetry, final RequestFuture<Response> future, final Executor executor) {
+        final okhttp3.Request okHttpRequest;
+        try {
+            okHttpRequest = createOkHttpRequest(url, true);
+        } catch (Exception e) {
+            failFuture(future, toMendeleyException(url, e));
+            return;
+        }
+
+        newCall(okHttpRequest).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ioe) {
+                if (currentRetry < MAX_HTTP_RETRIES && !isCancelled()) {
+                    enqueue(url, currentRetry + 1, future, executor);
+                } else {
+                    failFuture(future, new MendeleyException("IO error in request " + url, ioe));
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, final okhttp3.Response okHttpResponse) {
+                final ResponseBody responseBody = okHttpResponse.body();
+                try {
+                    assertSuccessfulResponse(url, okHttpResponse);
+
+                    if (!parsesResponseInExecutor()) {
+                        completeFuture(future, createResponse(okHttpResponse, responseBody.byteStream(), responseBody.contentLength()));
+                        return;
                     }
+
+                    // read the body while in the I/O thread, and parse it in the executor
+                    final byte[] body = responseBody.bytes();
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                completeFuture(future, createResponse(okHttpResponse, new ByteArrayInputStream(body), body.length));
+                            } catch (Exception e) {
+                                failFuture(future, toMendeleyException(url, e));
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    failFuture(future, toMendeleyException(url, e));
+                } finally {
+                    closeQuietly(responseBody);
                 }
-                responseBody.close();
             }
+        });
+    }
+
+    /**
+     * Creates the call for the request, aborting it straight away if the request has been
+     * cancelled in the meantime.
+     */
+    private Call newCall(okhttp3.Request okHttpRequest) {
+        final Call call = sOkHttpClient.newCall(okHttpRequest);
+        currentCall = call;
+        if (isCancelled()) {
+            call.cancel();
+        }
+        return call;
+    }
+
+    @Override
+    protected void onCancelled() {
+        final Call call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private okhttp3.Request createOkHttpRequest(Uri url, boolean addOauthToken) throws Exception {
+        okhttp3.Request.Builder requestBld = new okhttp3.Request.Builder();
+        requestBld.url(url.toString());
+        setMethod(requestBld);
+
+        if (addOauthToken) {
+            requestBld.addHeader("Authorization", "Bearer " + authTokenManager.getAccessToken());
         }
+
+        final Map<String, String> requestHeaders = new HashMap<String, String>();
+        appendHeaders(requestHeaders);
+        for (String key : requestHeaders.keySet()) {
+            requestBld.addHeader(key, requestHeaders.get(key));
+        }
+
+        return requestBld.build();
+    }
+
+    private void assertSuccessfulResponse(Uri url, okhttp3.Response okHttpResponse) throws IOException, HttpResponseException {
+        final int responseCode = okHttpResponse.code();
+        if (responseCode / 100 != 2) {
+            throw new HttpResponseException(responseCode, okHttpResponse.message(), url.toString(), okHttpResponse.body().string(), okHttpResponse.header("X-Mendeley-Trace-Id"));
+        }
+    }
+
+    private Response createResponse(okhttp3.Response okHttpResponse, InputStream bodyStream, long contentLength) throws Exception {
+        // wrapping the input stream of the connection in:
+        // -- CancellableInputStream to stop reading if the request has been cancelled
+        // -- ProgressPublisherInputStream to publish progress as the file is being read
+        final InputStream is = new MyCancellableInputStream(new MyProgressPublisherInputStream(bodyStream, contentLength));
+        final Map<String, List<String>> responseHeaders = okHttpResponse.headers().toMultimap();
+        return new Response(manageResponse(is), getServerDateString(responseHeaders), getNextPage(responseHeaders));
+    }
+
+    private MendeleyException toMendeleyException(Uri url, Exception e) {
+        if (e instanceof CancellationException) {
+            return new UserCancelledException(e);
+        } else if (e instanceof MendeleyException) {
+            return (MendeleyException) e;
+        } else if (e instanceof ParseException) {
+            return new MendeleyException("Could not parse a date in the JSON response " + url, e);
+        }
+        return new MendeleyException("Error in request " + url, e);
+    }
+
+    private static void closeQuietly(ResponseBody responseBody) {
+        if (responseBody != null) {
+            if (responseBody.byteStream() != null) {
+                try {
+                    responseBody.byteStream().close();
+                } catch (IOException ignored) {
+                }
+            }
+            responseBody.close();
+        }
+    }
+
+    /**
+     * Whether the response of this request should be read in memory and parsed in the executor
+     * when run with {@link #runFuture()}.
+     * Requests with big responses that are streamed somewhere else (files, for example) should
+     * return false, so that they are processed straight away in the I/O thread.
+     */
+    protected boolean parsesResponseInExecutor() {
+        return true;
     }
 
     protected abstract void setMethod(okhttp3.Request.Builder requestBld) throws Exception;
@@ -21,6 +21,7 @@ import okhttp3.RequestBody;
 public abstract class PatchAuthorizedRequest<ResultType> extends OkHttpAuthorizedRequest<ResultType> {
 
     private final Date ifModifiedSinceDate;
+    private volatile RequestBodyCompressor bodyCompressor;
 
     public PatchAuthorizedRequest(Uri url, Date ifModifiedSinceDate, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
         super(url, authTokenManager, clientCredentials);
@@ -30,11 +31,28 @@ public abstract class PatchAuthorizedRequest<ResultType> extends OkHttpAuthorize
 
     @Override
     protected final void setMethod(okhttp3.Request.Builder requestBld) throws Exception {
-        requestBld.patch(getBody());
+        RequestBody body = getBody();
+        final RequestBodyCompressor compressor = bodyCompressor;
+        if (compressor != null && compressor.shouldCompress(body)) {
+            body = compressor.compress(body);
+            requestBld.header("Content-Encoding", RequestBodyCompressor.CONTENT_ENCODING);
+        }
+        requestBld.patch(body);
     }
 
     protected abstract RequestBody getBody() throws JSONException;
 
+    /**
+     * Makes the request send its body compressed with gzip when it is big enough, which the
+     * endpoint must accept. Bodies are not compressed by default.
+     * Must be called before running the request.
+     *
+     * @param bodyCompressor compressor deciding when to compress the body, or null not to
+     */
+    public final void setBodyCompressor(RequestBodyCompressor bodyCompressor) {
+        this.bodyCompressor = bodyCompressor;
+    }
+
     @Override
     protected void appendHeaders(Map<String, String> headers) {
         super.appendHeaders(headers);
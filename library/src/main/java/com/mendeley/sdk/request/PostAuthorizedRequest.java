@@ -14,6 +14,8 @@ import okhttp3.RequestBody;
  */
 public abstract class PostAuthorizedRequest<ResultType> extends OkHttpAuthorizedRequest<ResultType> {
 
+    private volatile RequestBodyCompressor bodyCompressor;
+
     public PostAuthorizedRequest(Uri url, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
         super(url, authTokenManager, clientCredentials);
     }
@@ -21,10 +23,27 @@ public abstract class PostAuthorizedRequest<ResultType> extends OkHttpAuthorized
 
     @Override
     protected final void setMethod(okhttp3.Request.Builder requestBld) throws Exception {
-        requestBld.post(getBody());
+        RequestBody body = getBody();
+        final RequestBodyCompressor compressor = bodyCompressor;
+        if (compressor != null && compressor.shouldCompress(body)) {
+            body = compressor.compress(body);
+            requestBld.header("Content-Encoding", RequestBodyCompressor.CONTENT_ENCODING);
+        }
+        requestBld.post(body);
     }
 
     protected abstract RequestBody getBody() throws JSONException;
 
+    /**
+     * Makes the request send its body compressed with gzip when it is big enough, which the
+     * endpoint must accept. Bodies are not compressed by default.
+     * Must be called before running the request.
+     *
+     * @param bodyCompressor compressor deciding when to compress the body, or null not to
+     */
+    public final void setBodyCompressor(RequestBodyCompressor bodyCompressor) {
+        this.bodyCompressor = bodyCompressor;
+    }
+
 
 }
@@ -0,0 +1,152 @@
+package com.mendeley.sdk.request;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Compresses the bodies of the requests with gzip while they are being written, so that the
+ * compressed body never needs to be held in memory.
+ * <p/>
+ * Small bodies are not worth compressing, so only the ones over an adaptive threshold are
+ * compressed. The threshold grows when the bodies compress badly and shrinks back when they
+ * compress well.
+ * <p/>
+ * It also keeps track of the number of bytes saved, so that the gain in slow mobile networks
+ * can be measured. Each compressor keeps its own threshold and counters, so the ones of a
+ * {@link com.mendeley.sdk.RequestsFactory} are not mixed with the ones of another.
+ */
+public class RequestBodyCompressor {
+
+    public static final String CONTENT_ENCODING = "gzip";
+
+    static final int MIN_THRESHOLD = 512;
+    static final int MAX_THRESHOLD = 64 * 1024;
+
+    // compression ratios (compressed / original) deciding when to move the threshold
+    private static final float BAD_RATIO = 0.9f;
+    private static final float GOOD_RATIO = 0.5f;
+
+    private final AtomicInteger threshold = new AtomicInteger(1024);
+
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressedBodies = new AtomicLong();
+
+    /**
+     * @param body body to send
+     * @return whether the body is big enough to be compressed. Bodies of unknown length are never
+     *         compressed.
+     */
+    public boolean shouldCompress(RequestBody body) throws IOException {
+        return body != null && body.contentLength() >= threshold.get();
+    }
+
+    /**
+     * @param body to compress
+     * @return a body that writes the gzip compressed contents of the passed one
+     */
+    public RequestBody compress(final RequestBody body) {
+        return new RequestBody() {
+            // the body is written again if the call is retried, but only accounted once
+            private final AtomicBoolean accounted = new AtomicBoolean();
+
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() {
+                // unknown until compressed
+                return -1;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                final CountingSink countingSink = new CountingSink(sink);
+                final BufferedSink gzipSink = Okio.buffer(new GzipSink(countingSink));
+                body.writeTo(gzipSink);
+                gzipSink.close();
+
+                if (accounted.compareAndSet(false, true)) {
+                    onBodyCompressed(body.contentLength(), countingSink.count);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return current size in bytes from which bodies are compressed
+     */
+    public int getThreshold() {
+        return threshold.get();
+    }
+
+    /**
+     * @return number of bytes not sent thanks to compressing the bodies
+     */
+    public long getBytesSaved() {
+        return originalBytes.get() - compressedBytes.get();
+    }
+
+    /**
+     * @return number of bodies that have been sent compressed
+     */
+    public long getCompressedBodiesCount() {
+        return compressedBodies.get();
+    }
+
+    /**
+     * @return ratio between the compressed and the original size of all the compressed bodies,
+     *         or 1 if no body has been compressed yet
+     */
+    public float getCompressionRatio() {
+        final long original = originalBytes.get();
+        return original == 0 ? 1 : (float) compressedBytes.get() / original;
+    }
+
+    void onBodyCompressed(long original, long compressed) {
+        if (original <= 0) {
+            return;
+        }
+        originalBytes.addAndGet(original);
+        compressedBytes.addAndGet(compressed);
+        compressedBodies.incrementAndGet();
+
+        final float ratio = (float) compressed / original;
+        final int current = threshold.get();
+        if (ratio > BAD_RATIO) {
+            threshold.compareAndSet(current, Math.min(MAX_THRESHOLD, current * 2));
+        } else if (ratio < GOOD_RATIO) {
+            threshold.compareAndSet(current, Math.max(MIN_THRESHOLD, current / 2));
+        }
+    }
+
+    /**
+     * Sink counting the bytes written to the network.
+     */
+    private static class CountingSink extends ForwardingSink {
+
+        private long count;
+
+        public CountingSink(BufferedSink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            count += byteCount;
+        }
+    }
+}
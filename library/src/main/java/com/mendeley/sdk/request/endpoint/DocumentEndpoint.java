@@ -24,6 +24,7 @@ import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
@@ -41,18 +42,38 @@ public class DocumentEndpoint {
 
 
     public static class GetDocumentsRequest extends GetAuthorizedRequest<List<Document>> {
+
+        private final Set<Document.Field> fields;
+
         public GetDocumentsRequest(Uri url, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
-            super(url, authTokenManager, clientCredentials);
+            this(url, null, authTokenManager, clientCredentials);
         }
 
         public GetDocumentsRequest(DocumentEndpoint.DocumentRequestParameters params, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
-            super(params != null ? params.appendToUi(Uri.parse(DOCUMENTS_BASE_URL)) : Uri.parse(DOCUMENTS_BASE_URL), authTokenManager, clientCredentials);
+            this(params, null, authTokenManager, clientCredentials);
+        }
+
+        /**
+         * @param fields fields of the documents to read from the response. The rest of them will be null.
+         *               If null, all the fields are read.
+         */
+        public GetDocumentsRequest(Uri url, Set<Document.Field> fields, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
+            super(url, authTokenManager, clientCredentials);
+            this.fields = fields;
+        }
+
+        /**
+         * @param fields fields of the documents to read from the response. The rest of them will be null.
+         *               If null, all the fields are read.
+         */
+        public GetDocumentsRequest(DocumentEndpoint.DocumentRequestParameters params, Set<Document.Field> fields, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
+            this(params != null ? params.appendToUi(Uri.parse(DOCUMENTS_BASE_URL)) : Uri.parse(DOCUMENTS_BASE_URL), fields, authTokenManager, clientCredentials);
         }
 
         @Override
         protected List<Document> manageResponse(InputStream is) throws JSONException, IOException, ParseException {
             final JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(is)));
-            return JsonParser.documentsFromJson(reader);
+            return JsonParser.documentsFromJson(reader, fields);
         }
 
         @Override
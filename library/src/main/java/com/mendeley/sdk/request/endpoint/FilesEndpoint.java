@@ -14,6 +14,7 @@ import com.mendeley.sdk.request.GetAuthorizedRequest;
 import com.mendeley.sdk.request.JsonParser;
 import com.mendeley.sdk.request.PostAuthorizedRequest;
 import com.mendeley.sdk.util.DateUtils;
+import com.mendeley.sdk.util.HashUtils;
 
 import org.json.JSONException;
 
@@ -22,6 +23,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -70,15 +72,20 @@ public class FilesEndpoint {
     }
 
     /**
-     * {@link Request} to download the binary of a file (usually the pdf file)
+     * {@link Request} to download the binary of a file (usually the pdf file).
+     * <p/>
+     * If the expected hash of the file is set, the SHA-1 of the content is computed while it is
+     * being written, and the download fails if they don't match.
      */
     public static class GetFileBinaryRequest extends GetAuthorizedRequest<Long> {
 
         private static String filesUrl = MENDELEY_API_BASE_URL + "files";
 
         private static final String PARTIALLY_DOWNLOADED_EXTENSION = ".part";
+
         private final String fileId;
         private final java.io.File targetFile;
+        private volatile String expectedFileHash;
 
         public GetFileBinaryRequest(String fileId, java.io.File targetFile, AuthTokenManager authTokenManager, ClientCredentials clientCredentials) {
             super(Uri.parse(filesUrl + "/" + fileId), authTokenManager, clientCredentials);
@@ -86,13 +93,30 @@ public class FilesEndpoint {
             this.targetFile = targetFile;
         }
 
+        /**
+         * Sets the hash the downloaded content must have, typically {@link File#fileHash}.
+         * The target file is not created if the content doesn't match it.
+         */
+        public void setExpectedFileHash(String expectedFileHash) {
+            this.expectedFileHash = expectedFileHash;
+        }
+
+        @Override
+        protected boolean parsesResponseInExecutor() {
+            // the file is streamed to disk, there is no need to hold it in memory
+            return false;
+        }
+
         @Override
         protected Long manageResponse(InputStream is) throws IOException, FileDownloadException {
             final java.io.File tempFile = new java.io.File(targetFile.getParent(), targetFile.getName() + PARTIALLY_DOWNLOADED_EXTENSION);
+            final String expectedFileHash = this.expectedFileHash;
+            final MessageDigest digest = expectedFileHash != null ? HashUtils.newSha1Digest() : null;
 
+            FileOutputStream fileOutputStream = null;
             try {
                 long total = 0;
-                FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+                fileOutputStream = new FileOutputStream(tempFile);
 
                 byte data[] = new byte[1024 * 16];
                 int count;
@@ -100,6 +124,15 @@ public class FilesEndpoint {
                 while ((count = is.read(data)) != -1) {
                     total += count;
                     fileOutputStream.write(data, 0, count);
+                    if (digest != null) {
+                        digest.update(data, 0, count);
+                    }
+                }
+                fileOutputStream.close();
+                fileOutputStream = null;
+
+                if (digest != null && !expectedFileHash.equalsIgnoreCase(HashUtils.toHex(digest.digest()))) {
+                    throw new FileDownloadException("Downloaded file doesn't match its hash", fileId);
                 }
 
                 if (!tempFile.renameTo(targetFile)) {
@@ -108,6 +141,9 @@ public class FilesEndpoint {
                     return total;
                 }
             } catch (Exception e) {
+                if (fileOutputStream != null) {
+                    fileOutputStream.close();
+                }
                 if (tempFile.exists()) {
                     tempFile.delete();
                 }
@@ -0,0 +1,56 @@
+package com.mendeley.sdk.sync;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.index.AnnotationPageIndex;
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.request.endpoint.AnnotationsEndpoint;
+
+import java.util.List;
+
+/**
+ * Fills an {@link AnnotationPageIndex} with the annotations of one document, putting each page
+ * of annotations in the index as soon as it is received, so that the visible page can be drawn
+ * before all of them are loaded.
+ */
+public class AnnotationPageIndexLoader {
+
+    private final RequestsFactory requestsFactory;
+
+    public AnnotationPageIndexLoader(RequestsFactory requestsFactory) {
+        this.requestsFactory = requestsFactory;
+    }
+
+    /**
+     * @param documentId id of the document whose annotations are loaded
+     * @param index the index to fill
+     * @return future that will complete with the index once all the annotations are in it
+     */
+    public RequestFuture<AnnotationPageIndex> load(String documentId, final AnnotationPageIndex index) {
+        final AnnotationsEndpoint.AnnotationRequestParameters parameters = new AnnotationsEndpoint.AnnotationRequestParameters();
+        parameters.documentId = documentId;
+        parameters.limit = PageLoader.MAX_PAGE_SIZE;
+        final PageLoader.NextPageFactory<Annotation> nextPages = new PageLoader.NextPageFactory<Annotation>() {
+            @Override
+            public Request<List<Annotation>> newNextPageRequest(Uri next) {
+                return requestsFactory.newGetAnnotationsRequest(next);
+            }
+        };
+        final PageLoader.PageListener<Annotation> pageListener = new PageLoader.PageListener<Annotation>() {
+            @Override
+            public void onPage(Request<List<Annotation>>.Response page) {
+                index.putAll(page.resource);
+            }
+        };
+        return PageLoader.loadAll(requestsFactory.newGetAnnotationsRequest(parameters), nextPages, pageListener).map(new RequestFuture.Function<List<Annotation>, AnnotationPageIndex>() {
+            @Override
+            public AnnotationPageIndex apply(List<Annotation> annotations) {
+                return index;
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.mendeley.sdk.sync;
+
+import com.mendeley.sdk.model.Annotation;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Local copy of the annotations synced by {@link AnnotationSync}, grouped in scopes (the
+ * annotations of one document or one group), each one with the server date up to which it is
+ * up to date.
+ * <p/>
+ * Apps can implement it on top of their own storage, so that the annotations and watermarks
+ * survive restarts; {@link InMemoryAnnotationStore} keeps them in memory.
+ */
+public interface AnnotationStore {
+
+    /**
+     * @return the server date the scope was last synced at, or null if it has never been synced
+     */
+    Date getWatermark(String scope);
+
+    /**
+     * @return the annotations of the scope
+     */
+    List<Annotation> getAnnotations(String scope);
+
+    /**
+     * Replaces all the annotations of the scope, after a full sync.
+     */
+    void replace(String scope, List<Annotation> annotations, Date watermark);
+
+    /**
+     * Applies the changes of an incremental sync to the scope.
+     *
+     * @param modified annotations created or changed, replacing any previous version
+     * @param deletedIds ids of the deleted annotations
+     */
+    void merge(String scope, List<Annotation> modified, List<String> deletedIds, Date watermark);
+}
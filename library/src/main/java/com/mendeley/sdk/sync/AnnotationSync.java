@@ -0,0 +1,185 @@
+package com.mendeley.sdk.sync;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.model.Annotation;
+import com.mendeley.sdk.request.endpoint.AnnotationsEndpoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keeps the annotations of documents or groups in an {@link AnnotationStore} up to date,
+ * fetching only the annotations modified or deleted since the previous sync.
+ * <p/>
+ * The first sync of a scope fetches all its annotations. After that, the store keeps the
+ * {@link Request.Response#serverDate} of the sync as a watermark, and the next syncs query the
+ * changes since it with the modified_since and deleted_since parameters, which usually return
+ * one short page each.
+ */
+public class AnnotationSync {
+
+    // watermarks are moved back by this, as server dates have second precision; annotations
+    // modified in the same second as the previous sync are fetched again, which is harmless
+    private static final long WATERMARK_OVERLAP_MS = 1000;
+
+    private final RequestsFactory requestsFactory;
+    private final AnnotationStore store;
+
+    public AnnotationSync(RequestsFactory requestsFactory, AnnotationStore store) {
+        this.requestsFactory = requestsFactory;
+        this.store = store;
+    }
+
+    public AnnotationStore getStore() {
+        return store;
+    }
+
+    /**
+     * Syncs the annotations of one document.
+     *
+     * @return future that will complete with the changes applied to the store
+     */
+    public RequestFuture<Changes> syncDocument(String documentId) {
+        final AnnotationsEndpoint.AnnotationRequestParameters parameters = new AnnotationsEndpoint.AnnotationRequestParameters();
+        parameters.documentId = documentId;
+        return sync(getDocumentScope(documentId), parameters);
+    }
+
+    /**
+     * Syncs the annotations of one group.
+     *
+     * @return future that will complete with the changes applied to the store
+     */
+    public RequestFuture<Changes> syncGroup(String groupId) {
+        final AnnotationsEndpoint.AnnotationRequestParameters parameters = new AnnotationsEndpoint.AnnotationRequestParameters();
+        parameters.groupId = groupId;
+        return sync(getGroupScope(groupId), parameters);
+    }
+
+    /**
+     * @return the scope of the store holding the annotations of the document
+     */
+    public static String getDocumentScope(String documentId) {
+        return "document:" + documentId;
+    }
+
+    /**
+     * @return the scope of the store holding the annotations of the group
+     */
+    public static String getGroupScope(String groupId) {
+        return "group:" + groupId;
+    }
+
+    private RequestFuture<Changes> sync(final String scope, AnnotationsEndpoint.AnnotationRequestParameters scopeParameters) {
+        final Date watermark = store.getWatermark(scope);
+
+        if (watermark == null) {
+            return loadPages(requestsFactory.newGetAnnotationsRequest(withPageSize(scopeParameters))).map(new RequestFuture.Function<Pages, Changes>() {
+                @Override
+                public Changes apply(Pages all) {
+                    store.replace(scope, all.annotations, all.serverDate);
+                    return new Changes(true, all.annotations, Collections.<String>emptyList());
+                }
+            });
+        }
+
+        final Date since = new Date(watermark.getTime() - WATERMARK_OVERLAP_MS);
+
+        final AnnotationsEndpoint.AnnotationRequestParameters modifiedParameters = withPageSize(scopeParameters);
+        modifiedParameters.modifiedSince = since;
+        final AnnotationsEndpoint.AnnotationRequestParameters deletedParameters = withPageSize(scopeParameters);
+        deletedParameters.deletedSince = since;
+
+        return RequestFuture.zip(
+                loadPages(requestsFactory.newGetAnnotationsRequest(modifiedParameters)),
+                loadPages(requestsFactory.newGetAnnotationsRequest(deletedParameters)),
+                new RequestFuture.Combiner<Pages, Pages, Changes>() {
+                    @Override
+                    public Changes combine(Pages modified, Pages deleted) {
+                        final List<String> deletedIds = new ArrayList<String>(deleted.annotations.size());
+                        for (Annotation annotation : deleted.annotations) {
+                            deletedIds.add(annotation.id);
+                        }
+                        // the earliest date, so that no change between both queries is missed
+                        final Date newWatermark = modified.serverDate.before(deleted.serverDate) ? modified.serverDate : deleted.serverDate;
+                        store.merge(scope, modified.annotations, deletedIds, newWatermark);
+                        return new Changes(false, modified.annotations, deletedIds);
+                    }
+                });
+    }
+
+    private RequestFuture<Pages> loadPages(Request<List<Annotation>> firstPage) {
+        final Pages pages = new Pages();
+        final PageLoader.NextPageFactory<Annotation> nextPages = new PageLoader.NextPageFactory<Annotation>() {
+            @Override
+            public Request<List<Annotation>> newNextPageRequest(Uri next) {
+                return requestsFactory.newGetAnnotationsRequest(next);
+            }
+        };
+        final PageLoader.PageListener<Annotation> pageListener = new PageLoader.PageListener<Annotation>() {
+            @Override
+            public void onPage(Request<List<Annotation>>.Response page) {
+                if (pages.serverDate == null) {
+                    pages.serverDate = page.serverDate;
+                }
+            }
+        };
+        return PageLoader.loadAll(firstPage, nextPages, pageListener).map(new RequestFuture.Function<List<Annotation>, Pages>() {
+            @Override
+            public Pages apply(List<Annotation> annotations) {
+                pages.annotations = annotations;
+                return pages;
+            }
+        });
+    }
+
+    private static AnnotationsEndpoint.AnnotationRequestParameters withPageSize(AnnotationsEndpoint.AnnotationRequestParameters scopeParameters) {
+        final AnnotationsEndpoint.AnnotationRequestParameters parameters = new AnnotationsEndpoint.AnnotationRequestParameters();
+        parameters.documentId = scopeParameters.documentId;
+        parameters.groupId = scopeParameters.groupId;
+        parameters.limit = PageLoader.MAX_PAGE_SIZE;
+        return parameters;
+    }
+
+    /**
+     * Changes applied to the store by one sync, to update anything derived from the annotations,
+     * like an {@link com.mendeley.sdk.index.AnnotationPageIndex}.
+     */
+    public static class Changes {
+        /**
+         * True if all the annotations of the scope were fetched and replaced
+         */
+        public final boolean full;
+
+        /**
+         * Annotations created or modified, or all of them in a full sync
+         */
+        public final List<Annotation> modified;
+
+        /**
+         * Ids of the deleted annotations
+         */
+        public final List<String> deletedIds;
+
+        public Changes(boolean full, List<Annotation> modified, List<String> deletedIds) {
+            this.full = full;
+            this.modified = modified;
+            this.deletedIds = deletedIds;
+        }
+    }
+
+    /**
+     * Annotations of all the pages of one query, with the server date of the first one.
+     */
+    private static class Pages {
+        List<Annotation> annotations;
+        Date serverDate;
+    }
+}
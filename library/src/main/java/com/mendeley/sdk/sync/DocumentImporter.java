@@ -0,0 +1,306 @@
+package com.mendeley.sdk.sync;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports many documents into the user's library, with their files and the folders they belong
+ * to, keeping several of them in flight so that the import is limited by the network and not
+ * by the round trips of one request after the other.
+ * <p/>
+ * Each {@link Item} goes through three stages: its document is created, and then its file is
+ * uploaded and the document is added to its folders, in parallel. Up to the configured number
+ * of items are in progress at a time, each one at its own stage, and new items are taken from
+ * the iterator as others finish, so the whole set never needs to be in memory.
+ * <p/>
+ * Every completed step is saved in an {@link ImportCheckpoint}, so that running the same import
+ * again after an interruption skips the steps already done. A failing item doesn't stop the
+ * others; running the import again retries it from its last completed step. The only duplicates
+ * left are the documents being created when the process died, whose creation the checkpoint
+ * could not save.
+ */
+public class DocumentImporter {
+
+    public static final int DEFAULT_MAX_ITEMS_IN_FLIGHT = 6;
+
+    private final RequestsFactory requestsFactory;
+    private final ImportCheckpoint checkpoint;
+    private final FileUploader fileUploader;
+    private final int maxItemsInFlight;
+
+    public DocumentImporter(RequestsFactory requestsFactory, ImportCheckpoint checkpoint) {
+        this(requestsFactory, checkpoint, DEFAULT_MAX_ITEMS_IN_FLIGHT);
+    }
+
+    /**
+     * @param checkpoint where the progress is saved and resumed from
+     * @param maxItemsInFlight maximum number of items being imported at a time
+     */
+    public DocumentImporter(RequestsFactory requestsFactory, ImportCheckpoint checkpoint, int maxItemsInFlight) {
+        if (maxItemsInFlight < 1) {
+            throw new IllegalArgumentException("maxItemsInFlight must be positive");
+        }
+        this.requestsFactory = requestsFactory;
+        this.checkpoint = checkpoint;
+        this.fileUploader = new FileUploader(requestsFactory);
+        this.maxItemsInFlight = maxItemsInFlight;
+    }
+
+    /**
+     * Imports the items, skipping the steps already done by a previous run of the same import.
+     *
+     * @param items the items to import, taken one by one as the import progresses. Their keys
+     *              must be unique and the same in every run.
+     * @return future that will complete with the outcome of each item once all of them have
+     *         been processed, or fail if the iterator throws, once the items in progress finish
+     */
+    public RequestFuture<Result> importAll(Iterator<Item> items) {
+        final Run run = new Run(items, maxItemsInFlight);
+        for (int i = 0; i < maxItemsInFlight; i++) {
+            importNext(run);
+        }
+        return run.result;
+    }
+
+    /**
+     * Imports one item after the other, taking the next one still pending, until there are no
+     * more. Failures of the items are recorded and don't stop the worker.
+     * <p/>
+     * Items completing straight away, like the ones done by a previous run, are processed in a
+     * loop rather than by recursion, so resuming a big import doesn't overflow the stack.
+     */
+    private void importNext(final Run run) {
+        while (true) {
+            final Item item = run.next();
+            if (item == null) {
+                run.onWorkerFinished();
+                return;
+            }
+
+            final RequestFuture<String> future = startItem(item);
+            if (future.isDone()) {
+                run.onItemDone(item, future);
+                continue;
+            }
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    run.onItemDone(item, future);
+                    importNext(run);
+                }
+            });
+            return;
+        }
+    }
+
+    /**
+     * @return future that will complete with the id of the document of the item, failing rather
+     *         than throwing if the import of the item can't be started
+     */
+    private RequestFuture<String> startItem(Item item) {
+        try {
+            return importItem(item);
+        } catch (RuntimeException e) {
+            return RequestFuture.failed(new MendeleyException("Unexpected error importing item " + item.key, e));
+        }
+    }
+
+    /**
+     * @return future that will complete with the id of the document of the item
+     */
+    private RequestFuture<String> importItem(final Item item) {
+        // the file may have been uploaded before a previous run stopped
+        final boolean resumed = checkpoint.getDocumentId(item.key) != null;
+        return createDocument(item).then(new RequestFuture.AsyncFunction<String, String>() {
+            @Override
+            public RequestFuture<String> apply(final String documentId) {
+                final List<RequestFuture<Void>> steps = new ArrayList<RequestFuture<Void>>();
+                if (item.file != null && !checkpoint.isFileUploaded(item.key)) {
+                    steps.add(uploadFile(item, documentId, resumed));
+                }
+                for (String folderId : item.folderIds) {
+                    if (!checkpoint.isLinked(item.key, folderId)) {
+                        steps.add(addToFolder(item, documentId, folderId));
+                    }
+                }
+                return RequestFuture.allOf(steps).map(new RequestFuture.Function<List<Void>, String>() {
+                    @Override
+                    public String apply(List<Void> input) {
+                        return documentId;
+                    }
+                });
+            }
+        });
+    }
+
+    private RequestFuture<String> createDocument(final Item item) {
+        final String createdId = checkpoint.getDocumentId(item.key);
+        if (createdId != null) {
+            return RequestFuture.succeeded(createdId);
+        }
+
+        return requestsFactory.newPostDocumentRequest(item.document).runFuture().map(new RequestFuture.Function<Request<Document>.Response, String>() {
+            @Override
+            public String apply(Request<Document>.Response response) {
+                checkpoint.setDocumentCreated(item.key, response.resource.id);
+                return response.resource.id;
+            }
+        });
+    }
+
+    private RequestFuture<Void> uploadFile(final Item item, String documentId, boolean resumed) {
+        final RequestFuture<FileUploader.Result> upload;
+        if (resumed) {
+            upload = fileUploader.upload(item.file, item.contentType, documentId, item.fileName);
+        } else {
+            upload = fileUploader.post(item.file, item.contentType, documentId, item.fileName);
+        }
+        return upload.map(new RequestFuture.Function<FileUploader.Result, Void>() {
+            @Override
+            public Void apply(FileUploader.Result result) {
+                checkpoint.setFileUploaded(item.key);
+                return null;
+            }
+        });
+    }
+
+    private RequestFuture<Void> addToFolder(final Item item, String documentId, final String folderId) {
+        return requestsFactory.newPostDocumentToFolderRequest(folderId, documentId).runFuture().map(new RequestFuture.Function<Request<Void>.Response, Void>() {
+            @Override
+            public Void apply(Request<Void>.Response response) {
+                checkpoint.setLinked(item.key, folderId);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * State of one call to {@link #importAll(Iterator)}, shared by its workers.
+     */
+    private class Run {
+        final RequestFuture<Result> result = new RequestFuture<Result>();
+
+        private final Iterator<Item> items;
+        private int runningWorkers;
+        private final Map<String, String> imported = new LinkedHashMap<String, String>();
+        private final Map<String, MendeleyException> failures = new LinkedHashMap<String, MendeleyException>();
+        private MendeleyException itemsError;
+
+        Run(Iterator<Item> items, int workerCount) {
+            this.items = items;
+            this.runningWorkers = workerCount;
+        }
+
+        /**
+         * @return the next item to import, or null if there are no more, the import has been
+         *         cancelled or the iterator has thrown
+         */
+        synchronized Item next() {
+            if (result.isCancelled() || itemsError != null) {
+                return null;
+            }
+            try {
+                return items.hasNext() ? items.next() : null;
+            } catch (RuntimeException e) {
+                // no more items are taken, the run fails once the ones in progress finish
+                itemsError = new MendeleyException("Cannot read the next item to import", e);
+                return null;
+            }
+        }
+
+        synchronized void onItemDone(Item item, RequestFuture<String> future) {
+            try {
+                imported.put(item.key, future.getResult());
+            } catch (MendeleyException e) {
+                failures.put(item.key, e);
+            }
+        }
+
+        void onWorkerFinished() {
+            final MendeleyException error;
+            final Result outcome;
+            synchronized (this) {
+                if (--runningWorkers > 0) {
+                    return;
+                }
+                error = itemsError;
+                outcome = new Result(imported, failures);
+            }
+            if (error != null) {
+                result.fail(error);
+            } else {
+                result.complete(outcome);
+            }
+        }
+    }
+
+    /**
+     * One document to import, with its optional file and the folders it must be added to.
+     */
+    public static class Item {
+        /**
+         * Identifies the item across runs of the same import, like the id of the record in the
+         * imported set. Must not contain tabs nor line breaks.
+         */
+        public final String key;
+        public final Document document;
+        public final java.io.File file;
+        public final String contentType;
+        public final String fileName;
+        public final List<String> folderIds;
+
+        /**
+         * @param file local file to attach to the document, or null
+         * @param contentType content type of the file, if any
+         * @param fileName name of the file, if any
+         * @param folderIds ids of the folders to add the document to, or null
+         * @throws IllegalArgumentException if the key is null or has tabs or line breaks
+         */
+        public Item(String key, Document document, java.io.File file, String contentType, String fileName, List<String> folderIds) {
+            ImportCheckpoint.checkKey(key);
+            this.key = key;
+            this.document = document;
+            this.file = file;
+            this.contentType = contentType;
+            this.fileName = fileName;
+            this.folderIds = folderIds != null ? folderIds : Collections.<String>emptyList();
+        }
+    }
+
+    /**
+     * Outcome of each of the items of an import.
+     */
+    public static class Result {
+        /**
+         * Keys of the items fully imported -> ids of their documents
+         */
+        public final Map<String, String> imported;
+
+        /**
+         * Keys of the items that failed -> error of the failing step
+         */
+        public final Map<String, MendeleyException> failures;
+
+        public Result(Map<String, String> imported, Map<String, MendeleyException> failures) {
+            this.imported = Collections.unmodifiableMap(new LinkedHashMap<String, String>(imported));
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<String, MendeleyException>(failures));
+        }
+
+        /**
+         * @return true if all the items were imported
+         */
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+    }
+}
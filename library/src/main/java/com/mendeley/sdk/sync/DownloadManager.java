@@ -0,0 +1,505 @@
+package com.mendeley.sdk.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.JsonReader;
+import android.util.Log;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.cache.FileCache;
+import com.mendeley.sdk.exceptions.FileDownloadException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.request.JsonParser;
+import com.mendeley.sdk.request.OkHttpAuthorizedRequest;
+import com.mendeley.sdk.request.endpoint.FilesEndpoint;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Downloads the binaries of {@link File}s into a {@link FileCache}, several at a time, in order
+ * of priority.
+ * <p/>
+ * Downloads are queued in one lane per {@link Priority}, and the higher lanes are always served
+ * first. Up to the configured number of downloads run at a time, but one slot is reserved for
+ * {@link Priority#INTERACTIVE} ones, and the lower lanes run as background requests, so that
+ * making a whole folder available offline doesn't delay the file the user is opening, nor the
+ * requests of the app.
+ * <p/>
+ * The queue is saved in {@link SharedPreferences}, and downloads not finished when the process
+ * dies are queued again when the next manager is created. Files are queued by hash, so asking
+ * for a file already queued or in the cache doesn't download it again.
+ * <p/>
+ * Requests are started, futures completed and the {@link ProgressListener} called without holding
+ * the lock of the manager, so their callbacks can call back into it from any thread.
+ */
+public class DownloadManager {
+
+    private static final String TAG = DownloadManager.class.getSimpleName();
+
+    public static final String SHARED_PREFERENCES_NAME = "mendeley_downloads";
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 3;
+
+    static final String KEY_PRIORITY = "x_priority";
+    private static final String KEY_PAUSED = "x_paused";
+
+    // runs the cheap callbacks of the downloads in the thread completing them
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Priority of the downloads, from the highest to the lowest.
+     */
+    public enum Priority {
+        /**
+         * Files the user is waiting for
+         */
+        INTERACTIVE,
+        /**
+         * Files likely to be opened soon
+         */
+        NORMAL,
+        /**
+         * Files made available offline in bulk
+         */
+        BULK
+    }
+
+    /**
+     * Listener of the aggregated progress of all the queued downloads.
+     */
+    public interface ProgressListener {
+        /**
+         * @param downloadedBytes bytes downloaded of the queued and running files
+         * @param totalBytes total bytes of the queued and running files
+         */
+        void onProgress(long downloadedBytes, long totalBytes);
+    }
+
+    private final RequestsFactory requestsFactory;
+    private final FileCache fileCache;
+    private final SharedPreferences preferences;
+    private final int maxConcurrentDownloads;
+
+    // file hash -> download, queued or running
+    private final Map<String, Download> downloads = new HashMap<String, Download>();
+    private final EnumMap<Priority, LinkedList<Download>> lanes = new EnumMap<Priority, LinkedList<Download>>(Priority.class);
+
+    // downloads taken from the lanes whose requests are still to be run, outside the lock
+    private final LinkedList<Download> toStart = new LinkedList<Download>();
+    private boolean starting;
+
+    private int runningCount;
+    private ProgressListener progressListener;
+
+    private static DownloadManager sInstance;
+
+    /**
+     * Obtains the manager of the process, saving its queue in the default
+     * {@link SharedPreferences}. It is created the first time, and the same one is returned
+     * afterwards, as two managers sharing the same queue would download the same files.
+     *
+     * @param requestsFactory used to download the files, if the manager has to be created
+     * @param fileCache where the files are stored, if the manager has to be created
+     */
+    public static synchronized DownloadManager obtain(Context context, RequestsFactory requestsFactory, FileCache fileCache) {
+        if (sInstance == null) {
+            sInstance = new DownloadManager(
+                    requestsFactory,
+                    fileCache,
+                    context.getApplicationContext().getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE),
+                    DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param preferences where the queue is saved
+     * @param maxConcurrentDownloads maximum number of files downloaded at a time, at least 2
+     */
+    public DownloadManager(RequestsFactory requestsFactory, FileCache fileCache, SharedPreferences preferences, int maxConcurrentDownloads) {
+        if (maxConcurrentDownloads < 2) {
+            throw new IllegalArgumentException("maxConcurrentDownloads must be at least 2");
+        }
+        this.requestsFactory = requestsFactory;
+        this.fileCache = fileCache;
+        this.preferences = preferences;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new LinkedList<Download>());
+        }
+
+        restoreQueue();
+    }
+
+    public synchronized void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Queues the download of the file. If it is already queued, its priority is raised if needed.
+     *
+     * @return future that will complete with the file in the cache
+     */
+    public RequestFuture<java.io.File> enqueue(File file, Priority priority) {
+        final java.io.File cached = fileCache.get(file.fileHash);
+        if (cached != null) {
+            return RequestFuture.succeeded(cached);
+        }
+
+        Download download;
+        synchronized (this) {
+            download = downloads.get(file.fileHash);
+            if (download == null) {
+                download = new Download(file, priority);
+                downloads.put(file.fileHash, download);
+                lanes.get(priority).add(download);
+                save(download);
+            } else if (priority.ordinal() < download.priority.ordinal()) {
+                if (lanes.get(download.priority).remove(download)) {
+                    lanes.get(priority).add(download);
+                }
+                download.priority = priority;
+                save(download);
+            }
+            schedule();
+        }
+
+        startPending();
+        return download.future;
+    }
+
+    /**
+     * Queues the download of several files, typically to make a folder available offline.
+     *
+     * @return future that will complete with the files in the cache, in the same order
+     */
+    public RequestFuture<List<java.io.File>> enqueueAll(List<File> files, Priority priority) {
+        final List<RequestFuture<java.io.File>> futures = new ArrayList<RequestFuture<java.io.File>>(files.size());
+        for (File file : files) {
+            futures.add(enqueue(file, priority));
+        }
+        return RequestFuture.allOf(futures);
+    }
+
+    /**
+     * Stops the download of the file, keeping it in the queue until {@link #resume(String)}.
+     * A running download is aborted and will start again from the beginning.
+     */
+    public void pause(String fileHash) {
+        final FilesEndpoint.GetFileBinaryRequest request;
+        synchronized (this) {
+            final Download download = downloads.get(fileHash);
+            if (download == null || download.paused) {
+                return;
+            }
+            download.paused = true;
+            save(download);
+            request = download.request;
+        }
+        // the download is queued again once its request notices the cancellation
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    public void resume(String fileHash) {
+        synchronized (this) {
+            final Download download = downloads.get(fileHash);
+            if (download == null || !download.paused) {
+                return;
+            }
+            download.paused = false;
+            save(download);
+            schedule();
+        }
+        startPending();
+    }
+
+    public void pauseAll() {
+        for (String fileHash : getQueuedFileHashes()) {
+            pause(fileHash);
+        }
+    }
+
+    public void resumeAll() {
+        for (String fileHash : getQueuedFileHashes()) {
+            resume(fileHash);
+        }
+    }
+
+    /**
+     * Removes the file from the queue, aborting its download if running.
+     */
+    public void cancel(String fileHash) {
+        final Download download;
+        final FilesEndpoint.GetFileBinaryRequest request;
+        synchronized (this) {
+            download = downloads.remove(fileHash);
+            if (download == null) {
+                return;
+            }
+            lanes.get(download.priority).remove(download);
+            preferences.edit().remove(fileHash).apply();
+            request = download.request;
+        }
+        if (request != null) {
+            request.cancel();
+        }
+        download.future.cancel(false);
+        notifyProgress();
+    }
+
+    /**
+     * @return number of files queued or being downloaded
+     */
+    public synchronized int getPendingCount() {
+        return downloads.size();
+    }
+
+    private synchronized List<String> getQueuedFileHashes() {
+        return new ArrayList<String>(downloads.keySet());
+    }
+
+    /**
+     * Takes the next downloads from the lanes while there are free slots, creating their requests
+     * so that they can be cancelled straight away. The requests are run by {@link #startPending()}
+     * once the lock is released.
+     */
+    private void schedule() {
+        while (runningCount < maxConcurrentDownloads) {
+            final Download next = pollNext(runningCount < maxConcurrentDownloads - 1);
+            if (next == null) {
+                return;
+            }
+            prepare(next);
+            runningCount++;
+            toStart.add(next);
+        }
+    }
+
+    /**
+     * Runs the requests of the scheduled downloads. It must be called without holding the lock.
+     * <p/>
+     * Requests failing straight away finish in this same thread, scheduling the next downloads,
+     * so only the outermost call runs them, in a loop, rather than nesting one call per download.
+     */
+    private void startPending() {
+        synchronized (this) {
+            if (starting) {
+                return;
+            }
+            starting = true;
+        }
+        try {
+            while (true) {
+                final Download download;
+                synchronized (this) {
+                    download = toStart.poll();
+                    if (download == null) {
+                        return;
+                    }
+                }
+                start(download);
+            }
+        } finally {
+            synchronized (this) {
+                starting = false;
+            }
+        }
+    }
+
+    /**
+     * @param anyPriority false to take only interactive downloads, which have a reserved slot
+     */
+    private Download pollNext(boolean anyPriority) {
+        for (Priority priority : Priority.values()) {
+            if (priority != Priority.INTERACTIVE && !anyPriority) {
+                return null;
+            }
+            final Iterator<Download> iterator = lanes.get(priority).iterator();
+            while (iterator.hasNext()) {
+                final Download download = iterator.next();
+                if (!download.paused) {
+                    iterator.remove();
+                    return download;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void prepare(final Download download) {
+        download.tempFile = fileCache.newTempFile(download.file.fileHash);
+        final FilesEndpoint.GetFileBinaryRequest request = requestsFactory.newGetFileBinaryRequest(download.file.id, download.tempFile);
+        request.setExpectedFileHash(download.file.fileHash);
+        request.setBackground(download.priority != Priority.INTERACTIVE);
+        request.setProgressListener(new OkHttpAuthorizedRequest.RequestProgressListener() {
+            @Override
+            public void onProgress(long progress) {
+                synchronized (DownloadManager.this) {
+                    download.downloadedBytes = download.file.fileSize * progress / 100;
+                }
+                notifyProgress();
+            }
+        });
+        download.request = request;
+    }
+
+    private void start(final Download download) {
+        final FilesEndpoint.GetFileBinaryRequest request;
+        final java.io.File tempFile;
+        synchronized (this) {
+            request = download.request;
+            tempFile = download.tempFile;
+        }
+
+        request.runFuture().addCallback(new RequestFuture.Callback<Request<Long>.Response>() {
+            @Override
+            public void onSuccess(Request<Long>.Response response) {
+                try {
+                    final java.io.File file = fileCache.publish(download.file.fileHash, tempFile);
+                    finish(download);
+                    download.future.complete(file);
+                } catch (IOException e) {
+                    finish(download);
+                    download.future.fail(new FileDownloadException("Cannot store the downloaded file in the cache", e, download.file.id));
+                } catch (RuntimeException e) {
+                    // otherwise the slot of the download would never be freed
+                    tempFile.delete();
+                    finish(download);
+                    download.future.fail(new FileDownloadException("Cannot store the downloaded file in the cache", e, download.file.id));
+                }
+                notifyProgress();
+                startPending();
+            }
+
+            @Override
+            public void onFailure(MendeleyException mendeleyException) {
+                tempFile.delete();
+                finish(download);
+                download.future.fail(mendeleyException);
+                notifyProgress();
+                startPending();
+            }
+
+            @Override
+            public void onCancelled() {
+                tempFile.delete();
+                requeueIfPaused(download);
+                notifyProgress();
+                startPending();
+            }
+        }, DIRECT_EXECUTOR);
+    }
+
+    private synchronized void finish(Download download) {
+        runningCount--;
+        download.request = null;
+        if (downloads.get(download.file.fileHash) == download) {
+            downloads.remove(download.file.fileHash);
+            preferences.edit().remove(download.file.fileHash).apply();
+        }
+        schedule();
+    }
+
+    private synchronized void requeueIfPaused(Download download) {
+        runningCount--;
+        download.request = null;
+        download.downloadedBytes = 0;
+        if (download.paused && downloads.get(download.file.fileHash) == download) {
+            lanes.get(download.priority).addFirst(download);
+        }
+        schedule();
+    }
+
+    /**
+     * Calls the listener with the progress of the pending downloads. It must be called without
+     * holding the lock.
+     */
+    private void notifyProgress() {
+        final ProgressListener listener;
+        long downloadedBytes = 0;
+        long totalBytes = 0;
+        synchronized (this) {
+            listener = progressListener;
+            if (listener == null) {
+                return;
+            }
+            for (Download download : downloads.values()) {
+                downloadedBytes += download.downloadedBytes;
+                totalBytes += download.file.fileSize;
+            }
+        }
+        listener.onProgress(downloadedBytes, totalBytes);
+    }
+
+    private void save(Download download) {
+        try {
+            final JSONObject json = JsonParser.fileToJson(download.file);
+            json.put(KEY_PRIORITY, download.priority.name());
+            json.put(KEY_PAUSED, download.paused);
+            preferences.edit().putString(download.file.fileHash, json.toString()).apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Could not save download of file " + download.file.id, e);
+        }
+    }
+
+    private void restoreQueue() {
+        synchronized (this) {
+            restoreDownloads();
+            schedule();
+        }
+        startPending();
+    }
+
+    private void restoreDownloads() {
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            try {
+                final String value = (String) entry.getValue();
+                final JSONObject json = new JSONObject(value);
+                final File file = JsonParser.fileFromJson(new JsonReader(new StringReader(value)));
+                final Download download = new Download(file, Priority.valueOf(json.optString(KEY_PRIORITY)));
+                download.paused = json.optBoolean(KEY_PAUSED);
+                downloads.put(file.fileHash, download);
+                lanes.get(download.priority).add(download);
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable download " + entry.getKey(), e);
+                preferences.edit().remove(entry.getKey()).apply();
+            }
+        }
+    }
+
+    private static final class Download {
+        final File file;
+        final RequestFuture<java.io.File> future = new RequestFuture<java.io.File>();
+        Priority priority;
+        boolean paused;
+        long downloadedBytes;
+        java.io.File tempFile;
+        FilesEndpoint.GetFileBinaryRequest request;
+
+        Download(File file, Priority priority) {
+            this.file = file;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.mendeley.sdk.sync;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.cache.FileCache;
+import com.mendeley.sdk.exceptions.FileDownloadException;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.index.FolderMembershipIndex;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.model.ReadPosition;
+import com.mendeley.sdk.request.endpoint.FilesEndpoint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads in the background the files the user is likely to open next, so that opening them
+ * doesn't wait for the network.
+ * <p/>
+ * Files are ranked by the recently read history of the user: the most recently read ones first,
+ * and then the ones of the documents sharing folders with them, if a
+ * {@link FolderMembershipIndex} is given. The best ranked ones are downloaded into the
+ * {@link FileCache} one at a time, within a budget of files and bytes per run and the free space
+ * of the cache.
+ * <p/>
+ * Downloads are {@link Request#setBackground(boolean) background} requests, and each one waits
+ * until no interactive request is running, so prefetching gives way to what the user is doing.
+ */
+public class FilePrefetcher {
+
+    // number of recently read positions considered
+    private static final int RECENTLY_READ_LIMIT = 20;
+
+    // weight of sharing a folder with a recently read document, relative to having been read
+    private static final double FOLDER_WEIGHT = 0.25;
+
+    private static final long IDLE_POLL_INTERVAL_MS = 500;
+
+    // shared by all the prefetchers, so that creating many of them doesn't leak threads
+    private static final ScheduledExecutorService sIdleScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkPrefetcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final RequestsFactory requestsFactory;
+    private final FileCache fileCache;
+    private final FolderMembershipIndex membershipIndex;
+
+    private volatile boolean paused;
+
+    /**
+     * @param membershipIndex used to rank the files of documents in the same folders as the
+     *                        recently read ones. May be null.
+     */
+    public FilePrefetcher(RequestsFactory requestsFactory, FileCache fileCache, FolderMembershipIndex membershipIndex) {
+        this.requestsFactory = requestsFactory;
+        this.fileCache = fileCache;
+        this.membershipIndex = membershipIndex;
+    }
+
+    /**
+     * Stops starting new downloads until {@link #resume()} is called.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Ranks the files and downloads the best ranked ones that are not in the cache yet.
+     *
+     * @param files the files of the library that can be prefetched
+     * @param maxFiles maximum number of files to download
+     * @param maxBytes maximum number of bytes to download
+     * @return future that will complete with the downloaded files, and the ones that failed
+     */
+    public RequestFuture<Result> prefetch(final List<File> files, final int maxFiles, final long maxBytes) {
+        final Request<List<ReadPosition>> recentlyReadRequest = requestsFactory.newGetRecentlyReadRequest(null, null, RECENTLY_READ_LIMIT);
+        recentlyReadRequest.setBackground(true);
+
+        return recentlyReadRequest.runFuture().then(new RequestFuture.AsyncFunction<Request<List<ReadPosition>>.Response, Result>() {
+            @Override
+            public RequestFuture<Result> apply(Request<List<ReadPosition>>.Response response) {
+                final long freeSpace = fileCache.getMaxSize() - fileCache.getSize();
+                final List<File> selected = select(rank(response.resource, files, membershipIndex), maxFiles, Math.min(maxBytes, freeSpace));
+                return new Run(selected).start();
+            }
+        });
+    }
+
+    /**
+     * @return the files, best ranked first, leaving out the ones with no relation to the
+     *         recently read ones
+     */
+    static List<File> rank(List<ReadPosition> recentlyRead, List<File> files, FolderMembershipIndex membershipIndex) {
+        final Map<String, File> filesById = new HashMap<String, File>();
+        final Map<String, List<File>> filesByDocument = new HashMap<String, List<File>>();
+        for (File file : files) {
+            filesById.put(file.id, file);
+            List<File> filesOfDocument = filesByDocument.get(file.documentId);
+            if (filesOfDocument == null) {
+                filesOfDocument = new ArrayList<File>(1);
+                filesByDocument.put(file.documentId, filesOfDocument);
+            }
+            filesOfDocument.add(file);
+        }
+
+        final List<ReadPosition> byRecency = new ArrayList<ReadPosition>(recentlyRead);
+        Collections.sort(byRecency, new Comparator<ReadPosition>() {
+            @Override
+            public int compare(ReadPosition lhs, ReadPosition rhs) {
+                if (lhs.date == null || rhs.date == null) {
+                    return lhs.date == null ? (rhs.date == null ? 0 : 1) : -1;
+                }
+                return rhs.date.compareTo(lhs.date);
+            }
+        });
+
+        // file id -> score
+        final Map<String, Double> scores = new HashMap<String, Double>();
+        for (int rank = 0; rank < byRecency.size(); rank++) {
+            final File readFile = filesById.get(byRecency.get(rank).fileId);
+            if (readFile == null) {
+                continue;
+            }
+            final double recency = 1.0 / (rank + 1);
+            addScore(scores, readFile, recency);
+
+            if (membershipIndex == null) {
+                continue;
+            }
+            for (String folderId : membershipIndex.getFolderIds(readFile.documentId)) {
+                final List<String> documentIds = membershipIndex.getDocumentIds(folderId);
+                // documents of big folders are less related to each other
+                final double folderScore = recency * FOLDER_WEIGHT / documentIds.size();
+                for (String documentId : documentIds) {
+                    final List<File> filesOfDocument = filesByDocument.get(documentId);
+                    if (filesOfDocument != null) {
+                        for (File file : filesOfDocument) {
+                            addScore(scores, file, folderScore);
+                        }
+                    }
+                }
+            }
+        }
+
+        final List<File> ranked = new ArrayList<File>(scores.size());
+        for (String fileId : scores.keySet()) {
+            ranked.add(filesById.get(fileId));
+        }
+        Collections.sort(ranked, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Double.compare(scores.get(rhs.id), scores.get(lhs.id));
+            }
+        });
+        return ranked;
+    }
+
+    private List<File> select(List<File> ranked, int maxFiles, long maxBytes) {
+        final List<File> selected = new ArrayList<File>();
+        // the same binary may be attached to several documents
+        final Set<String> selectedHashes = new HashSet<String>();
+        long bytes = 0;
+        for (File file : ranked) {
+            if (selected.size() >= maxFiles) {
+                break;
+            }
+            if (file.fileHash == null || selectedHashes.contains(file.fileHash) || fileCache.contains(file.fileHash)
+                    || bytes + file.fileSize > maxBytes) {
+                continue;
+            }
+            selected.add(file);
+            selectedHashes.add(file.fileHash);
+            bytes += file.fileSize;
+        }
+        return selected;
+    }
+
+    /**
+     * @return future completing once the file is downloaded into the temp file and published
+     *         in the cache
+     */
+    private RequestFuture<Void> download(final File file, final java.io.File tempFile) {
+        return whenIdle().then(new RequestFuture.AsyncFunction<Void, Request<Long>.Response>() {
+            @Override
+            public RequestFuture<Request<Long>.Response> apply(Void input) {
+                final FilesEndpoint.GetFileBinaryRequest request = requestsFactory.newGetFileBinaryRequest(file.id, tempFile);
+                request.setExpectedFileHash(file.fileHash);
+                request.setBackground(true);
+                return request.runFuture();
+            }
+        }).map(new RequestFuture.Function<Request<Long>.Response, Void>() {
+            @Override
+            public Void apply(Request<Long>.Response response) throws MendeleyException {
+                try {
+                    fileCache.publish(file.fileHash, tempFile);
+                } catch (IOException e) {
+                    throw new FileDownloadException("Cannot store the downloaded file in the cache", e, file.id);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return future completing once the prefetcher is not paused and no interactive request
+     *         is running
+     */
+    private RequestFuture<Void> whenIdle() {
+        final RequestFuture<Void> idle = new RequestFuture<Void>();
+        checkIdle(idle);
+        return idle;
+    }
+
+    private void checkIdle(final RequestFuture<Void> idle) {
+        if (idle.isDone()) {
+            return;
+        }
+        if (!paused && Request.getRunningInteractiveRequestCount() == 0) {
+            idle.complete(null);
+            return;
+        }
+        sIdleScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                checkIdle(idle);
+            }
+        }, IDLE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void addScore(Map<String, Double> scores, File file, double score) {
+        final Double previous = scores.get(file.id);
+        scores.put(file.id, previous != null ? previous + score : score);
+    }
+
+    /**
+     * Downloads the selected files one after the other. A file failing doesn't stop the others,
+     * it is recorded in the result.
+     * <p/>
+     * Downloads completing straight away are processed in a loop rather than by recursion, and
+     * the ones completing later resume the loop from their listener.
+     */
+    private class Run {
+        private final RequestFuture<Result> result = new RequestFuture<Result>();
+
+        private final List<File> selected;
+        private final List<File> downloaded = new ArrayList<File>();
+        private final Map<String, MendeleyException> failures = new LinkedHashMap<String, MendeleyException>();
+        private volatile RequestFuture<Void> currentDownload;
+
+        Run(List<File> selected) {
+            this.selected = selected;
+            result.addCancellationListener(new Runnable() {
+                @Override
+                public void run() {
+                    final RequestFuture<?> download = currentDownload;
+                    if (download != null) {
+                        download.cancel(false);
+                    }
+                }
+            });
+        }
+
+        RequestFuture<Result> start() {
+            downloadFrom(0);
+            return result;
+        }
+
+        private void downloadFrom(int position) {
+            for (; position < selected.size(); position++) {
+                final File file = selected.get(position);
+                final java.io.File tempFile = fileCache.newTempFile(file.fileHash);
+                final RequestFuture<Void> future = download(file, tempFile);
+                currentDownload = future;
+                if (result.isCancelled()) {
+                    future.cancel(false);
+                    tempFile.delete();
+                    return;
+                }
+                if (!future.isDone()) {
+                    final int next = position + 1;
+                    future.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (onDownloaded(file, tempFile, future)) {
+                                downloadFrom(next);
+                            }
+                        }
+                    });
+                    return;
+                }
+                if (!onDownloaded(file, tempFile, future)) {
+                    return;
+                }
+            }
+            result.complete(new Result(downloaded, failures));
+        }
+
+        /**
+         * @return false if the run has been cancelled, true to go on with the next file
+         */
+        private boolean onDownloaded(File file, java.io.File tempFile, RequestFuture<Void> future) {
+            if (result.isDone()) {
+                tempFile.delete();
+                return false;
+            }
+            try {
+                future.getResult();
+                downloaded.add(file);
+            } catch (MendeleyException e) {
+                // a partly written temp file would never be published nor cleaned up
+                tempFile.delete();
+                failures.put(file.id, e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Outcome of one prefetch.
+     */
+    public static class Result {
+        /**
+         * Files downloaded into the cache
+         */
+        public final List<File> downloaded;
+
+        /**
+         * Ids of the files that failed to download -> error
+         */
+        public final Map<String, MendeleyException> failures;
+
+        public Result(List<File> downloaded, Map<String, MendeleyException> failures) {
+            this.downloaded = Collections.unmodifiableList(new ArrayList<File>(downloaded));
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<String, MendeleyException>(failures));
+        }
+    }
+}
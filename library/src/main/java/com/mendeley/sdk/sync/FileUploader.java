@@ -0,0 +1,275 @@
+package com.mendeley.sdk.sync;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.File;
+import com.mendeley.sdk.request.endpoint.FilesEndpoint;
+import com.mendeley.sdk.util.HashUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Uploads local files as the {@link File}s of documents, skipping the ones whose content is
+ * already attached to the document.
+ * <p/>
+ * The SHA-1 of the local file is computed first, streaming it in a background thread, and
+ * compared with the {@link File#fileHash} of the files of the document, which are looked up in
+ * the files known by the uploader and, if not found there, queried to the server. Only if none
+ * of them matches the binary is posted. Uploads of the same content to the same document made
+ * while one is in progress share it.
+ */
+public class FileUploader {
+
+    private final RequestsFactory requestsFactory;
+
+    private final ExecutorService hashingExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkFileHasher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // file hash -> files of the library with that content
+    private final Map<String, List<File>> knownFiles = new HashMap<String, List<File>>();
+
+    // document id and file hash -> upload in progress
+    private final Map<String, RequestFuture<Result>> uploads = new HashMap<String, RequestFuture<Result>>();
+
+    public FileUploader(RequestsFactory requestsFactory) {
+        this.requestsFactory = requestsFactory;
+    }
+
+    /**
+     * Adds files of the library, typically all the ones obtained in a sync, so that uploading
+     * the same content to their documents doesn't need to query the server.
+     */
+    public synchronized void addKnownFiles(List<File> files) {
+        for (File file : files) {
+            addKnownFile(file);
+        }
+    }
+
+    /**
+     * Forgets a file, typically because it has been deleted.
+     */
+    public synchronized void removeKnownFile(File file) {
+        final List<File> files = knownFiles.get(file.fileHash);
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (files.get(i).id.equals(file.id)) {
+                files.remove(i);
+                break;
+            }
+        }
+        if (files.isEmpty()) {
+            knownFiles.remove(file.fileHash);
+        }
+    }
+
+    /**
+     * @return the known files of the library with the content of the hash, attached to any
+     *         document
+     */
+    public synchronized List<File> getKnownFiles(String fileHash) {
+        final List<File> files = knownFiles.get(fileHash);
+        return files != null ? new ArrayList<File>(files) : Collections.<File>emptyList();
+    }
+
+    /**
+     * Uploads the local file as a file of the document, unless the document already has a file
+     * with the same content.
+     *
+     * @param localFile the file in the file system to upload
+     * @param contentType the content type of the file
+     * @param documentId the id of the document the file will belong to
+     * @param fileName the name of the file
+     * @return future that will complete with the file of the document with the content
+     */
+    public RequestFuture<Result> upload(final java.io.File localFile, final String contentType, final String documentId, final String fileName) {
+        return hash(localFile).then(new RequestFuture.AsyncFunction<String, Result>() {
+            @Override
+            public RequestFuture<Result> apply(String fileHash) {
+                return upload(localFile, fileHash, contentType, documentId, fileName);
+            }
+        });
+    }
+
+    /**
+     * Uploads the local file whose hash is already known, sharing the upload in progress of the
+     * same content to the same document if any.
+     */
+    synchronized RequestFuture<Result> upload(final java.io.File localFile, final String fileHash, final String contentType, final String documentId, final String fileName) {
+        final File attached = findKnownFile(documentId, fileHash);
+        if (attached != null) {
+            return RequestFuture.succeeded(new Result(attached, false));
+        }
+
+        final String key = documentId + "/" + fileHash;
+        final RequestFuture<Result> inProgress = uploads.get(key);
+        if (inProgress != null) {
+            return inProgress;
+        }
+
+        final FilesEndpoint.FileRequestParameters parameters = new FilesEndpoint.FileRequestParameters();
+        parameters.documentId = documentId;
+        parameters.limit = PageLoader.MAX_PAGE_SIZE;
+
+        final RequestFuture<Result> upload = loadPages(requestsFactory.newGetFilesRequest(parameters)).then(new RequestFuture.AsyncFunction<List<File>, Result>() {
+            @Override
+            public RequestFuture<Result> apply(List<File> filesOfDocument) {
+                synchronized (FileUploader.this) {
+                    addKnownFiles(filesOfDocument);
+                    final File attached = findKnownFile(documentId, fileHash);
+                    if (attached != null) {
+                        return RequestFuture.succeeded(new Result(attached, false));
+                    }
+                }
+                return post(localFile, contentType, documentId, fileName);
+            }
+        });
+        uploads.put(key, upload);
+        upload.addListener(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (FileUploader.this) {
+                    uploads.remove(key);
+                }
+            }
+        });
+        return upload;
+    }
+
+    /**
+     * Posts the local file without looking for the same content, for documents known to have no
+     * files, like the ones just created.
+     */
+    RequestFuture<Result> post(java.io.File localFile, String contentType, String documentId, String fileName) {
+        final InputStream inputStream;
+        try {
+            inputStream = new FileInputStream(localFile);
+        } catch (IOException e) {
+            return RequestFuture.failed(new MendeleyException("Cannot read the file to upload " + localFile, e));
+        }
+
+        final RequestFuture<Result> posted = requestsFactory.newPostFileWithBinaryRequest(contentType, documentId, inputStream, fileName).runFuture().map(new RequestFuture.Function<Request<File>.Response, Result>() {
+            @Override
+            public Result apply(Request<File>.Response response) {
+                synchronized (FileUploader.this) {
+                    addKnownFile(response.resource);
+                }
+                return new Result(response.resource, true);
+            }
+        });
+        posted.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    inputStream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        return posted;
+    }
+
+    private RequestFuture<String> hash(final java.io.File localFile) {
+        final RequestFuture<String> future = new RequestFuture<String>();
+        hashingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                InputStream inputStream = null;
+                try {
+                    inputStream = new FileInputStream(localFile);
+                    future.complete(HashUtils.sha1(inputStream));
+                } catch (IOException e) {
+                    future.fail(new MendeleyException("Cannot read the file to upload " + localFile, e));
+                } finally {
+                    if (inputStream != null) {
+                        try {
+                            inputStream.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    private RequestFuture<List<File>> loadPages(Request<List<File>> firstPage) {
+        return PageLoader.loadAll(firstPage, new PageLoader.NextPageFactory<File>() {
+            @Override
+            public Request<List<File>> newNextPageRequest(Uri next) {
+                return requestsFactory.newGetFilesRequest(next);
+            }
+        });
+    }
+
+    private File findKnownFile(String documentId, String fileHash) {
+        final List<File> files = knownFiles.get(fileHash);
+        if (files != null) {
+            for (File file : files) {
+                if (documentId.equals(file.documentId)) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addKnownFile(File file) {
+        if (file.fileHash == null) {
+            return;
+        }
+        List<File> files = knownFiles.get(file.fileHash);
+        if (files == null) {
+            files = new ArrayList<File>(1);
+            knownFiles.put(file.fileHash, files);
+        }
+        for (File known : files) {
+            if (known.id.equals(file.id)) {
+                return;
+            }
+        }
+        files.add(file);
+    }
+
+    /**
+     * File of the document with the content of an uploaded local file.
+     */
+    public static class Result {
+        public final File file;
+
+        /**
+         * False if the document already had a file with the same content, and nothing was posted
+         */
+        public final boolean uploaded;
+
+        public Result(File file, boolean uploaded) {
+            this.file = file;
+            this.uploaded = uploaded;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mendeley.sdk.sync;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.index.FolderMembershipIndex;
+import com.mendeley.sdk.request.endpoint.FoldersEndpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the {@link FolderMembershipIndex} of a set of folders, and keeps it up to date with the
+ * documents added to or removed from folders through this class.
+ * <p/>
+ * The documents of several folders are fetched in parallel, but never more folders at a time
+ * than the configured limit, so that loading many folders doesn't flood the connection.
+ */
+public class FolderMembershipSync {
+
+    public static final int DEFAULT_MAX_PARALLEL_FOLDERS = 4;
+
+    private final RequestsFactory requestsFactory;
+    private final int maxParallelFolders;
+    private final FolderMembershipIndex index = new FolderMembershipIndex();
+
+    public FolderMembershipSync(RequestsFactory requestsFactory) {
+        this(requestsFactory, DEFAULT_MAX_PARALLEL_FOLDERS);
+    }
+
+    /**
+     * @param maxParallelFolders maximum number of folders whose documents are fetched at a time
+     */
+    public FolderMembershipSync(RequestsFactory requestsFactory, int maxParallelFolders) {
+        if (maxParallelFolders < 1) {
+            throw new IllegalArgumentException("maxParallelFolders must be positive");
+        }
+        this.requestsFactory = requestsFactory;
+        this.maxParallelFolders = maxParallelFolders;
+    }
+
+    /**
+     * @return the index, empty until {@link #load(List)} completes
+     */
+    public FolderMembershipIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Fetches the documents of the folders and puts them in the index.
+     *
+     * @param folderIds ids of the folders to load
+     * @return future that will complete with the index once all the folders are loaded
+     */
+    public RequestFuture<FolderMembershipIndex> load(List<String> folderIds) {
+        // each worker loads one folder after the other, taking the next one still pending
+        final AtomicInteger nextFolder = new AtomicInteger();
+        final int workerCount = Math.min(maxParallelFolders, folderIds.size());
+        final List<RequestFuture<Void>> workers = new ArrayList<RequestFuture<Void>>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            final Worker worker = new Worker(folderIds, nextFolder);
+            workers.add(worker.done);
+            worker.loadFolders();
+        }
+
+        return RequestFuture.allOf(workers).map(new RequestFuture.Function<List<Void>, FolderMembershipIndex>() {
+            @Override
+            public FolderMembershipIndex apply(List<Void> input) {
+                return index;
+            }
+        });
+    }
+
+    /**
+     * Adds the document to the folder, updating the index once the server confirms it.
+     */
+    public RequestFuture<Void> addDocumentToFolder(final String folderId, final String documentId) {
+        return requestsFactory.newPostDocumentToFolderRequest(folderId, documentId).runFuture().map(new RequestFuture.Function<Request<Void>.Response, Void>() {
+            @Override
+            public Void apply(Request<Void>.Response response) {
+                index.add(folderId, documentId);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Removes the document from the folder, updating the index once the server confirms it.
+     */
+    public RequestFuture<Void> removeDocumentFromFolder(final String folderId, final String documentId) {
+        return requestsFactory.newDeleteDocumentFromFolderRequest(folderId, documentId).runFuture().map(new RequestFuture.Function<Request<Void>.Response, Void>() {
+            @Override
+            public Void apply(Request<Void>.Response response) {
+                index.remove(folderId, documentId);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Loads one folder after the other, until there are no more folders pending.
+     */
+    private class Worker {
+        final RequestFuture<Void> done = new RequestFuture<Void>();
+
+        private final List<String> folderIds;
+        private final AtomicInteger nextFolder;
+
+        private volatile RequestFuture<List<String>> currentFolder;
+
+        Worker(List<String> folderIds, AtomicInteger nextFolder) {
+            this.folderIds = folderIds;
+            this.nextFolder = nextFolder;
+            done.addCancellationListener(new Runnable() {
+                @Override
+                public void run() {
+                    final RequestFuture<?> folder = currentFolder;
+                    if (folder != null) {
+                        folder.cancel(false);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Loads the next folders, in a loop while they complete straight away, and resuming it
+         * from the listener of the ones completing later.
+         */
+        void loadFolders() {
+            while (!done.isDone()) {
+                final int position = nextFolder.getAndIncrement();
+                if (position >= folderIds.size()) {
+                    done.complete(null);
+                    return;
+                }
+                final String folderId = folderIds.get(position);
+                final RequestFuture<List<String>> future = loadFolder(folderId);
+                currentFolder = future;
+                if (done.isCancelled()) {
+                    future.cancel(false);
+                    return;
+                }
+                if (!future.isDone()) {
+                    future.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (onFolderLoaded(folderId, future)) {
+                                loadFolders();
+                            }
+                        }
+                    });
+                    return;
+                }
+                if (!onFolderLoaded(folderId, future)) {
+                    return;
+                }
+            }
+        }
+
+        private RequestFuture<List<String>> loadFolder(String folderId) {
+            final FoldersEndpoint.FolderRequestParameters parameters = new FoldersEndpoint.FolderRequestParameters();
+            parameters.limit = PageLoader.MAX_PAGE_SIZE;
+            return PageLoader.loadAll(requestsFactory.newGetFolderDocumentsRequest(parameters, folderId), new PageLoader.NextPageFactory<String>() {
+                @Override
+                public Request<List<String>> newNextPageRequest(Uri next) {
+                    return requestsFactory.newGetFolderDocumentsRequest(next);
+                }
+            });
+        }
+
+        /**
+         * @return true if the folder was loaded and put in the index, false if the worker has
+         *         failed or been cancelled
+         */
+        private boolean onFolderLoaded(String folderId, RequestFuture<List<String>> future) {
+            if (done.isDone()) {
+                return false;
+            }
+            try {
+                index.setDocuments(folderId, future.getResult());
+                return true;
+            } catch (MendeleyException e) {
+                done.fail(e);
+                return false;
+            }
+        }
+    }
+}
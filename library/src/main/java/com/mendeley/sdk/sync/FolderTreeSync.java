@@ -0,0 +1,116 @@
+package com.mendeley.sdk.sync;
+
+import android.net.Uri;
+
+import com.mendeley.sdk.PageLoader;
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.index.FolderTree;
+import com.mendeley.sdk.model.Folder;
+import com.mendeley.sdk.request.endpoint.FoldersEndpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the {@link FolderTree} of the user's library and groups, and keeps it up to date with
+ * the changes made through this class.
+ * <p/>
+ * The folders of each group are fetched in parallel with the ones of the other groups, using
+ * pages as big as the API allows. The pages of one group are fetched one after the other, as each
+ * one holds the link to the next.
+ */
+public class FolderTreeSync {
+
+    private final RequestsFactory requestsFactory;
+    private final FolderTree tree = new FolderTree();
+
+    public FolderTreeSync(RequestsFactory requestsFactory) {
+        this.requestsFactory = requestsFactory;
+    }
+
+    /**
+     * @return the tree, empty until {@link #load(List)} completes
+     */
+    public FolderTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Fetches all the folders of the groups and puts them in the tree.
+     *
+     * @param groupIds ids of the groups to load. Include null for the user's library.
+     * @return future that will complete with the tree once all the folders are loaded
+     */
+    public RequestFuture<FolderTree> load(List<String> groupIds) {
+        final List<RequestFuture<List<Folder>>> futures = new ArrayList<RequestFuture<List<Folder>>>(groupIds.size());
+        for (String groupId : groupIds) {
+            final FoldersEndpoint.FolderRequestParameters parameters = new FoldersEndpoint.FolderRequestParameters();
+            parameters.groupId = groupId;
+            parameters.limit = PageLoader.MAX_PAGE_SIZE;
+            futures.add(PageLoader.loadAll(requestsFactory.newGetFoldersRequest(parameters), new PageLoader.NextPageFactory<Folder>() {
+                @Override
+                public Request<List<Folder>> newNextPageRequest(Uri next) {
+                    return requestsFactory.newGetFoldersRequest(next);
+                }
+            }));
+        }
+
+        return RequestFuture.allOf(futures).map(new RequestFuture.Function<List<List<Folder>>, FolderTree>() {
+            @Override
+            public FolderTree apply(List<List<Folder>> foldersOfGroups) {
+                for (List<Folder> folders : foldersOfGroups) {
+                    tree.putAll(folders);
+                }
+                return tree;
+            }
+        });
+    }
+
+    /**
+     * Creates the folder, adding it to the tree once the server confirms it.
+     *
+     * @return future that will complete with the created folder
+     */
+    public RequestFuture<Folder> createFolder(Folder folder) {
+        return requestsFactory.newPostFolderRequest(folder).runFuture().map(new RequestFuture.Function<Request<Folder>.Response, Folder>() {
+            @Override
+            public Folder apply(Request<Folder>.Response response) {
+                tree.put(response.resource);
+                return response.resource;
+            }
+        });
+    }
+
+    /**
+     * Updates the folder, changing it in the tree once the server confirms it.
+     *
+     * @param folderId the id of the folder to be updated
+     * @param folder a folder object containing the fields to be updated
+     * @return future that will complete with the updated folder
+     */
+    public RequestFuture<Folder> updateFolder(String folderId, Folder folder) {
+        return requestsFactory.newPatchFolderRequest(folderId, folder).runFuture().map(new RequestFuture.Function<Request<Folder>.Response, Folder>() {
+            @Override
+            public Folder apply(Request<Folder>.Response response) {
+                tree.put(response.resource);
+                return response.resource;
+            }
+        });
+    }
+
+    /**
+     * Deletes the folder, removing it and its subfolders from the tree once the server confirms it.
+     *
+     * @return future that will complete with the ids of the removed folders
+     */
+    public RequestFuture<List<String>> deleteFolder(final String folderId) {
+        return requestsFactory.newDeleteFolderRequest(folderId).runFuture().map(new RequestFuture.Function<Request<Void>.Response, List<String>>() {
+            @Override
+            public List<String> apply(Request<Void>.Response response) {
+                return tree.remove(folderId);
+            }
+        });
+    }
+}
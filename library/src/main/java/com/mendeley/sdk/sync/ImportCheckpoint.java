@@ -0,0 +1,189 @@
+package com.mendeley.sdk.sync;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Progress of a {@link DocumentImporter}, saved in a file so that an import interrupted by a
+ * crash or a lost connection can be resumed without creating the same documents twice.
+ * <p/>
+ * A step is saved only once the server has confirmed it, so a document whose creation succeeded
+ * on the server but whose process died before {@link #setDocumentCreated(String, String)} is
+ * created again by the next run, as the API has no way to tell it was already created.
+ * <p/>
+ * Each step completed for an item, identified by the key the app gives it, is appended as one
+ * line to the file, so saving the progress of a big import costs one short write per step.
+ * The file is read back when the checkpoint is created.
+ */
+public class ImportCheckpoint {
+
+    private static final String TAG = ImportCheckpoint.class.getSimpleName();
+
+    private static final String SEPARATOR = "\t";
+    private static final String STEP_CREATED = "created";
+    private static final String STEP_FILE = "file";
+    private static final String STEP_FOLDER = "folder";
+    // ends every line, so that a line cut by the death of the process is ignored
+    private static final String END = ".";
+
+    private final File file;
+
+    // item key -> id of its created document
+    private final Map<String, String> documentIds = new HashMap<String, String>();
+    private final Set<String> uploadedFiles = new HashSet<String>();
+    // item key -> ids of the folders it has been added to
+    private final Map<String, Set<String>> linkedFolders = new HashMap<String, Set<String>>();
+
+    private Writer writer;
+
+    /**
+     * @param file where the progress is saved. The progress already saved there is loaded.
+     */
+    public ImportCheckpoint(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * @return the id of the document created for the item, or null if not created yet
+     */
+    public synchronized String getDocumentId(String key) {
+        return documentIds.get(key);
+    }
+
+    public synchronized boolean isFileUploaded(String key) {
+        return uploadedFiles.contains(key);
+    }
+
+    public synchronized boolean isLinked(String key, String folderId) {
+        final Set<String> folderIds = linkedFolders.get(key);
+        return folderIds != null && folderIds.contains(folderId);
+    }
+
+    /**
+     * @return number of items whose document has been created
+     */
+    public synchronized int getCreatedCount() {
+        return documentIds.size();
+    }
+
+    public synchronized void setDocumentCreated(String key, String documentId) {
+        documentIds.put(key, documentId);
+        append(key, STEP_CREATED, documentId);
+    }
+
+    public synchronized void setFileUploaded(String key) {
+        uploadedFiles.add(key);
+        append(key, STEP_FILE, "");
+    }
+
+    public synchronized void setLinked(String key, String folderId) {
+        Set<String> folderIds = linkedFolders.get(key);
+        if (folderIds == null) {
+            folderIds = new HashSet<String>();
+            linkedFolders.put(key, folderIds);
+        }
+        folderIds.add(folderId);
+        append(key, STEP_FOLDER, folderId);
+    }
+
+    /**
+     * Forgets all the progress and deletes the file, typically once the import has completed.
+     */
+    public synchronized void clear() {
+        close();
+        documentIds.clear();
+        uploadedFiles.clear();
+        linkedFolders.clear();
+        file.delete();
+    }
+
+    /**
+     * Releases the file. The checkpoint can still be used, and will open it again if needed.
+     */
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not close import checkpoint " + file, e);
+        }
+        writer = null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key can't be saved in one line of the file
+     */
+    static void checkKey(String key) {
+        if (key == null || key.contains(SEPARATOR) || key.contains("\n") || key.contains("\r")) {
+            throw new IllegalArgumentException("Invalid import key: " + key);
+        }
+    }
+
+    private void append(String key, String step, String value) {
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+            }
+            writer.write(key + SEPARATOR + step + SEPARATOR + value + SEPARATOR + END + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            // the import goes on, it would only repeat this step if resumed
+            Log.w(TAG, "Could not save import checkpoint " + file, e);
+        }
+    }
+
+    private void load() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR, -1);
+                if (fields.length != 4 || !END.equals(fields[3])) {
+                    continue;
+                }
+                final String key = fields[0];
+                if (STEP_CREATED.equals(fields[1])) {
+                    documentIds.put(key, fields[2]);
+                } else if (STEP_FILE.equals(fields[1])) {
+                    uploadedFiles.add(key);
+                } else if (STEP_FOLDER.equals(fields[1])) {
+                    Set<String> folderIds = linkedFolders.get(key);
+                    if (folderIds == null) {
+                        folderIds = new HashSet<String>();
+                        linkedFolders.put(key, folderIds);
+                    }
+                    folderIds.add(fields[2]);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // nothing saved yet
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read import checkpoint " + file, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mendeley.sdk.sync;
+
+import com.mendeley.sdk.model.Annotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AnnotationStore} keeping the annotations in memory.
+ */
+public class InMemoryAnnotationStore implements AnnotationStore {
+
+    // scope -> annotation id -> annotation
+    private final Map<String, Map<String, Annotation>> annotations = new HashMap<String, Map<String, Annotation>>();
+    private final Map<String, Date> watermarks = new HashMap<String, Date>();
+
+    @Override
+    public synchronized Date getWatermark(String scope) {
+        return watermarks.get(scope);
+    }
+
+    @Override
+    public synchronized List<Annotation> getAnnotations(String scope) {
+        final Map<String, Annotation> annotationsOfScope = annotations.get(scope);
+        return annotationsOfScope != null ? new ArrayList<Annotation>(annotationsOfScope.values()) : Collections.<Annotation>emptyList();
+    }
+
+    @Override
+    public synchronized void replace(String scope, List<Annotation> annotations, Date watermark) {
+        final Map<String, Annotation> annotationsOfScope = new LinkedHashMap<String, Annotation>();
+        for (Annotation annotation : annotations) {
+            annotationsOfScope.put(annotation.id, annotation);
+        }
+        this.annotations.put(scope, annotationsOfScope);
+        watermarks.put(scope, watermark);
+    }
+
+    @Override
+    public synchronized void merge(String scope, List<Annotation> modified, List<String> deletedIds, Date watermark) {
+        Map<String, Annotation> annotationsOfScope = annotations.get(scope);
+        if (annotationsOfScope == null) {
+            annotationsOfScope = new LinkedHashMap<String, Annotation>();
+            annotations.put(scope, annotationsOfScope);
+        }
+        for (Annotation annotation : modified) {
+            annotationsOfScope.put(annotation.id, annotation);
+        }
+        for (String deletedId : deletedIds) {
+            annotationsOfScope.remove(deletedId);
+        }
+        watermarks.put(scope, watermark);
+    }
+}
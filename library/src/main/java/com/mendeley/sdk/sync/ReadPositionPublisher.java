@@ -0,0 +1,315 @@
+package com.mendeley.sdk.sync;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
+import android.util.JsonReader;
+import android.util.Log;
+
+import com.mendeley.sdk.Request;
+import com.mendeley.sdk.RequestFuture;
+import com.mendeley.sdk.RequestsFactory;
+import com.mendeley.sdk.exceptions.MendeleyException;
+import com.mendeley.sdk.model.ReadPosition;
+import com.mendeley.sdk.request.JsonParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link ReadPosition}s of the files being read, as the user scrolls them, without
+ * posting one request per page turn.
+ * <p/>
+ * Only the latest position of each file is kept, and the pending ones are posted together every
+ * flush interval, or straight away with {@link #flush()}. Pending positions are saved in
+ * {@link SharedPreferences}, so the ones not posted when the app is killed are posted the next
+ * time a publisher is created.
+ * <p/>
+ * The publisher obtained with {@link #obtain(Context, RequestsFactory)} is shared by the whole
+ * app, and also flushes when the app goes to the background. Publishers created with the
+ * constructor must not share their {@link SharedPreferences} with another one, or the positions
+ * would be posted by both.
+ */
+public class ReadPositionPublisher {
+
+    private static final String TAG = ReadPositionPublisher.class.getSimpleName();
+
+    public static final String SHARED_PREFERENCES_NAME = "mendeley_read_positions";
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 60 * 1000;
+
+    // Runs the listener in the thread completing the future
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final RequestsFactory requestsFactory;
+    private final SharedPreferences preferences;
+    private final long flushIntervalMs;
+
+    private static ReadPositionPublisher sInstance;
+
+    // file id -> latest position not posted yet
+    private final Map<String, ReadPosition> pending = new LinkedHashMap<String, ReadPosition>();
+
+    // file id -> post in progress, which the flushes made meanwhile wait for instead of posting
+    // the same position again
+    private final Map<String, InFlightPost> inFlight = new HashMap<String, InFlightPost>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "MendeleySdkReadPositions");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private ScheduledFuture<?> scheduledFlush;
+
+    // set for the shared instance, to stop flushing when the app goes to the background
+    private Context applicationContext;
+    private ComponentCallbacks2 componentCallbacks;
+
+    /**
+     * Obtains the publisher of the app, saving its pending positions in the default
+     * {@link SharedPreferences}, which flushes every {@link #DEFAULT_FLUSH_INTERVAL_MS} and when
+     * the app goes to the background. It is created the first time, and the same one is returned
+     * until it is {@link #release() released}.
+     *
+     * @param requestsFactory used to post the positions, if the publisher has to be created
+     */
+    public static synchronized ReadPositionPublisher obtain(Context context, RequestsFactory requestsFactory) {
+        if (sInstance != null) {
+            return sInstance;
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+        final ReadPositionPublisher publisher = new ReadPositionPublisher(
+                requestsFactory,
+                applicationContext.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE),
+                DEFAULT_FLUSH_INTERVAL_MS);
+
+        publisher.applicationContext = applicationContext;
+        publisher.componentCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    publisher.flush();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        };
+        applicationContext.registerComponentCallbacks(publisher.componentCallbacks);
+        sInstance = publisher;
+        return publisher;
+    }
+
+    /**
+     * @param preferences where the pending positions are saved
+     * @param flushIntervalMs maximum time a position waits before being posted
+     */
+    public ReadPositionPublisher(RequestsFactory requestsFactory, SharedPreferences preferences, long flushIntervalMs) {
+        this.requestsFactory = requestsFactory;
+        this.preferences = preferences;
+        this.flushIntervalMs = flushIntervalMs;
+
+        restorePending();
+    }
+
+    /**
+     * Stops the publisher: it doesn't flush any more, neither periodically nor when the app goes
+     * to the background. The positions not posted yet stay saved, and are posted by the next
+     * publisher using the same {@link SharedPreferences}.
+     */
+    public void release() {
+        synchronized (ReadPositionPublisher.class) {
+            if (sInstance == this) {
+                sInstance = null;
+            }
+        }
+        synchronized (this) {
+            if (componentCallbacks != null) {
+                applicationContext.unregisterComponentCallbacks(componentCallbacks);
+                componentCallbacks = null;
+                applicationContext = null;
+            }
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        scheduler.shutdown();
+    }
+
+    /**
+     * Records the position of the file, replacing any pending one of the same file.
+     * It will be posted in the next flush.
+     */
+    public synchronized void publish(ReadPosition readPosition) {
+        if (readPosition.fileId == null) {
+            throw new IllegalArgumentException("Read position without file id");
+        }
+        if (readPosition.date == null) {
+            readPosition = new ReadPosition.Builder(readPosition).setDate(new Date()).build();
+        }
+
+        pending.put(readPosition.fileId, readPosition);
+        save(readPosition);
+        scheduleFlush();
+    }
+
+    /**
+     * @return number of positions waiting to be posted
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Posts all the pending positions now.
+     * <p/>
+     * Positions already being posted are not posted again: the flush waits for their post. A
+     * newer position of a file being posted is posted in the next flush.
+     *
+     * @return future that will complete once all of them have been posted, or fail if any of
+     *         them could not be. Positions that fail are kept to be posted in the next flush.
+     */
+    public synchronized RequestFuture<List<ReadPosition>> flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        final List<RequestFuture<ReadPosition>> futures = new ArrayList<RequestFuture<ReadPosition>>(pending.size());
+        for (final ReadPosition readPosition : new ArrayList<ReadPosition>(pending.values())) {
+            final InFlightPost post = inFlight.get(readPosition.fileId);
+            if (post != null) {
+                futures.add(post.future);
+            } else {
+                futures.add(post(readPosition));
+            }
+        }
+        return RequestFuture.allOf(futures);
+    }
+
+    private RequestFuture<ReadPosition> post(final ReadPosition readPosition) {
+        final InFlightPost post = new InFlightPost(readPosition);
+        inFlight.put(readPosition.fileId, post);
+
+        final RequestFuture<ReadPosition> future = requestsFactory.newPostRecentlyReadRequest(readPosition).runFuture().map(new RequestFuture.Function<Request<ReadPosition>.Response, ReadPosition>() {
+            @Override
+            public ReadPosition apply(Request<ReadPosition>.Response response) {
+                onPosted(readPosition);
+                return response.resource;
+            }
+        });
+        future.addCallback(new RequestFuture.Callback<ReadPosition>() {
+            @Override
+            public void onSuccess(ReadPosition result) {
+            }
+
+            @Override
+            public void onFailure(MendeleyException mendeleyException) {
+                Log.w(TAG, "Could not post read position of file " + readPosition.fileId, mendeleyException);
+                onFailed(post);
+            }
+
+            @Override
+            public void onCancelled() {
+                onFailed(post);
+            }
+        }, DIRECT_EXECUTOR);
+        post.future = future;
+        return future;
+    }
+
+    private synchronized void onPosted(ReadPosition readPosition) {
+        final InFlightPost post = inFlight.get(readPosition.fileId);
+        if (post != null && post.readPosition == readPosition) {
+            inFlight.remove(readPosition.fileId);
+        }
+        // the position may have changed while it was being posted
+        if (pending.get(readPosition.fileId) == readPosition) {
+            pending.remove(readPosition.fileId);
+            preferences.edit().remove(readPosition.fileId).apply();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private synchronized void onFailed(InFlightPost post) {
+        if (inFlight.get(post.readPosition.fileId) == post) {
+            inFlight.remove(post.readPosition.fileId);
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush != null || pending.isEmpty() || scheduler.isShutdown()) {
+            return;
+        }
+        scheduledFlush = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ReadPositionPublisher.this) {
+                    scheduledFlush = null;
+                }
+                flush();
+            }
+        }, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void save(ReadPosition readPosition) {
+        try {
+            preferences.edit().putString(readPosition.fileId, JsonParser.readPositionToJson(readPosition).toString()).apply();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not save read position of file " + readPosition.fileId, e);
+        }
+    }
+
+    private synchronized void restorePending() {
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            try {
+                final ReadPosition readPosition = JsonParser.readPositionFromJson(new JsonReader(new StringReader((String) entry.getValue())));
+                pending.put(readPosition.fileId, readPosition);
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable read position of file " + entry.getKey(), e);
+                preferences.edit().remove(entry.getKey()).apply();
+            }
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Post of one position, kept while in progress.
+     */
+    private static class InFlightPost {
+        final ReadPosition readPosition;
+        RequestFuture<ReadPosition> future;
+
+        InFlightPost(ReadPosition readPosition) {
+            this.readPosition = readPosition;
+        }
+    }
+}
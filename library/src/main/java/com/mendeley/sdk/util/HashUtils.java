@@ -0,0 +1,53 @@
+package com.mendeley.sdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utilities to compute the hashes the Mendeley API uses to identify the content of files.
+ */
+public class HashUtils {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * @return a new SHA-1 digest, the algorithm of {@link com.mendeley.sdk.model.File#fileHash}
+     */
+    public static MessageDigest newSha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java and Android platform is required to support it
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Reads the stream to its end, without closing it.
+     *
+     * @return the SHA-1 of the content of the stream, in lowercase hexadecimal
+     */
+    public static String sha1(InputStream inputStream) throws IOException {
+        final MessageDigest digest = newSha1Digest();
+        final byte[] buffer = new byte[1024 * 16];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, count);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return the bytes in lowercase hexadecimal
+     */
+    public static String toHex(byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
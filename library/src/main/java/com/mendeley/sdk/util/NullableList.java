@@ -1,14 +1,23 @@
 package com.mendeley.sdk.util;
 
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.RandomAccess;
 
 public class NullableList<T> implements List<T>, Nullable {
 
+    // lists up to this size are copied to an array when created with of()
+    static final int COMPACT_MAX_SIZE = 8;
+
+    private static final NullableList<Object> NULL = new NullableList<Object>(Collections.emptyList(), true);
+    private static final NullableList<Object> EMPTY = new NullableList<Object>(Collections.emptyList(), false);
+
     private final List<T> delegate;
     private final boolean isNull;
 
@@ -17,6 +26,34 @@ public class NullableList<T> implements List<T>, Nullable {
         isNull = delegate == null;
     }
 
+    private NullableList(List<T> delegate, boolean isNull) {
+        this.delegate = delegate;
+        this.isNull = isNull;
+    }
+
+    /**
+     * Creates a read-only list for the models, using as little memory as possible: null and empty
+     * lists are shared instances, and small lists are copied to an array of their exact size.
+     * Bigger lists are copied too, so later changes to the passed list are not seen by the models.
+     * Modifying the returned list throws {@link UnsupportedOperationException}, whatever its size.
+     *
+     * @param list the elements, or null
+     * @return a read-only list with the elements of the passed one
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> NullableList<T> of(List<T> list) {
+        if (list == null || (list instanceof Nullable && ((Nullable) list).isNull())) {
+            return (NullableList<T>) NULL;
+        }
+        if (list.isEmpty()) {
+            return (NullableList<T>) EMPTY;
+        }
+        if (list.size() <= COMPACT_MAX_SIZE) {
+            return new NullableList<T>(new CompactList<T>(list.toArray()), false);
+        }
+        return new NullableList<T>(Collections.unmodifiableList(new ArrayList<T>(list)), false);
+    }
+
     @Override
     public boolean isNull() {
         return isNull;
@@ -418,4 +455,26 @@ public class NullableList<T> implements List<T>, Nullable {
         return delegate.toArray(array);
     }
 
+    /**
+     * Read-only list backed by an array of the exact size.
+     */
+    private static class CompactList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Object[] elements;
+
+        CompactList(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int location) {
+            return (T) elements[location];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
 }
@@ -1,13 +1,25 @@
 package com.mendeley.sdk.util;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 
 public class NullableMap<K, V> implements Map<K, V>, Nullable {
 
+    // maps up to this size are copied to arrays when created with of()
+    static final int COMPACT_MAX_SIZE = 8;
+
+    private static final NullableMap<Object, Object> NULL = new NullableMap<Object, Object>(Collections.emptyMap(), true);
+    private static final NullableMap<Object, Object> EMPTY = new NullableMap<Object, Object>(Collections.emptyMap(), false);
+
     private final Map<K, V> delegate;
     private final boolean isNull;
 
@@ -16,6 +28,34 @@ public class NullableMap<K, V> implements Map<K, V>, Nullable {
         this.delegate = delegate == null ? new HashMap<K, V>(0) : delegate;
     }
 
+    private NullableMap(Map<K, V> delegate, boolean isNull) {
+        this.delegate = delegate;
+        this.isNull = isNull;
+    }
+
+    /**
+     * Creates a read-only map for the models, using as little memory as possible: null and empty
+     * maps are shared instances, and small maps are copied to arrays of their exact size.
+     * Bigger maps are copied too, so later changes to the passed map are not seen by the models.
+     * Modifying the returned map throws {@link UnsupportedOperationException}, whatever its size.
+     *
+     * @param map the entries, or null
+     * @return a read-only map with the entries of the passed one
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> NullableMap<K, V> of(Map<K, V> map) {
+        if (map == null || (map instanceof Nullable && ((Nullable) map).isNull())) {
+            return (NullableMap<K, V>) NULL;
+        }
+        if (map.isEmpty()) {
+            return (NullableMap<K, V>) EMPTY;
+        }
+        if (map.size() <= COMPACT_MAX_SIZE) {
+            return new NullableMap<K, V>(new CompactMap<K, V>(map), false);
+        }
+        return new NullableMap<K, V>(Collections.unmodifiableMap(new LinkedHashMap<K, V>(map)), false);
+    }
+
     @Override
     public boolean isNull() {
         return isNull;
@@ -230,4 +270,88 @@ public class NullableMap<K, V> implements Map<K, V>, Nullable {
     public Collection<V> values() {
         return delegate.values();
     }
+
+    /**
+     * Read-only map backed by arrays of the exact size. Lookups are linear, which for a handful
+     * of entries is as fast as hashing.
+     */
+    private static class CompactMap<K, V> extends AbstractMap<K, V> {
+
+        private final Object[] keys;
+        private final Object[] values;
+
+        CompactMap(Map<K, V> map) {
+            keys = new Object[map.size()];
+            values = new Object[map.size()];
+            int i = 0;
+            for (Entry<K, V> entry : map.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get(Object key) {
+            final int index = indexOf(key);
+            return index >= 0 ? (V) values[index] : null;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (key == null ? keys[i] == null : key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new Iterator<Entry<K, V>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @SuppressWarnings("unchecked")
+                        @Override
+                        public Entry<K, V> next() {
+                            if (next >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            final int index = next++;
+                            return new SimpleImmutableEntry<K, V>((K) keys[index], (V) values[index]);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+    }
 }
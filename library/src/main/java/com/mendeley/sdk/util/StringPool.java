@@ -0,0 +1,101 @@
+package com.mendeley.sdk.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded table to share equal strings, so that values repeated across many models (author
+ * names, tags, group ids...) are retained only once in memory.
+ * <p/>
+ * The table has a fixed number of slots and each string is stored in the one given by its hash
+ * code, replacing whatever was there. So memory usage is bounded, at the cost of missing some
+ * duplicates when two frequent strings compete for the same slot.
+ * <p/>
+ * Instances are safe to use from several threads without locking: slots hold immutable strings,
+ * so the worst a race can cause is a missed duplicate.
+ */
+public class StringPool {
+
+    private final String[] slots;
+    private final int mask;
+
+    // null unless counting, as the counters are contended by all the threads using the pool
+    private final AtomicLong lookups;
+    private final AtomicLong hits;
+
+    /**
+     * @param capacity number of slots of the table. It is rounded up to a power of two.
+     */
+    public StringPool(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity number of slots of the table. It is rounded up to a power of two.
+     * @param countStats whether to count the lookups and hits, to measure the sharing
+     */
+    public StringPool(int capacity, boolean countStats) {
+        lookups = countStats ? new AtomicLong() : null;
+        hits = countStats ? new AtomicLong() : null;
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        slots = new String[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @param string the string to share
+     * @return an equal string previously passed to this method if it is still in the table, or
+     *         the passed one otherwise
+     */
+    public String get(String string) {
+        if (string == null) {
+            return null;
+        }
+        if (lookups != null) {
+            lookups.incrementAndGet();
+        }
+
+        final int hash = string.hashCode();
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+        final String pooled = slots[slot];
+        if (pooled != null && pooled.equals(string)) {
+            if (hits != null) {
+                hits.incrementAndGet();
+            }
+            return pooled;
+        }
+        slots[slot] = string;
+        return string;
+    }
+
+    /**
+     * @return number of strings passed to {@link #get(String)}, or 0 if not counting them
+     */
+    public long getLookups() {
+        return lookups != null ? lookups.get() : 0;
+    }
+
+    /**
+     * @return number of strings passed to {@link #get(String)} that were replaced by a shared one,
+     *         or 0 if not counting them
+     */
+    public long getHits() {
+        return hits != null ? hits.get() : 0;
+    }
+
+    /**
+     * Empties the table and resets its counters.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+        if (lookups != null) {
+            lookups.set(0);
+            hits.set(0);
+        }
+    }
+}